@@ -0,0 +1,58 @@
+package org.example._citizncardproj3.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.model.entity.Booking;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 校正訂票ID分配表
+ * 訂票ID由 IdGenerators 表分配區段，表格由 Hibernate 建立時從初始值開始，
+ * 會與既有的 BookingID 重複。啟動時在接受請求前把 NextValue 推進到 MAX(BookingID) 之後。
+ */
+@Slf4j
+@Configuration
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class BookingIdSeedConfig {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void seedBookingIds() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(BookingID), 0) FROM Bookings", Long.class);
+        // 分配器讀到 NextValue 後使用 (NextValue - 區段大小, NextValue] 的ID
+        long required = maxId + Booking.ID_ALLOCATION_SIZE;
+
+        if (raise(required) > 0) {
+            log.info("訂票ID分配表已校正: maxBookingId={}, nextValue={}", maxId, required);
+            return;
+        }
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + Booking.ID_GENERATOR_TABLE + " WHERE GeneratorName = ?",
+                Integer.class, Booking.ID_GENERATOR_KEY);
+        if (rows != null && rows > 0) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.update("INSERT INTO " + Booking.ID_GENERATOR_TABLE + " (GeneratorName, NextValue) VALUES (?, ?)",
+                    Booking.ID_GENERATOR_KEY, required);
+        } catch (DuplicateKeyException e) {
+            // 其他實例同時建立，確認其值不低於需求
+            raise(required);
+        }
+        log.info("訂票ID分配表已建立: maxBookingId={}, nextValue={}", maxId, required);
+    }
+
+    private int raise(long required) {
+        return jdbcTemplate.update("UPDATE " + Booking.ID_GENERATOR_TABLE
+                        + " SET NextValue = ? WHERE GeneratorName = ? AND NextValue < ?",
+                required, Booking.ID_GENERATOR_KEY, required);
+    }
+}
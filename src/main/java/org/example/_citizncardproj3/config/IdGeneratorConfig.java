@@ -0,0 +1,39 @@
+package org.example._citizncardproj3.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.util.IdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * 設定編號產生器的節點ID
+ * 多個服務實例部署時應各自指定 app.id-generator.node-id；
+ * 未指定時以主機名稱推算，僅適用於單一實例或測試環境。
+ */
+@Slf4j
+@Configuration
+public class IdGeneratorConfig {
+
+    @Value("${app.id-generator.node-id:-1}")
+    private long nodeId;
+
+    @PostConstruct
+    public void configureNodeId() {
+        long id = nodeId >= 0 ? nodeId : deriveNodeId();
+        IdGenerator.setNodeId(id);
+        log.info("編號產生器節點ID: {}", id);
+    }
+
+    private long deriveNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName().hashCode() & IdGenerator.MAX_NODE_ID;
+        } catch (UnknownHostException e) {
+            log.warn("無法取得主機名稱，使用節點ID 0");
+            return 0L;
+        }
+    }
+}
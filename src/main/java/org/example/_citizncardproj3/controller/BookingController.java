@@ -4,13 +4,20 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.example._citizncardproj3.exception.CustomException;
 import org.example._citizncardproj3.model.dto.request.BookingRequest;
 import org.example._citizncardproj3.model.dto.response.ApiResponse;
 import org.example._citizncardproj3.model.dto.response.BookingResponse;
+import org.example._citizncardproj3.model.dto.response.CursorPage;
 import org.example._citizncardproj3.model.entity.Booking;
 import org.example._citizncardproj3.service.BookingService;
+import org.example._citizncardproj3.service.MovieScheduleService;
+import org.example._citizncardproj3.service.support.BookingAdmissionQueue;
+import org.example._citizncardproj3.service.support.IdempotencyCache;
+import org.example._citizncardproj3.service.support.SeatHoldRegistry;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -19,6 +26,7 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/bookings")
@@ -27,17 +35,35 @@ import java.util.List;
 public class BookingController {
 
     private final BookingService bookingService;
+    private final MovieScheduleService scheduleService;
+    private final BookingAdmissionQueue bookingAdmissionQueue;
+    private final IdempotencyCache idempotencyCache;
 
     @Operation(summary = "創建訂票")
     @PostMapping
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<BookingResponse> createBooking(
             @Valid @RequestBody BookingRequest request,
+            @Parameter(description = "冪等鍵，重送時沿用第一次的結果")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication authentication) {
         try {
             String userEmail = authentication.getName();
-            BookingResponse booking = bookingService.createBooking(request, userEmail);
+            // 同一場次的訂票經由准入佇列依序處理，重送的請求直接取得先前結果
+            BookingResponse booking = idempotencyCache.execute(userEmail, idempotencyKey, request,
+                    () -> bookingAdmissionQueue.submit(request.getScheduleId(),
+                            () -> bookingService.createBooking(userEmail, request)));
             return ResponseEntity.ok(booking);
+        } catch (CustomException.BookingQueueFullException e) {
+            return ResponseEntity
+                    .status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(new BookingResponse(null, e.getMessage()));
+        } catch (CustomException.BookingQueueTimeoutException e) {
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(new BookingResponse(null, e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity
                     .status(HttpStatus.BAD_REQUEST)
@@ -73,6 +99,21 @@ public class BookingController {
         return ResponseEntity.ok(bookings);
     }
 
+    @Operation(summary = "以游標分頁獲取訂票記錄")
+    @GetMapping("/history")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<CursorPage<BookingResponse>> getBookingHistory(
+            Authentication authentication,
+            @Parameter(description = "上一頁回傳的游標") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每頁筆數") @RequestParam(defaultValue = "20") int size) {
+        try {
+            String userEmail = authentication.getName();
+            return ResponseEntity.ok(bookingService.getMemberBookingHistory(userEmail, cursor, size));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
     @Operation(summary = "取消訂票")
     @DeleteMapping("/{bookingId}")
     @PreAuthorize("hasRole('USER')")
@@ -107,6 +148,62 @@ public class BookingController {
         }
     }
 
+    @Operation(summary = "查詢最佳連續座位")
+    @GetMapping("/best-seats")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<ApiResponse> findBestSeats(
+            @Parameter(description = "場次ID") @RequestParam Long scheduleId,
+            @Parameter(description = "座位數量") @RequestParam int count,
+            @Parameter(description = "座位區域") @RequestParam(required = false) String zone) {
+        try {
+            List<String> seats = scheduleService.findBestAvailableSeats(scheduleId, count, zone);
+            return ResponseEntity.ok(seats.isEmpty()
+                    ? new ApiResponse(false, "沒有足夠的連續座位")
+                    : ApiResponse.success("查詢成功", seats));
+        } catch (Exception e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "保留座位")
+    @PostMapping("/holds")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<ApiResponse> holdSeats(
+            @Parameter(description = "場次ID") @RequestParam Long scheduleId,
+            @Parameter(description = "座位號碼列表") @RequestParam List<String> seatNumbers,
+            @Parameter(description = "保留時長(分鐘)") @RequestParam(defaultValue = "10") int duration,
+            Authentication authentication) {
+        try {
+            SeatHoldRegistry.SeatHold hold = scheduleService.lockSeats(
+                    authentication.getName(), scheduleId, seatNumbers, duration);
+            return ResponseEntity.ok(ApiResponse.success("座位已保留", Map.of(
+                    "holdToken", hold.getToken(),
+                    "seatNumbers", hold.getSeatNumbers(),
+                    "expiresAt", hold.getExpiresAt())));
+        } catch (CustomException.SeatLockedException e) {
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body(new ApiResponse(false, e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "釋放座位保留")
+    @DeleteMapping("/holds/{holdToken}")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<ApiResponse> releaseSeats(
+            @Parameter(description = "保留憑證") @PathVariable String holdToken,
+            Authentication authentication) {
+        boolean released = scheduleService.unlockSeats(authentication.getName(), holdToken);
+        return ResponseEntity.ok(new ApiResponse(released,
+                released ? "座位保留已釋放" : "座位保留不存在或已過期"));
+    }
+
     @Operation(summary = "更新訂票狀態")
     @PatchMapping("/{bookingId}/status")
     @PreAuthorize("hasRole('ADMIN')")
@@ -123,6 +220,15 @@ public class BookingController {
         }
     }
 
+    @Operation(summary = "獲取訂票佇列狀態")
+    @GetMapping("/queue-status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse> getQueueStatus() {
+        return ResponseEntity.ok(ApiResponse.success("查詢成功", Map.of(
+                "totalDepth", bookingAdmissionQueue.getTotalDepth(),
+                "schedules", bookingAdmissionQueue.getQueueDepths())));
+    }
+
     @Operation(summary = "獲取訂票統計")
     @GetMapping("/statistics")
     @PreAuthorize("hasRole('ADMIN')")
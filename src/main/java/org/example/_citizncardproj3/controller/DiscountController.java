@@ -4,19 +4,25 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.example._citizncardproj3.exception.CustomException;
 import org.example._citizncardproj3.model.dto.request.DiscountCreateRequest;
 import org.example._citizncardproj3.model.dto.request.DiscountUpdateRequest;
 import org.example._citizncardproj3.model.dto.response.ApiResponse;
 import org.example._citizncardproj3.model.dto.response.DiscountResponse;
 import org.example._citizncardproj3.service.DiscountService;
+import org.example._citizncardproj3.service.support.DiscountCodeIssuer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.time.LocalDateTime;
@@ -140,6 +146,99 @@ public class DiscountController {
         }
     }
 
+    @Operation(summary = "設定限量優惠的額度分片", description = "搶購型優惠將剩餘額度分散到多個分片，分片數 1 表示取消分片")
+    @PostMapping("/{discountId}/quota-shards")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse> shardQuota(
+            @Parameter(description = "優惠ID") @PathVariable Long discountId,
+            @Parameter(description = "分片數") @RequestParam int shards) {
+        try {
+            int used = discountService.shardQuota(discountId, shards);
+            return ResponseEntity.ok(new ApiResponse(true, "額度分片已設定，已使用 " + used + " 次"));
+        } catch (Exception e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "批次發行個人優惠碼", description = "排入背景發行工作，立即回傳批次編號供查詢進度與下載")
+    @PostMapping("/{discountId}/codes")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<DiscountCodeIssuer.IssueJob>> issueCodes(
+            @Parameter(description = "優惠ID") @PathVariable Long discountId,
+            @Parameter(description = "發行數量") @RequestParam int count) {
+        try {
+            DiscountCodeIssuer.IssueJob job = discountService.issueCodes(discountId, count);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(new ApiResponse<>(job));
+        } catch (Exception e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "查詢優惠碼發行進度")
+    @GetMapping("/codes/batches/{batchNo}/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getIssueStatus(
+            @Parameter(description = "發行批次編號") @PathVariable String batchNo) {
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(discountService.getIssueStatus(batchNo)));
+        } catch (CustomException e) {
+            return ResponseEntity
+                    .status(e.getStatus())
+                    .body(new ApiResponse(false, e.getMessage(), e.getErrorCode()));
+        } catch (Exception e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "下載發行批次的優惠碼", description = "以 gzip 壓縮串流輸出 CSV")
+    @GetMapping("/codes/batches/{batchNo}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> downloadIssuedCodes(
+            @Parameter(description = "發行批次編號") @PathVariable String batchNo) {
+        // 批次在送出回應狀態前確認存在，不存在時不回傳空檔案
+        try {
+            discountService.getIssuedCodeCount(batchNo);
+        } catch (CustomException e) {
+            return ResponseEntity
+                    .status(e.getStatus())
+                    .body(new ApiResponse(false, e.getMessage(), e.getErrorCode()));
+        } catch (Exception e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+
+        StreamingResponseBody body = out -> discountService.exportIssuedCodes(batchNo, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("discount-codes-" + batchNo + ".csv.gz")
+                        .build()
+                        .toString())
+                .header("X-Content-Format", "text/csv")
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .body(body);
+    }
+
+    @Operation(summary = "重新計算優惠兌換次數", description = "依使用紀錄回填兌換計數")
+    @PostMapping("/admin/usage-counts/resync")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse> resyncUsageCounts() {
+        try {
+            int updated = discountService.resyncUsageCounts();
+            return ResponseEntity.ok(new ApiResponse(true, "已重新計算 " + updated + " 筆優惠的兌換次數"));
+        } catch (Exception e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
     @Operation(summary = "獲取優惠使用統計")
     @GetMapping("/statistics")
     @PreAuthorize("hasRole('ADMIN')")
@@ -6,8 +6,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.example._citizncardproj3.model.dto.request.MemberUpdateRequest;
 import org.example._citizncardproj3.model.dto.response.ApiResponse;
+import org.example._citizncardproj3.model.dto.response.CursorPage;
 import org.example._citizncardproj3.model.dto.response.MemberResponse;
+import org.example._citizncardproj3.model.dto.response.NotificationResponse;
 import org.example._citizncardproj3.service.MemberService;
+import org.example._citizncardproj3.service.NotificationService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
@@ -26,6 +29,7 @@ import javax.validation.Valid;
 public class MemberController {
 
     private final MemberService memberService;
+    private final NotificationService notificationService;
 
     @Operation(summary = "獲取會員個人資料")
     @GetMapping("/profile")
@@ -171,4 +175,19 @@ public class MemberController {
                     .body(new ApiResponse(false, e.getMessage()));
         }
     }
+
+    @Operation(summary = "以游標分頁獲取會員通知")
+    @GetMapping("/notifications")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<CursorPage<NotificationResponse>> getNotifications(
+            Authentication authentication,
+            @Parameter(description = "上一頁回傳的游標") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每頁筆數") @RequestParam(defaultValue = "20") int size) {
+        try {
+            String userEmail = authentication.getName();
+            return ResponseEntity.ok(notificationService.getMemberNotifications(userEmail, cursor, size));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
 }
\ No newline at end of file
@@ -4,22 +4,32 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.dto.request.BulkTransferRequest;
 import org.example._citizncardproj3.model.dto.request.TopUpRequest;
 import org.example._citizncardproj3.model.dto.request.TransferRequest;
 import org.example._citizncardproj3.model.dto.response.ApiResponse;
+import org.example._citizncardproj3.model.dto.response.BulkTransferResponse;
+import org.example._citizncardproj3.model.dto.response.CursorPage;
 import org.example._citizncardproj3.model.dto.response.TransactionResponse;
 import org.example._citizncardproj3.model.dto.response.WalletResponse;
 import org.example._citizncardproj3.service.WalletService;
+import org.example._citizncardproj3.service.support.TransactionStatementExporter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @RestController
@@ -98,6 +108,107 @@ public class WalletController {
         }
     }
 
+    @Operation(summary = "批次轉帳")
+    @PostMapping("/transfer/bulk")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> bulkTransfer(
+            @Valid @RequestBody BulkTransferRequest request,
+            Authentication authentication) {
+        try {
+            String userEmail = authentication.getName();
+            BulkTransferResponse response = walletService.bulkTransfer(userEmail, request);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "以游標分頁查詢交易記錄")
+    @GetMapping("/transactions/history")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<CursorPage<TransactionResponse>> getTransactionHistory(
+            Authentication authentication,
+            @Parameter(description = "上一頁回傳的游標") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每頁筆數") @RequestParam(defaultValue = "20") int size) {
+        try {
+            String userEmail = authentication.getName();
+            return ResponseEntity.ok(walletService.getTransactionHistory(userEmail, cursor, size));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    @Operation(summary = "匯出交易明細", description = "以 gzip 壓縮串流輸出 CSV 或 NDJSON")
+    @GetMapping("/transactions/export")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> exportTransactions(
+            Authentication authentication,
+            @Parameter(description = "開始時間")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "結束時間")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @Parameter(description = "輸出格式 (CSV/NDJSON)")
+            @RequestParam(defaultValue = "CSV") TransactionStatementExporter.Format format) {
+        return streamStatement(authentication.getName(), startTime, endTime, format);
+    }
+
+    @Operation(summary = "查詢每日交易統計")
+    @GetMapping("/statistics/daily")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> getDailyStatistics(
+            Authentication authentication,
+            @Parameter(description = "開始日期")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "結束日期")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            String userEmail = authentication.getName();
+            return ResponseEntity.ok(walletService.getDailyStatistics(userEmail, startDate, endDate));
+        } catch (Exception e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "重建每日交易統計（回補歷史資料）")
+    @PostMapping("/admin/statistics/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildDailyStatistics(
+            @Parameter(description = "開始日期")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "結束日期（必須早於今天）")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            int days = walletService.rebuildDailyStatistics(startDate, endDate);
+            return ResponseEntity.ok(new ApiResponse(true, "已重建 " + days + " 天的每日統計"));
+        } catch (CustomException.RollupRebuildBusyException e) {
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body(new ApiResponse(false, e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "匯出指定會員的交易明細（稽核用）")
+    @GetMapping("/admin/transactions/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> exportMemberTransactions(
+            @Parameter(description = "用戶Email") @RequestParam String userEmail,
+            @Parameter(description = "開始時間")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "結束時間")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @Parameter(description = "輸出格式 (CSV/NDJSON)")
+            @RequestParam(defaultValue = "CSV") TransactionStatementExporter.Format format) {
+        return streamStatement(userEmail, startTime, endTime, format);
+    }
+
     @Operation(summary = "查詢單筆交易詳情")
     @GetMapping("/transactions/{transactionId}")
     @PreAuthorize("hasRole('USER')")
@@ -145,4 +256,35 @@ public class WalletController {
                     .body(new ApiResponse(false, e.getMessage()));
         }
     }
+
+    // 用戶、期間與同時匯出數在送出回應狀態前驗證；資料在寫入回應時才逐列讀取，檔案以 .gz 下載，避免再經過伺服器壓縮
+    private ResponseEntity<?> streamStatement(
+            String userEmail,
+            LocalDateTime startTime,
+            LocalDateTime endTime,
+            TransactionStatementExporter.Format format) {
+        TransactionStatementExporter.Export export;
+        try {
+            export = walletService.prepareTransactionExport(userEmail, startTime, endTime, format);
+        } catch (CustomException.StatementExportBusyException e) {
+            return ResponseEntity
+                    .status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(new ApiResponse(false, e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+
+        String filename = "statement-" + LocalDate.now() + "." + format.getExtension() + ".gz";
+        StreamingResponseBody body = export::writeTo;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(filename)
+                        .build()
+                        .toString())
+                .header("X-Content-Format", format.getContentType())
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .body(body);
+    }
 }
\ No newline at end of file
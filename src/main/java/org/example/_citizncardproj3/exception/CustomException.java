@@ -96,6 +96,27 @@ public class CustomException extends RuntimeException {
         }
     }
 
+    @Getter
+    public static class BookingQueueFullException extends CustomException {
+        private final long retryAfterSeconds;
+
+        public BookingQueueFullException(long retryAfterSeconds) {
+            super("訂票人數眾多，請於 " + retryAfterSeconds + " 秒後重試", HttpStatus.TOO_MANY_REQUESTS, "BOOKING_004");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+
+    // 佇列未滿但等待處理逾時，請求尚未開始處理
+    @Getter
+    public static class BookingQueueTimeoutException extends CustomException {
+        private final long retryAfterSeconds;
+
+        public BookingQueueTimeoutException(long retryAfterSeconds) {
+            super("訂票處理逾時，請於 " + retryAfterSeconds + " 秒後重試", HttpStatus.SERVICE_UNAVAILABLE, "BOOKING_005");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+
     // 電子錢包相關異常
     public static class InsufficientBalanceException extends CustomException {
         public InsufficientBalanceException() {
@@ -115,6 +136,35 @@ public class CustomException extends RuntimeException {
         }
     }
 
+    public static class WalletBusyException extends CustomException {
+        public WalletBusyException(Long walletId) {
+            super("錢包交易處理中，請稍後再試: " + walletId, HttpStatus.CONFLICT, "WALLET_004");
+        }
+    }
+
+    public static class StatementExportBusyException extends CustomException {
+        public StatementExportBusyException() {
+            super("交易明細匯出請求過多，請稍後再試", HttpStatus.TOO_MANY_REQUESTS, "WALLET_005");
+        }
+    }
+
+    public static class RollupRebuildBusyException extends CustomException {
+        public RollupRebuildBusyException() {
+            super("每日彙總重建執行中，請稍後再試", HttpStatus.CONFLICT, "WALLET_006");
+        }
+    }
+
+    // 等待逾時但支付已開始提交，結果須以交易編號查詢，不可直接重試
+    @Getter
+    public static class PaymentResultUnknownException extends CustomException {
+        private final String transactionNumber;
+
+        public PaymentResultUnknownException(String transactionNumber) {
+            super("支付處理中，請以交易編號查詢結果: " + transactionNumber, HttpStatus.ACCEPTED, "WALLET_007");
+            this.transactionNumber = transactionNumber;
+        }
+    }
+
     // 優惠相關異常
     public static class DiscountNotFoundException extends CustomException {
         public DiscountNotFoundException(Long discountId) {
@@ -134,6 +184,18 @@ public class CustomException extends RuntimeException {
         }
     }
 
+    public static class DiscountExhaustedException extends CustomException {
+        public DiscountExhaustedException(String discountCode) {
+            super("優惠已兌換完畢: " + discountCode, HttpStatus.CONFLICT, "DISCOUNT_004");
+        }
+    }
+
+    public static class DiscountCodeBatchNotFoundException extends CustomException {
+        public DiscountCodeBatchNotFoundException(String batchNo) {
+            super("找不到優惠碼發行批次: " + batchNo, HttpStatus.NOT_FOUND, "DISCOUNT_005");
+        }
+    }
+
     // 文件相關異常
     public static class FileUploadException extends CustomException {
         public FileUploadException(String message) {
@@ -211,6 +273,12 @@ public class CustomException extends RuntimeException {
         }
     }
 
+    public static class SeatHoldExpiredException extends CustomException {
+        public SeatHoldExpiredException() {
+            super("座位保留已失效，請重新選位", HttpStatus.CONFLICT, "SEAT_005");
+        }
+    }
+
     // 交易相關異常
     public static class TransactionNotFoundException extends CustomException {
         public TransactionNotFoundException(Long transactionId) {
@@ -0,0 +1,41 @@
+package org.example._citizncardproj3.model.dto.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example._citizncardproj3.model.entity.Booking;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * 訂票列表投影
+ * 由單一 JPQL 建構式查詢取得，不載入 Booking 及其關聯實體
+ */
+@Getter
+@AllArgsConstructor
+public class BookingListView {
+
+    private final Long bookingId;
+    private final String bookingNumber;
+    private final String memberName;
+    private final String memberEmail;
+    private final Long movieId;
+    private final String movieName;
+    private final Long scheduleId;
+    private final LocalDate showDate;
+    private final LocalTime startTime;
+    private final String venueName;
+    private final String roomNumber;
+    private final Booking.BookingStatus status;
+    private final Booking.PaymentStatus paymentStatus;
+    private final BigDecimal totalAmount;
+    private final BigDecimal discountApplied;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime paymentTime;
+
+    public LocalDateTime getShowTime() {
+        return LocalDateTime.of(showDate, startTime);
+    }
+}
@@ -0,0 +1,30 @@
+package org.example._citizncardproj3.model.dto.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example._citizncardproj3.model.entity.CityMovie;
+
+import java.time.LocalDate;
+
+/**
+ * 電影列表投影
+ * 只取列表需要的欄位，不載入 CityMovie 實體
+ */
+@Getter
+@AllArgsConstructor
+public class MovieListView {
+
+    private final Long movieId;
+    private final String movieCode;
+    private final String movieName;
+    private final Integer duration;
+    private final LocalDate releaseDate;
+    private final LocalDate endDate;
+    private final String language;
+    private final String subtitle;
+    private final String director;
+    private final String cast;
+    private final String posterUrl;
+    private final String rating;
+    private final CityMovie.MovieStatus status;
+}
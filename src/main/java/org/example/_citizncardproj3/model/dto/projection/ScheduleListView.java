@@ -0,0 +1,42 @@
+package org.example._citizncardproj3.model.dto.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example._citizncardproj3.model.entity.MovieSchedule;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * 場次列表投影
+ * 由單一 JPQL 建構式查詢取得，不載入 MovieSchedule 及其關聯實體
+ */
+@Getter
+@AllArgsConstructor
+public class ScheduleListView {
+
+    private final Long scheduleId;
+    private final Long movieId;
+    private final String movieName;
+    private final Long venueId;
+    private final String venueName;
+    private final String roomNumber;
+    private final LocalDate showDate;
+    private final LocalTime startTime;
+    private final LocalTime endTime;
+    private final Double basePrice;
+    private final Integer availableSeats;
+    private final Integer totalSeats;
+    private final MovieSchedule.ScheduleStatus status;
+
+    public LocalDateTime getShowTime() {
+        return LocalDateTime.of(showDate, startTime);
+    }
+
+    public LocalDateTime getEndDateTime() {
+        // 跨午夜的場次結束於隔天
+        LocalDate endDate = endTime.isBefore(startTime) ? showDate.plusDays(1) : showDate;
+        return LocalDateTime.of(endDate, endTime);
+    }
+}
@@ -26,6 +26,8 @@ public class BookingRequest {
 
     private String discountCode;
 
+    private String holdToken;  // 座位保留憑證（選位時取得）
+
     @NotNull(message = "支付方式不能為空")
     private PaymentMethod paymentMethod;
 
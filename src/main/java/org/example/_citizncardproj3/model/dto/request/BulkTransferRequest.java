@@ -0,0 +1,42 @@
+package org.example._citizncardproj3.model.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.*;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkTransferRequest {
+
+    @NotEmpty(message = "轉帳明細不能為空")
+    @Size(max = 10000, message = "單次最多10000筆轉帳")
+    @Valid
+    private List<Leg> legs;
+
+    @Size(max = 200, message = "備註不能超過200字")
+    private String note;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Leg {
+
+        @NotBlank(message = "收款人Email不能為空")
+        @Email(message = "收款人Email格式不正確")
+        private String recipientEmail;
+
+        @NotNull(message = "轉帳金額不能為空")
+        @DecimalMin(value = "1.0", message = "轉帳金額必須大於或等於1")
+        @DecimalMax(value = "1000000.0", message = "轉帳金額不能超過100萬")
+        @Digits(integer = 7, fraction = 2, message = "金額格式不正確")
+        private Double amount;
+    }
+}
@@ -88,7 +88,8 @@ public class BookingResponse {
         UNPAID("未付款"),
         PAID("已付款"),
         REFUNDED("已退款"),
-        FAILED("付款失敗");
+        FAILED("付款失敗"),
+        CANCELLED("已取消");
 
         private final String description;
 
@@ -104,8 +105,8 @@ public class BookingResponse {
                     return PAID;
                 case REFUNDED:
                     return REFUNDED;
-                case FAILED:
-                    return FAILED;
+                case CANCELLED:
+                    return CANCELLED;
                 default:
                     throw new IllegalArgumentException("Unknown payment status: " + paymentStatus);
             }
@@ -0,0 +1,33 @@
+package org.example._citizncardproj3.model.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkTransferResponse {
+    private String batchNumber;
+    private int totalLegs;
+    private int succeededLegs;
+    private int failedLegs;
+    private Double totalAmount;
+    private List<FailedLeg> failures;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FailedLeg {
+        private int index;
+        private String recipientEmail;
+        private String reason;
+    }
+}
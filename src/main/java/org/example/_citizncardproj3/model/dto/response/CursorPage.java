@@ -0,0 +1,26 @@
+package org.example._citizncardproj3.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游標分頁結果
+ * 不計算總筆數，以 nextCursor 取得下一頁
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> content;
+
+    /**
+     * 下一頁游標，沒有下一頁時為 null
+     */
+    private String nextCursor;
+
+    private boolean hasNext;
+}
@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.example._citizncardproj3.model.dto.projection.MovieListView;
 import org.example._citizncardproj3.model.entity.CityMovie;
 
 import java.time.LocalDate;
@@ -200,6 +201,26 @@ public class MovieResponse {
                 .build();
     }
 
+    /**
+     * 由列表投影建立響應
+     */
+    public static MovieResponse fromView(MovieListView view) {
+        return MovieResponse.builder()
+                .movieId(view.getMovieId())
+                .movieCode(view.getMovieCode())
+                .movieName(view.getMovieName())
+                .releaseDate(view.getReleaseDate())
+                .endDate(view.getEndDate())
+                .language(view.getLanguage())
+                .subtitle(view.getSubtitle())
+                .director(view.getDirector())
+                .cast(Collections.singletonList(view.getCast()))
+                .duration(view.getDuration())
+                .rating(view.getRating())
+                .posterUrl(view.getPosterUrl())
+                .status(convertStatus(view.getStatus()))
+                .build();
+    }
 
     /**
      * 狀態轉換方法
@@ -0,0 +1,46 @@
+package org.example._citizncardproj3.model.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example._citizncardproj3.model.entity.Notification;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class NotificationResponse {
+
+    private Long notificationId;
+    private String title;
+    private String content;
+    private Notification.NotificationType type;
+    private Notification.NotificationPriority priority;
+    private Boolean isRead;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime sendTime;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdAt;
+
+    // 從Notification實體轉換為DTO
+    public static NotificationResponse fromEntity(Notification notification) {
+        return NotificationResponse.builder()
+                .notificationId(notification.getNotificationId())
+                .title(notification.getTitle())
+                .content(notification.getContent())
+                .type(notification.getType())
+                .priority(notification.getPriority())
+                .isRead(notification.getIsRead())
+                .sendTime(notification.getSendTime())
+                .createdAt(notification.getCreatedAt())
+                .build();
+    }
+}
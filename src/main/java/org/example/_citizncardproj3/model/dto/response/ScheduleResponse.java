@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.example._citizncardproj3.model.dto.projection.ScheduleListView;
 import org.example._citizncardproj3.model.entity.MovieSchedule;
 
 import java.time.LocalDateTime;
@@ -215,4 +216,23 @@ public class ScheduleResponse {
         this.message = message;
     }
 
+    /**
+     * 由列表投影建立響應
+     */
+    public static ScheduleResponse fromView(ScheduleListView view) {
+        return ScheduleResponse.builder()
+                .scheduleId(view.getScheduleId())
+                .movieId(view.getMovieId())
+                .movieName(view.getMovieName())
+                .venueId(view.getVenueId())
+                .venueName(view.getVenueName())
+                .roomNumber(view.getRoomNumber())
+                .showTime(view.getShowTime())
+                .endTime(view.getEndDateTime())
+                .basePrice(view.getBasePrice())
+                .availableSeats(view.getAvailableSeats())
+                .totalSeats(view.getTotalSeats())
+                .status(view.getStatus())
+                .build();
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package org.example._citizncardproj3.model.entity;
 
 import lombok.*;
+import org.example._citizncardproj3.util.IdGenerator;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -10,15 +11,27 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "Bookings")
+@Table(name = "Bookings", indexes = {
+        @Index(name = "IX_Bookings_Status_BookingID", columnList = "Status, BookingID"),
+        @Index(name = "IX_Bookings_Member_CreatedAt", columnList = "MemberID, CreatedAt, BookingID")
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Booking {
 
+    // 訂票ID分配表與每次分配的區段大小，啟動時由 BookingIdSeedConfig 依既有資料校正
+    public static final String ID_GENERATOR_TABLE = "IdGenerators";
+    public static final String ID_GENERATOR_KEY = "Bookings";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // 使用表格分配的ID區段，讓訂票寫入可批次執行
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "BookingIdGenerator")
+    @TableGenerator(name = "BookingIdGenerator", table = ID_GENERATOR_TABLE,
+            pkColumnName = "GeneratorName", valueColumnName = "NextValue",
+            pkColumnValue = ID_GENERATOR_KEY, allocationSize = ID_ALLOCATION_SIZE)
     @Column(name = "BookingID")
     private Long bookingId;
 
@@ -151,7 +164,7 @@ public class Booking {
     }
 
     private String generateBookingNumber() {
-        return "BK" + System.currentTimeMillis();
+        return IdGenerator.nextCode("BK");
     }
 
     public void calculateTotalAmount() {
@@ -1,6 +1,7 @@
 package org.example._citizncardproj3.model.entity;
 
 import lombok.*;
+import org.example._citizncardproj3.util.IdGenerator;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -111,7 +112,7 @@ public class CitizenCard {
             case STUDENT -> "ST";
             default -> "GN";
         };
-        return prefix + System.currentTimeMillis();
+        return IdGenerator.nextCode(prefix);
     }
 
     // 業務方法
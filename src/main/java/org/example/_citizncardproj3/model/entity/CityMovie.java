@@ -1,6 +1,7 @@
 package org.example._citizncardproj3.model.entity;
 
 import lombok.*;
+import org.example._citizncardproj3.util.IdGenerator;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -123,7 +124,7 @@ public class CityMovie {
 
     // 生成電影代碼
     private String generateMovieCode() {
-        return "MV" + System.currentTimeMillis();
+        return IdGenerator.nextCode("MV");
     }
 
     // 業務方法
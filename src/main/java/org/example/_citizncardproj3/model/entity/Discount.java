@@ -55,6 +55,15 @@ public class Discount {
     @Column(name = "UsageLimit")
     private Integer usageLimit;
 
+    // 已兌換次數，只由條件式 UPDATE 原子地增減，實體更新時不寫入以免覆蓋
+    @Builder.Default
+    @Column(name = "UsedCount", nullable = false, updatable = false, columnDefinition = "INT DEFAULT 0")
+    private Integer usedCount = 0;
+
+    // 額度分片數，為空時以 UsedCount 原子計數；分片模式下 UsedCount 由分片定期彙總
+    @Column(name = "QuotaShards")
+    private Integer quotaShards;
+
     @CreationTimestamp
     @Column(name = "CreatedAt", nullable = false)
     private LocalDateTime createdAt;
@@ -75,6 +84,8 @@ public class Discount {
     @Column(name = "DeletedAt")
     private LocalDateTime deletedAt;
 
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(mappedBy = "discount")
     private List<DiscountUsage> usageHistory;
 
@@ -100,6 +111,9 @@ public class Discount {
         if (this.isDeleted == null) {
             this.isDeleted = false;
         }
+        if (this.usedCount == null) {
+            this.usedCount = 0;
+        }
     }
 
     // 業務方法
@@ -140,12 +154,22 @@ public class Discount {
             return false;
         }
 
-        return usageLimit == null || getUsageCount() < usageLimit;
+        return !isExhausted();
+    }
+
+    // 是否已達使用上限；分片模式的計數會延遲數秒，是否兌換完畢以兌換時的分片更新為準
+    public boolean isExhausted() {
+        return usageLimit != null && !isQuotaSharded() && getUsageCount() >= usageLimit;
+    }
+
+    // 是否以分片額度兌換
+    public boolean isQuotaSharded() {
+        return quotaShards != null && quotaShards > 1;
     }
 
-    // 獲取使用次數
+    // 獲取使用次數（計數欄位，不載入使用紀錄）
     public int getUsageCount() {
-        return usageHistory != null ? usageHistory.size() : 0;
+        return usedCount != null ? usedCount : 0;
     }
 
     // 延長有效期
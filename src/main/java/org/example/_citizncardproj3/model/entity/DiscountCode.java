@@ -0,0 +1,65 @@
+package org.example._citizncardproj3.model.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 活動個人優惠碼
+ * 同一活動優惠（Discount）可批次發行大量一次性的優惠碼，兌換後即失效，
+ * 折扣規則與使用上限沿用所屬優惠。優惠碼以多列 INSERT 批次寫入，依發行批次下載。
+ */
+@Entity
+@Table(name = "DiscountCodes", uniqueConstraints = {
+        @UniqueConstraint(name = "UX_DiscountCodes_Code", columnNames = {"Code"})
+}, indexes = {
+        @Index(name = "IX_DiscountCodes_Batch", columnList = "BatchNo, CodeID")
+})
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiscountCode {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "CodeID")
+    private Long codeId;
+
+    @Column(name = "DiscountID", nullable = false, updatable = false)
+    private Long discountId;
+
+    @Column(name = "Code", nullable = false, updatable = false, length = 16)
+    private String code;
+
+    @Column(name = "BatchNo", nullable = false, updatable = false, length = 20)
+    private String batchNo;
+
+    // 只由條件式 UPDATE 變更
+    @Enumerated(EnumType.STRING)
+    @Column(name = "Status", nullable = false, updatable = false, length = 16)
+    private CodeStatus status;
+
+    @Column(name = "MemberID", updatable = false)
+    private Long memberId;
+
+    @Column(name = "IssuedAt", nullable = false, updatable = false)
+    private LocalDateTime issuedAt;
+
+    @Column(name = "RedeemedAt", updatable = false)
+    private LocalDateTime redeemedAt;
+
+    // 優惠碼狀態枚舉
+    @Getter
+    public enum CodeStatus {
+        ISSUED("已發行"),
+        REDEEMED("已兌換");
+
+        private final String description;
+
+        CodeStatus(String description) {
+            this.description = description;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.example._citizncardproj3.model.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+/**
+ * 優惠兌換額度分片
+ * 限量優惠的剩餘額度拆成多列，同時兌換的請求分散更新不同列，
+ * 不再集中在單一優惠列的列鎖上。各分片額度總和等於優惠的使用上限。
+ */
+@Entity
+@Table(name = "DiscountQuotaShards", uniqueConstraints = {
+        @UniqueConstraint(name = "UX_DiscountQuotaShards_Discount_Shard", columnNames = {"DiscountID", "ShardNo"})
+})
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiscountQuotaShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "ShardID")
+    private Long shardId;
+
+    @Column(name = "DiscountID", nullable = false, updatable = false)
+    private Long discountId;
+
+    @Column(name = "ShardNo", nullable = false, updatable = false)
+    private Integer shardNo;
+
+    @Column(name = "Quota", nullable = false, updatable = false)
+    private Integer quota;
+
+    // 只由條件式 UPDATE 增減
+    @Column(name = "Used", nullable = false, updatable = false)
+    private Integer used;
+}
@@ -8,7 +8,9 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "DiscountUsageHistory")
+@Table(name = "DiscountUsageHistory", indexes = {
+        @Index(name = "IX_DiscountUsageHistory_Member_Discount", columnList = "MemberID, DiscountID, Status")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -0,0 +1,46 @@
+package org.example._citizncardproj3.model.entity;
+
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 錢包分錄
+ * 只新增不修改；金額以最小貨幣單位(分)記錄，入帳為正、出帳為負。
+ */
+@Entity
+@Immutable
+@Table(name = "LedgerEntries", indexes = {
+        @Index(name = "IX_LedgerEntries_Wallet_Entry", columnList = "WalletID, EntryID")
+})
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "EntryID")
+    private Long entryId;
+
+    @Column(name = "WalletID", nullable = false, updatable = false)
+    private Long walletId;
+
+    @Column(name = "AmountMinor", nullable = false, updatable = false)
+    private Long amountMinor;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "EntryType", nullable = false, updatable = false)
+    private Transaction.TransactionType entryType;
+
+    @Column(name = "TransactionID", updatable = false)
+    private Long transactionId;
+
+    @CreationTimestamp
+    @Column(name = "CreatedAt", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -153,6 +153,16 @@ public class MovieSchedule {
         }
     }
 
+    public void updateAvailableSeats(int availableSeats) {
+        this.availableSeats = availableSeats;
+
+        if (this.availableSeats == 0) {
+            this.status = ScheduleStatus.FULL;
+        } else if (this.status == ScheduleStatus.FULL) {
+            this.status = ScheduleStatus.ON_SALE;
+        }
+    }
+
     public boolean isBookable() {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime showDateTime = LocalDateTime.of(showDate, startTime);
@@ -8,7 +8,9 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "Notifications")
+@Table(name = "Notifications", indexes = {
+        @Index(name = "IX_Notifications_Member_CreatedAt", columnList = "MemberID, CreatedAt, NotificationID")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -0,0 +1,157 @@
+package org.example._citizncardproj3.model.entity;
+
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 通知發件匣事件
+ * 與業務資料在同一交易中寫入，由轉送程序非同步轉成通知與郵件，
+ * 每個事件至少送達一次。
+ */
+@Entity
+@Table(name = "OutboxEvents", indexes = {
+        @Index(name = "IX_OutboxEvents_Status_Event", columnList = "Status, EventID")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "EventID")
+    private Long eventId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "EventType", nullable = false, updatable = false)
+    private EventType eventType;
+
+    // 事件關聯的業務編號（交易編號、訂票編號等）
+    @Column(name = "Reference", updatable = false)
+    private String reference;
+
+    @Column(name = "RecipientEmail", nullable = false, updatable = false)
+    private String recipientEmail;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "NotificationType", nullable = false, updatable = false)
+    private Notification.NotificationType notificationType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "Priority", nullable = false, updatable = false)
+    private Notification.NotificationPriority priority;
+
+    @Column(name = "Title", nullable = false, updatable = false)
+    private String title;
+
+    @Column(name = "Content", columnDefinition = "TEXT", updatable = false)
+    private String content;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "Status", nullable = false)
+    private EventStatus status;
+
+    @Column(name = "Attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "NextAttemptAt", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // 已建立的通知ID，重試時不再重複建立
+    @Column(name = "NotificationID")
+    private Long notificationId;
+
+    @Column(name = "LastError", length = 500)
+    private String lastError;
+
+    @Column(name = "PublishedAt")
+    private LocalDateTime publishedAt;
+
+    @CreationTimestamp
+    @Column(name = "CreatedAt", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // 事件類型枚舉
+    @Getter
+    public enum EventType {
+        PAYMENT_COMPLETED("支付完成"),
+        SECURITY_ACTION("安全操作"),
+        BOOKING_CONFIRMED("訂票完成");
+
+        private final String description;
+
+        EventType(String description) {
+            this.description = description;
+        }
+    }
+
+    // 事件狀態枚舉
+    @Getter
+    public enum EventStatus {
+        PENDING("待轉送"),
+        PUBLISHED("已轉送"),
+        FAILED("轉送失敗");
+
+        private final String description;
+
+        EventStatus(String description) {
+            this.description = description;
+        }
+    }
+
+    @PrePersist
+    public void prePersist() {
+        if (this.status == null) {
+            this.status = EventStatus.PENDING;
+        }
+        if (this.attempts == null) {
+            this.attempts = 0;
+        }
+        if (this.nextAttemptAt == null) {
+            this.nextAttemptAt = LocalDateTime.now();
+        }
+    }
+
+    // 業務方法
+    public boolean requiresEmail() {
+        return this.priority == Notification.NotificationPriority.URGENT ||
+                this.priority == Notification.NotificationPriority.HIGH;
+    }
+
+    public void markPublished() {
+        this.status = EventStatus.PUBLISHED;
+        this.publishedAt = LocalDateTime.now();
+        this.lastError = null;
+    }
+
+    /**
+     * 記錄一次失敗，超過次數上限後不再重試
+     */
+    public void markAttemptFailed(String error, LocalDateTime retryAt, int maxAttempts) {
+        this.attempts++;
+        this.lastError = truncate(error);
+        if (this.attempts >= maxAttempts) {
+            this.status = EventStatus.FAILED;
+        } else {
+            this.nextAttemptAt = retryAt;
+        }
+    }
+
+    /**
+     * 無法重試的失敗（例如收件會員不存在）
+     */
+    public void markFailed(String error) {
+        this.attempts++;
+        this.lastError = truncate(error);
+        this.status = EventStatus.FAILED;
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+}
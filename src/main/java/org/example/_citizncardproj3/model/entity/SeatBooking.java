@@ -8,7 +8,9 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "SeatBookings")
+@Table(name = "SeatBookings", uniqueConstraints = {
+        @UniqueConstraint(name = "UX_SeatBookings_Schedule_ActiveSeat", columnNames = {"ScheduleID", "ActiveSeatID"})
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -33,10 +35,19 @@ public class SeatBooking {
     @JoinColumn(name = "SeatID", nullable = false)
     private SeatManagement seat;
 
+    @Column(name = "SeatNumber", nullable = false, length = 10)
+    private String seatNumber;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "Status", nullable = false)
     private SeatStatus status;
 
+    // 佔用中的座位才有值，由資料庫產生；唯一約束確保同一場次的座位只有一筆有效預訂
+    @Column(name = "ActiveSeatID", insertable = false, updatable = false,
+            columnDefinition = "BIGINT GENERATED ALWAYS AS " +
+                    "(CASE WHEN Status IN ('BOOKED', 'OCCUPIED') THEN SeatID END)")
+    private Long activeSeatId;
+
     @CreationTimestamp
     @Column(name = "CreatedAt", nullable = false)
     private LocalDateTime createdAt;
@@ -1,6 +1,7 @@
 package org.example._citizncardproj3.model.entity;
 
 import lombok.*;
+import org.example._citizncardproj3.util.IdGenerator;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -8,7 +9,10 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "Transactions")
+@Table(name = "Transactions", indexes = {
+        @Index(name = "IX_Transactions_Wallet_Time", columnList = "WalletID, TransactionTime, TransactionID"),
+        @Index(name = "IX_Transactions_Status_ID", columnList = "Status, TransactionID")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -129,7 +133,7 @@ public class Transaction {
 
     // 生成交易編號
     private String generateTransactionNumber() {
-        return "TX" + System.currentTimeMillis();
+        return IdGenerator.nextCode("TX");
     }
 
     // 業務方法
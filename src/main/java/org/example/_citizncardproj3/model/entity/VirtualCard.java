@@ -1,6 +1,7 @@
 package org.example._citizncardproj3.model.entity;
 
 import lombok.*;
+import org.example._citizncardproj3.util.IdGenerator;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -88,7 +89,7 @@ public class VirtualCard {
 
     // 生成虛擬卡號
     private String generateVirtualCardNumber() {
-        return "VC" + System.currentTimeMillis();
+        return IdGenerator.nextCode("VC");
     }
 
     // 業務方法
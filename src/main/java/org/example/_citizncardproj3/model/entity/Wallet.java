@@ -24,6 +24,7 @@ public class Wallet {
     @JoinColumn(name = "MemberID", unique = true, nullable = false)
     private Member member;
 
+    // 最近一次快照時的餘額，實際餘額以分錄帳為準
     @Column(nullable = false)
     private Double balance;
 
@@ -48,16 +49,13 @@ public class Wallet {
 
     private LocalDateTime unfreezeTime;
 
+    // 交易限額；累計金額記在每日支出累計列，支付不改寫錢包資料列
     @Column(nullable = false)
     private Double dailyTransactionLimit;
 
     @Column(nullable = false)
     private Double monthlyTransactionLimit;
 
-    private Double dailyTransactionAmount;
-
-    private Double monthlyTransactionAmount;
-
     @CreationTimestamp
     private LocalDateTime createdAt;
 
@@ -67,6 +65,11 @@ public class Wallet {
     @Column(nullable = false)
     private Boolean isDeleted;
 
+    // 樂觀鎖版本，防止未持有鎖的更新覆蓋限額與狀態
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     // 錢包類型枚舉
     @Getter
     public enum WalletType {
@@ -120,51 +123,10 @@ public class Wallet {
         if (this.monthlyTransactionLimit == null) {
             this.monthlyTransactionLimit = 500000.0;
         }
-        if (this.dailyTransactionAmount == null) {
-            this.dailyTransactionAmount = 0.0;
-        }
-        if (this.monthlyTransactionAmount == null) {
-            this.monthlyTransactionAmount = 0.0;
-        }
     }
 
     // 業務方法
 
-    // 增加餘額
-    public void addBalance(Double amount) {
-        if (this.status != WalletStatus.ACTIVE) {
-            throw new IllegalStateException("錢包狀態不正常，無法增加餘額");
-        }
-        this.balance += amount;
-        this.lastTransactionTime = LocalDateTime.now();
-    }
-
-    // 扣除餘額
-    public void subtractBalance(Double amount) {
-        if (this.status != WalletStatus.ACTIVE) {
-            throw new IllegalStateException("錢包狀態不正常，無法扣除餘額");
-        }
-        if (this.balance < amount) {
-            throw new IllegalStateException("餘額不足");
-        }
-        this.balance -= amount;
-        this.lastTransactionTime = LocalDateTime.now();
-        updateTransactionLimits(amount);
-    }
-
-    // 更新交易限額
-    private void updateTransactionLimits(Double amount) {
-        this.dailyTransactionAmount += amount;
-        this.monthlyTransactionAmount += amount;
-
-        if (this.dailyTransactionAmount > this.dailyTransactionLimit) {
-            throw new IllegalStateException("已超過每日交易限額");
-        }
-        if (this.monthlyTransactionAmount > this.monthlyTransactionLimit) {
-            throw new IllegalStateException("已超過每月交易限額");
-        }
-    }
-
     // 凍結錢包
     public void freeze(String reason) {
         if (this.status == WalletStatus.ACTIVE) {
@@ -206,27 +168,12 @@ public class Wallet {
         this.pointsBalance -= points;
     }
 
-    // 重設每日交易金額
-    public void resetDailyTransactionAmount() {
-        this.dailyTransactionAmount = 0.0;
-    }
-
-    // 重設每月交易金額
-    public void resetMonthlyTransactionAmount() {
-        this.monthlyTransactionAmount = 0.0;
-    }
-
     // 檢查錢包是否可用
     public boolean isUsable() {
         return this.status == WalletStatus.ACTIVE &&
                 !this.isDeleted;
     }
 
-    // 檢查餘額是否足夠
-    public boolean hasEnoughBalance(Double amount) {
-        return this.balance >= amount;
-    }
-
     // 用於日誌記錄的方法
     public String toLogString() {
         return String.format("Wallet{id=%d, type=%s, status=%s, balance=%.2f}",
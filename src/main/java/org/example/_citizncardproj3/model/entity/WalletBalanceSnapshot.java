@@ -0,0 +1,43 @@
+package org.example._citizncardproj3.model.entity;
+
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 錢包餘額快照
+ * 記錄到某一筆分錄為止的餘額，查詢餘額時只需加總其後的分錄。
+ */
+@Entity
+@Immutable
+@Table(name = "WalletBalanceSnapshots", indexes = {
+        @Index(name = "IX_WalletBalanceSnapshots_Wallet_Entry", columnList = "WalletID, LastEntryID")
+})
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletBalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "SnapshotID")
+    private Long snapshotId;
+
+    @Column(name = "WalletID", nullable = false, updatable = false)
+    private Long walletId;
+
+    // 快照涵蓋的最後一筆分錄ID
+    @Column(name = "LastEntryID", nullable = false, updatable = false)
+    private Long lastEntryId;
+
+    @Column(name = "BalanceMinor", nullable = false, updatable = false)
+    private Long balanceMinor;
+
+    @CreationTimestamp
+    @Column(name = "CreatedAt", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,103 @@
+package org.example._citizncardproj3.model.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 錢包每日交易彙總
+ * 每個錢包、每日、每種交易類型與方向一列，交易完成時以 upsert 累加，
+ * 統計查詢只需讀取天數 × 類型筆數的資料列。金額以最小貨幣單位(分)記錄且為正數。
+ */
+@Entity
+@Table(name = "WalletDailyRollups", uniqueConstraints = {
+        @UniqueConstraint(name = "UX_WalletDailyRollups_Key",
+                columnNames = {"WalletID", "StatDate", "TransactionType", "Direction"})
+})
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "RollupID")
+    private Long rollupId;
+
+    @Column(name = "WalletID", nullable = false)
+    private Long walletId;
+
+    @Column(name = "StatDate", nullable = false)
+    private LocalDate statDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "TransactionType", nullable = false)
+    private Transaction.TransactionType transactionType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "Direction", nullable = false)
+    private Direction direction;
+
+    @Column(name = "TxCount", nullable = false)
+    private Long txCount;
+
+    @Column(name = "AmountMinor", nullable = false)
+    private Long amountMinor;
+
+    @Column(name = "MinAmountMinor", nullable = false)
+    private Long minAmountMinor;
+
+    @Column(name = "MaxAmountMinor", nullable = false)
+    private Long maxAmountMinor;
+
+    @Column(name = "UpdatedAt", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // 資金方向枚舉
+    @Getter
+    public enum Direction {
+        IN("入帳"),
+        OUT("出帳");
+
+        private final String description;
+
+        Direction(String description) {
+            this.description = description;
+        }
+    }
+
+    /**
+     * 單筆交易的增量
+     */
+    public static WalletDailyRollup increment(Long walletId, LocalDate statDate,
+                                              Transaction.TransactionType type, Direction direction,
+                                              long amountMinor) {
+        return WalletDailyRollup.builder()
+                .walletId(walletId)
+                .statDate(statDate)
+                .transactionType(type)
+                .direction(direction)
+                .txCount(1L)
+                .amountMinor(amountMinor)
+                .minAmountMinor(amountMinor)
+                .maxAmountMinor(amountMinor)
+                .build();
+    }
+
+    // 合併彙總鍵相同的增量
+    public WalletDailyRollup merge(WalletDailyRollup other) {
+        return WalletDailyRollup.builder()
+                .walletId(walletId)
+                .statDate(statDate)
+                .transactionType(transactionType)
+                .direction(direction)
+                .txCount(txCount + other.txCount)
+                .amountMinor(amountMinor + other.amountMinor)
+                .minAmountMinor(Math.min(minAmountMinor, other.minAmountMinor))
+                .maxAmountMinor(Math.max(maxAmountMinor, other.maxAmountMinor))
+                .build();
+    }
+}
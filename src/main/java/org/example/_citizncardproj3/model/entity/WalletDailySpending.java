@@ -0,0 +1,40 @@
+package org.example._citizncardproj3.model.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 錢包每日支出累計
+ * 每個錢包、每日一列，支付與轉出時以 upsert 累加，交易限額由此計算，不再改寫錢包資料列。
+ * 每月累計為當月各日的合計。金額以最小貨幣單位(分)記錄。
+ */
+@Entity
+@Table(name = "WalletDailySpendings", uniqueConstraints = {
+        @UniqueConstraint(name = "UX_WalletDailySpendings_Key", columnNames = {"WalletID", "SpendDate"})
+})
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletDailySpending {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "SpendingID")
+    private Long spendingId;
+
+    @Column(name = "WalletID", nullable = false)
+    private Long walletId;
+
+    @Column(name = "SpendDate", nullable = false)
+    private LocalDate spendDate;
+
+    @Column(name = "AmountMinor", nullable = false)
+    private Long amountMinor;
+
+    @Column(name = "UpdatedAt", nullable = false)
+    private LocalDateTime updatedAt;
+}
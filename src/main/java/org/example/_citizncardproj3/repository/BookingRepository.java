@@ -1,5 +1,6 @@
 package org.example._citizncardproj3.repository;
 
+import org.example._citizncardproj3.model.dto.projection.BookingListView;
 import org.example._citizncardproj3.model.entity.Booking;
 import org.example._citizncardproj3.model.entity.Member;
 import org.example._citizncardproj3.model.entity.MovieSchedule;
@@ -28,6 +29,32 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     // 查詢會員的所有訂票
     Page<Booking> findByMemberOrderByCreatedAtDesc(Member member, Pageable pageable);
 
+    // 查詢會員訂票列表（投影，單一查詢取得列表所需欄位）
+    @Query(value = "SELECT new org.example._citizncardproj3.model.dto.projection.BookingListView(" +
+            "b.bookingId, b.bookingNumber, m.name, m.email, mv.movieId, mv.movieName, " +
+            "s.scheduleId, s.showDate, s.startTime, v.venueName, s.roomNumber, " +
+            "b.status, b.paymentStatus, b.totalAmount, b.discountApplied, b.createdAt, b.paymentTime) " +
+            "FROM Booking b JOIN b.member m JOIN b.schedule s JOIN s.movie mv JOIN s.venue v " +
+            "WHERE m.email = :email ORDER BY b.createdAt DESC",
+            countQuery = "SELECT COUNT(b) FROM Booking b WHERE b.member.email = :email")
+    Page<BookingListView> findBookingViewsByMemberEmail(@Param("email") String email, Pageable pageable);
+
+    // 以鍵集分頁查詢會員訂票列表（取得 (createdAt, bookingId) 游標之後的資料）
+    @Query("SELECT new org.example._citizncardproj3.model.dto.projection.BookingListView(" +
+            "b.bookingId, b.bookingNumber, m.name, m.email, mv.movieId, mv.movieName, " +
+            "s.scheduleId, s.showDate, s.startTime, v.venueName, s.roomNumber, " +
+            "b.status, b.paymentStatus, b.totalAmount, b.discountApplied, b.createdAt, b.paymentTime) " +
+            "FROM Booking b JOIN b.member m JOIN b.schedule s JOIN s.movie mv JOIN s.venue v " +
+            "WHERE m.email = :email " +
+            "AND (b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.bookingId < :bookingId)) " +
+            "ORDER BY b.createdAt DESC, b.bookingId DESC")
+    List<BookingListView> findBookingViewsByMemberEmailBefore(
+            @Param("email") String email,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("bookingId") Long bookingId,
+            Pageable pageable
+    );
+
     // 查詢會員特定狀態的訂票
     Page<Booking> findByMemberAndStatusOrderByCreatedAtDesc(
             Member member,
@@ -58,6 +85,27 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
             "WHERE b.status = 'PENDING' AND b.createdAt < :timeout")
     int cancelExpiredBookings(@Param("timeout") LocalDateTime timeout);
 
+    // 以鍵集分頁查詢逾時的訂票ID（過期訂票清理用，依 Status + BookingID 索引掃描）
+    @Query("SELECT b.bookingId FROM Booking b WHERE b.status = :status " +
+            "AND b.bookingId > :afterId AND b.createdAt < :timeout " +
+            "ORDER BY b.bookingId")
+    List<Long> findExpiredBookingIds(
+            @Param("status") Booking.BookingStatus status,
+            @Param("timeout") LocalDateTime timeout,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
+    // 批次取消仍為指定狀態的訂票
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = 'CANCELLED', b.paymentStatus = 'CANCELLED', " +
+            "b.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE b.bookingId IN :bookingIds AND b.status = :status")
+    int cancelBookingsByIds(
+            @Param("bookingIds") List<Long> bookingIds,
+            @Param("status") Booking.BookingStatus status
+    );
+
     // 查詢會員在指定時間範圍內的訂票數量
     @Query("SELECT COUNT(b) FROM Booking b WHERE b.member = :member " +
             "AND b.createdAt BETWEEN :startTime AND :endTime")
@@ -1,5 +1,6 @@
 package org.example._citizncardproj3.repository;
 
+import org.example._citizncardproj3.model.dto.projection.MovieListView;
 import org.example._citizncardproj3.model.entity.CityMovie;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -46,6 +47,33 @@ public interface CityMovieRepository extends JpaRepository<CityMovie, Long> {
             "AND m.status = 'COMING_SOON' ORDER BY m.releaseDate ASC")
     List<CityMovie> findUpcomingMovies(@Param("currentDate") LocalDate currentDate);
 
+    // 電影列表投影查詢（不載入實體）
+    @Query(value = "SELECT new org.example._citizncardproj3.model.dto.projection.MovieListView(" +
+            "m.movieId, m.movieCode, m.movieName, m.duration, m.releaseDate, m.endDate, " +
+            "m.language, m.subtitle, m.director, m.cast, m.posterUrl, m.rating, m.status) " +
+            "FROM CityMovie m ",
+            countQuery = "SELECT COUNT(m) FROM CityMovie m")
+    Page<MovieListView> findMovieViews(Pageable pageable);
+
+    @Query(value = "SELECT new org.example._citizncardproj3.model.dto.projection.MovieListView(" +
+            "m.movieId, m.movieCode, m.movieName, m.duration, m.releaseDate, m.endDate, " +
+            "m.language, m.subtitle, m.director, m.cast, m.posterUrl, m.rating, m.status) " +
+            "FROM CityMovie m " +
+            "WHERE m.status = :status ORDER BY m.releaseDate DESC",
+            countQuery = "SELECT COUNT(m) FROM CityMovie m WHERE m.status = :status")
+    Page<MovieListView> findMovieViewsByStatus(@Param("status") CityMovie.MovieStatus status, Pageable pageable);
+
+    @Query(value = "SELECT new org.example._citizncardproj3.model.dto.projection.MovieListView(" +
+            "m.movieId, m.movieCode, m.movieName, m.duration, m.releaseDate, m.endDate, " +
+            "m.language, m.subtitle, m.director, m.cast, m.posterUrl, m.rating, m.status) " +
+            "FROM CityMovie m " + "WHERE " +
+            "LOWER(m.movieName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+            "LOWER(m.director) LIKE LOWER(CONCAT('%', :keyword, '%'))",
+            countQuery = "SELECT COUNT(m) FROM CityMovie m WHERE " +
+                    "LOWER(m.movieName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+                    "LOWER(m.director) LIKE LOWER(CONCAT('%', :keyword, '%'))")
+    Page<MovieListView> searchMovieViews(@Param("keyword") String keyword, Pageable pageable);
+
     // 搜索查詢
     @Query("SELECT m FROM CityMovie m WHERE " +
             "LOWER(m.movieName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
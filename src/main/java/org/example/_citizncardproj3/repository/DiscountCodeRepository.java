@@ -0,0 +1,47 @@
+package org.example._citizncardproj3.repository;
+
+import org.example._citizncardproj3.model.entity.Discount;
+import org.example._citizncardproj3.model.entity.DiscountCode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface DiscountCodeRepository extends JpaRepository<DiscountCode, Long>, DiscountCodeRepositoryCustom {
+
+    // 個人優惠碼所屬的活動優惠
+    @Query("SELECT d FROM Discount d, DiscountCode c " +
+            "WHERE c.code = :code AND c.discountId = d.discountId")
+    Optional<Discount> findDiscountByCode(@Param("code") String code);
+
+    // 指定狀態的個人優惠碼所屬的活動優惠
+    @Query("SELECT d FROM Discount d, DiscountCode c " +
+            "WHERE c.code = :code AND c.status = :status AND c.discountId = d.discountId")
+    Optional<Discount> findDiscountByCodeAndStatus(
+            @Param("code") String code,
+            @Param("status") DiscountCode.CodeStatus status
+    );
+
+    // 兌換個人優惠碼，回傳 0 表示已被兌換
+    @Modifying
+    @Query("UPDATE DiscountCode c SET c.status = :redeemed, c.memberId = :memberId, c.redeemedAt = :now " +
+            "WHERE c.code = :code AND c.status = :issued")
+    int tryRedeem(
+            @Param("code") String code,
+            @Param("memberId") Long memberId,
+            @Param("now") LocalDateTime now,
+            @Param("issued") DiscountCode.CodeStatus issued,
+            @Param("redeemed") DiscountCode.CodeStatus redeemed
+    );
+
+    default int tryRedeem(String code, Long memberId, LocalDateTime now) {
+        return tryRedeem(code, memberId, now, DiscountCode.CodeStatus.ISSUED, DiscountCode.CodeStatus.REDEEMED);
+    }
+
+    long countByBatchNo(String batchNo);
+}
@@ -0,0 +1,35 @@
+package org.example._citizncardproj3.repository;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.List;
+
+/**
+ * 個人優惠碼批次寫入與串流讀取
+ */
+public interface DiscountCodeRepositoryCustom {
+
+    /**
+     * 以多列 INSERT IGNORE 批次寫入優惠碼，與既有優惠碼重複的列會被略過
+     * @param discountId 活動優惠ID
+     * @param batchNo 發行批次編號
+     * @param codes 優惠碼
+     * @return 實際寫入筆數
+     */
+    int insertIgnore(Long discountId, String batchNo, List<String> codes);
+
+    /**
+     * 既有優惠碼總數（活動優惠碼與個人優惠碼）
+     */
+    long countAllCodes();
+
+    /**
+     * 以單向游標逐列讀取所有既有優惠碼（活動優惠碼與個人優惠碼），第 1 欄為優惠碼
+     */
+    void streamAllCodes(int fetchSize, RowCallbackHandler handler);
+
+    /**
+     * 以單向游標依寫入順序讀取發行批次的優惠碼，欄位依序為優惠碼、狀態
+     */
+    void streamBatch(String batchNo, int fetchSize, RowCallbackHandler handler);
+}
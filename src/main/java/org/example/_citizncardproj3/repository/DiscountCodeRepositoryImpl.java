@@ -0,0 +1,80 @@
+package org.example._citizncardproj3.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class DiscountCodeRepositoryImpl implements DiscountCodeRepositoryCustom {
+
+    // 單一語句最多列數，避免超過 max_allowed_packet
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private static final String ALL_CODES_SQL =
+            "SELECT Code FROM DiscountCodes UNION ALL SELECT DiscountCode FROM Discounts";
+
+    private static final String BATCH_SQL =
+            "SELECT Code, Status FROM DiscountCodes WHERE BatchNo = ? ORDER BY CodeID";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int insertIgnore(Long discountId, String batchNo, List<String> codes) {
+        if (codes.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int inserted = 0;
+
+        for (int from = 0; from < codes.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<String> chunk = codes.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, codes.size()));
+
+            StringBuilder sql = new StringBuilder(
+                    "INSERT IGNORE INTO DiscountCodes (DiscountID, Code, BatchNo, Status, IssuedAt) VALUES ");
+            List<Object> args = new ArrayList<>(chunk.size() * 5);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?, 'ISSUED', ?)" : ", (?, ?, ?, 'ISSUED', ?)");
+                Collections.addAll(args, discountId, chunk.get(i), batchNo, now);
+            }
+            inserted += jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+        return inserted;
+    }
+
+    @Override
+    public long countAllCodes() {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT (SELECT COUNT(*) FROM DiscountCodes) + (SELECT COUNT(*) FROM Discounts)", Long.class);
+        return count != null ? count : 0L;
+    }
+
+    @Override
+    public void streamAllCodes(int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    ALL_CODES_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, handler);
+    }
+
+    @Override
+    public void streamBatch(String batchNo, int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    BATCH_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setString(1, batchNo);
+            return statement;
+        }, handler);
+    }
+}
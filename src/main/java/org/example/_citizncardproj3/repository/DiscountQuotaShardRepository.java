@@ -0,0 +1,53 @@
+package org.example._citizncardproj3.repository;
+
+import org.example._citizncardproj3.model.entity.DiscountQuotaShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+@Repository
+public interface DiscountQuotaShardRepository extends JpaRepository<DiscountQuotaShard, Long> {
+
+    // 仍有剩餘額度的分片（不加鎖的快照讀取，只用來挑選要嘗試的分片）
+    @Query("SELECT s.shardNo FROM DiscountQuotaShard s " +
+            "WHERE s.discountId = :discountId AND s.used < s.quota")
+    List<Integer> findAvailableShardNos(@Param("discountId") Long discountId);
+
+    // 在指定分片兌換一次，回傳 0 表示該分片已用完
+    @Modifying
+    @Query("UPDATE DiscountQuotaShard s SET s.used = s.used + 1 " +
+            "WHERE s.discountId = :discountId AND s.shardNo = :shardNo AND s.used < s.quota")
+    int tryConsume(
+            @Param("discountId") Long discountId,
+            @Param("shardNo") Integer shardNo
+    );
+
+    // 已使用次數大於 0 的分片
+    @Query("SELECT s.shardNo FROM DiscountQuotaShard s " +
+            "WHERE s.discountId = :discountId AND s.used > 0")
+    List<Integer> findUsedShardNos(@Param("discountId") Long discountId);
+
+    // 在指定分片歸還一次
+    @Modifying
+    @Query("UPDATE DiscountQuotaShard s SET s.used = s.used - 1 " +
+            "WHERE s.discountId = :discountId AND s.shardNo = :shardNo AND s.used > 0")
+    int tryRelease(
+            @Param("discountId") Long discountId,
+            @Param("shardNo") Integer shardNo
+    );
+
+    // 重新分片前鎖定所有分片，避免進行中的兌換被遺漏
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM DiscountQuotaShard s WHERE s.discountId = :discountId ORDER BY s.shardNo")
+    List<DiscountQuotaShard> findByDiscountIdWithLock(@Param("discountId") Long discountId);
+
+    @Modifying
+    @Query("DELETE FROM DiscountQuotaShard s WHERE s.discountId = :discountId")
+    int deleteByDiscountId(@Param("discountId") Long discountId);
+}
@@ -34,10 +34,13 @@ public interface DiscountRepository extends JpaRepository<Discount, Long> {
     // 有效優惠查詢
     @Query("SELECT d FROM Discount d WHERE d.isDeleted = false " +
             "AND :currentTime BETWEEN d.validFrom AND d.validUntil " +
-            "AND (d.usageLimit IS NULL OR " +
-            "(SELECT COUNT(u) FROM DiscountUsage u WHERE u.discount = d AND u.status = 'USED') < d.usageLimit)")
+            "AND (d.usageLimit IS NULL OR d.usedCount < d.usageLimit)")
     List<Discount> findValidDiscounts(@Param("currentTime") LocalDateTime currentTime);
 
+    // 優惠快照載入：未刪除且尚未結束（含尚未開始）的優惠，有效期間與上限由快照規則判斷
+    @Query("SELECT d FROM Discount d WHERE d.isDeleted = false AND d.validUntil >= :currentTime")
+    List<Discount> findActiveForCatalog(@Param("currentTime") LocalDateTime currentTime);
+
     // 即將到期優惠查詢
     @Query("SELECT d FROM Discount d WHERE d.isDeleted = false " +
             "AND d.validUntil BETWEEN :startTime AND :endTime")
@@ -91,14 +94,54 @@ public interface DiscountRepository extends JpaRepository<Discount, Long> {
 
     // 查詢使用次數最多的優惠
     @Query("SELECT d FROM Discount d WHERE d.isDeleted = false " +
-            "ORDER BY (SELECT COUNT(u) FROM DiscountUsage u WHERE u.discount = d AND u.status = 'USED') DESC")
+            "ORDER BY d.usedCount DESC")
     List<Discount> findMostUsedDiscounts(Pageable pageable);
 
     // 查詢優惠使用次數
-    @Query("SELECT COUNT(u) FROM DiscountUsage u WHERE u.discount.discountId = :discountId " +
-            "AND u.status = 'USED'")
+    @Query("SELECT d.usedCount FROM Discount d WHERE d.discountId = :discountId")
     long getDiscountUsageCount(@Param("discountId") Long discountId);
 
+    // 兌換一次：仍有效且未達上限時計數加一，回傳 0 表示已兌換完畢或已失效
+    @Modifying
+    @Query("UPDATE Discount d SET d.usedCount = d.usedCount + 1 " +
+            "WHERE d.discountId = :discountId AND d.isDeleted = false " +
+            "AND :currentTime BETWEEN d.validFrom AND d.validUntil " +
+            "AND (d.usageLimit IS NULL OR d.usedCount < d.usageLimit)")
+    int tryRedeem(
+            @Param("discountId") Long discountId,
+            @Param("currentTime") LocalDateTime currentTime
+    );
+
+    // 取消兌換時歸還一次
+    @Modifying
+    @Query("UPDATE Discount d SET d.usedCount = d.usedCount - 1 " +
+            "WHERE d.discountId = :discountId AND d.usedCount > 0")
+    int releaseRedemption(@Param("discountId") Long discountId);
+
+    // 依使用紀錄重新計算兌換次數（欄位新增後回填或人工修正時使用）
+    @Modifying
+    @Query("UPDATE Discount d SET d.usedCount = " +
+            "(SELECT COUNT(u) FROM DiscountUsage u WHERE u.discount = d AND u.status = 'USED') " +
+            "WHERE d.quotaShards IS NULL")
+    int resyncUsedCounts();
+
+    // 分片模式：以各分片已使用次數的合計更新兌換次數
+    @Modifying
+    @Query("UPDATE Discount d SET d.usedCount = " +
+            "(SELECT COALESCE(SUM(s.used), 0) FROM DiscountQuotaShard s WHERE s.discountId = d.discountId) " +
+            "WHERE d.quotaShards IS NOT NULL")
+    int syncShardedUsedCounts();
+
+    // 設定分片模式與兌換次數（重新分片時使用，呼叫端須已鎖定優惠）
+    @Modifying
+    @Query("UPDATE Discount d SET d.quotaShards = :quotaShards, d.usedCount = :usedCount " +
+            "WHERE d.discountId = :discountId")
+    int updateQuotaShards(
+            @Param("discountId") Long discountId,
+            @Param("quotaShards") Integer quotaShards,
+            @Param("usedCount") Integer usedCount
+    );
+
 
     @Query("SELECT d FROM Discount d WHERE d.isDeleted = false ORDER BY d.validFrom DESC")
     Page<Discount> findAllActive(Pageable pageable);
@@ -14,6 +14,7 @@ import org.springframework.stereotype.Repository;
 
 import javax.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -108,6 +109,16 @@ public interface DiscountUsageRepository extends JpaRepository<DiscountUsage, Lo
             @Param("refundableTime") LocalDateTime refundableTime
     );
 
+    // 會員在多個優惠的使用次數：[優惠ID, 次數]，沒有使用紀錄的優惠不在結果中
+    @Query("SELECT du.discount.discountId, COUNT(du) FROM DiscountUsage du " +
+            "WHERE du.member = :member AND du.status = :status AND du.discount.discountId IN :discountIds " +
+            "GROUP BY du.discount.discountId")
+    List<Object[]> countByMemberAndStatusGroupByDiscount(
+            @Param("member") Member member,
+            @Param("discountIds") Collection<Long> discountIds,
+            @Param("status") DiscountUsage.UsageStatus status
+    );
+
     // 計數查詢
     long countByMemberAndDiscountAndStatus(
             Member member,
@@ -0,0 +1,48 @@
+package org.example._citizncardproj3.repository;
+
+import org.example._citizncardproj3.model.entity.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long>, LedgerEntryRepositoryCustom {
+
+    // 加總指定分錄之後的金額（快照之後的尾段）
+    @Query("SELECT COALESCE(SUM(e.amountMinor), 0) FROM LedgerEntry e " +
+            "WHERE e.walletId = :walletId AND e.entryId > :afterEntryId")
+    long sumAmountAfter(
+            @Param("walletId") Long walletId,
+            @Param("afterEntryId") Long afterEntryId
+    );
+
+    // 快照之後的尾段統計：筆數、金額合計、最後分錄ID
+    @Query("SELECT COUNT(e), COALESCE(SUM(e.amountMinor), 0), MAX(e.entryId) FROM LedgerEntry e " +
+            "WHERE e.walletId = :walletId AND e.entryId > :afterEntryId")
+    List<Object[]> summarizeAfter(
+            @Param("walletId") Long walletId,
+            @Param("afterEntryId") Long afterEntryId
+    );
+
+    // 查詢分錄區間內有異動的錢包
+    @Query("SELECT DISTINCT e.walletId FROM LedgerEntry e " +
+            "WHERE e.entryId > :afterEntryId AND e.entryId <= :upToEntryId")
+    List<Long> findWalletIdsWithEntriesBetween(
+            @Param("afterEntryId") Long afterEntryId,
+            @Param("upToEntryId") Long upToEntryId
+    );
+
+    @Query("SELECT COALESCE(MAX(e.entryId), 0) FROM LedgerEntry e")
+    long findMaxEntryId();
+
+    // 交易尚未沖銷的淨分錄：交易ID、錢包ID、分錄類型、金額合計
+    @Query("SELECT e.transactionId, e.walletId, e.entryType, SUM(e.amountMinor) FROM LedgerEntry e " +
+            "WHERE e.transactionId IN :transactionIds " +
+            "GROUP BY e.transactionId, e.walletId, e.entryType " +
+            "HAVING SUM(e.amountMinor) <> 0")
+    List<Object[]> findNetAmountsByTransactionIds(@Param("transactionIds") Collection<Long> transactionIds);
+}
@@ -0,0 +1,18 @@
+package org.example._citizncardproj3.repository;
+
+import org.example._citizncardproj3.model.entity.LedgerEntry;
+
+import java.util.List;
+
+/**
+ * 錢包分錄批次寫入
+ */
+public interface LedgerEntryRepositoryCustom {
+
+    /**
+     * 以多列 INSERT 批次寫入分錄（不回傳分錄ID）
+     * @param entries 分錄
+     * @return 寫入筆數
+     */
+    int batchInsert(List<LedgerEntry> entries);
+}
@@ -0,0 +1,46 @@
+package org.example._citizncardproj3.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example._citizncardproj3.model.entity.LedgerEntry;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class LedgerEntryRepositoryImpl implements LedgerEntryRepositoryCustom {
+
+    // 單一語句最多列數，避免超過 max_allowed_packet
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int batchInsert(List<LedgerEntry> entries) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int inserted = 0;
+
+        for (int from = 0; from < entries.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<LedgerEntry> chunk = entries.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, entries.size()));
+
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO LedgerEntries (WalletID, AmountMinor, EntryType, TransactionID, CreatedAt) VALUES ");
+            List<Object> args = new ArrayList<>(chunk.size() * 5);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+                LedgerEntry entry = chunk.get(i);
+                Collections.addAll(args, entry.getWalletId(), entry.getAmountMinor(),
+                        entry.getEntryType().name(), entry.getTransactionId(), now);
+            }
+            inserted += jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+        return inserted;
+    }
+}
@@ -1,5 +1,6 @@
 package org.example._citizncardproj3.repository;
 
+import org.example._citizncardproj3.model.dto.projection.ScheduleListView;
 import org.example._citizncardproj3.model.entity.CityMovie;
 import org.example._citizncardproj3.model.entity.MovieSchedule;
 import org.example._citizncardproj3.model.entity.Venue;
@@ -13,6 +14,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.LockModeType;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +35,40 @@ public interface MovieScheduleRepository extends JpaRepository<MovieSchedule, Lo
 
     Page<MovieSchedule> findByVenueOrderByShowTimeAsc(Venue venue, Pageable pageable);
 
+    // 場次列表投影查詢（單一查詢取得列表所需欄位）
+    @Query(value = "SELECT new org.example._citizncardproj3.model.dto.projection.ScheduleListView(" +
+            "ms.scheduleId, mv.movieId, mv.movieName, v.venueId, v.venueName, ms.roomNumber, " +
+            "ms.showDate, ms.startTime, ms.endTime, ms.basePrice, ms.availableSeats, ms.totalSeats, ms.status) " +
+            "FROM MovieSchedule ms JOIN ms.movie mv JOIN ms.venue v " +
+            "WHERE mv.movieId = :movieId ORDER BY ms.showDate ASC, ms.startTime ASC",
+            countQuery = "SELECT COUNT(ms) FROM MovieSchedule ms WHERE ms.movie.movieId = :movieId")
+    Page<ScheduleListView> findScheduleViewsByMovieId(@Param("movieId") Long movieId, Pageable pageable);
+
+    @Query("SELECT new org.example._citizncardproj3.model.dto.projection.ScheduleListView(" +
+            "ms.scheduleId, mv.movieId, mv.movieName, v.venueId, v.venueName, ms.roomNumber, " +
+            "ms.showDate, ms.startTime, ms.endTime, ms.basePrice, ms.availableSeats, ms.totalSeats, ms.status) " +
+            "FROM MovieSchedule ms JOIN ms.movie mv JOIN ms.venue v " +
+            "WHERE mv.movieId = :movieId AND ms.showDate BETWEEN :startDate AND :endDate " +
+            "AND ms.status = :status " +
+            "ORDER BY ms.showDate ASC, ms.startTime ASC")
+    List<ScheduleListView> findScheduleViewsByMovieIdAndStatus(
+            @Param("movieId") Long movieId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("status") MovieSchedule.ScheduleStatus status
+    );
+
+    @Query("SELECT new org.example._citizncardproj3.model.dto.projection.ScheduleListView(" +
+            "ms.scheduleId, mv.movieId, mv.movieName, v.venueId, v.venueName, ms.roomNumber, " +
+            "ms.showDate, ms.startTime, ms.endTime, ms.basePrice, ms.availableSeats, ms.totalSeats, ms.status) " +
+            "FROM MovieSchedule ms JOIN ms.movie mv JOIN ms.venue v " +
+            "WHERE mv.movieId = :movieId AND ms.showDate = :showDate " +
+            "ORDER BY ms.startTime ASC")
+    List<ScheduleListView> findScheduleViewsByMovieIdAndShowDate(
+            @Param("movieId") Long movieId,
+            @Param("showDate") LocalDate showDate
+    );
+
     // 複雜條件查詢
     @Query("SELECT ms FROM MovieSchedule ms WHERE ms.movie = :movie " +
             "AND ms.showDate BETWEEN :startTime AND :endTime " +
@@ -201,6 +237,38 @@ public interface MovieScheduleRepository extends JpaRepository<MovieSchedule, Lo
             @Param("availableSeats") Integer availableSeats
     );
 
+    /**
+     * 條件式扣減可用座位，座位不足時不更新；扣至0時同時標記為滿座
+     * （status 先於 availableSeats 賦值，MariaDB 由左至右計算時仍使用扣減前的座位數）
+     * @return 更新筆數，0 表示座位不足
+     */
+    @Modifying
+    @Query("UPDATE MovieSchedule ms SET " +
+            "ms.status = CASE WHEN ms.availableSeats = :count THEN :fullStatus ELSE ms.status END, " +
+            "ms.availableSeats = ms.availableSeats - :count " +
+            "WHERE ms.scheduleId = :scheduleId AND ms.availableSeats >= :count")
+    int decrementAvailableSeats(
+            @Param("scheduleId") Long scheduleId,
+            @Param("count") int count,
+            @Param("fullStatus") MovieSchedule.ScheduleStatus fullStatus
+    );
+
+    /**
+     * 條件式歸還可用座位，不超過總座位數；滿座場次恢復為售票中
+     * @return 更新筆數
+     */
+    @Modifying
+    @Query("UPDATE MovieSchedule ms SET " +
+            "ms.status = CASE WHEN ms.status = :fullStatus THEN :onSaleStatus ELSE ms.status END, " +
+            "ms.availableSeats = ms.availableSeats + :count " +
+            "WHERE ms.scheduleId = :scheduleId AND ms.availableSeats + :count <= ms.totalSeats")
+    int incrementAvailableSeats(
+            @Param("scheduleId") Long scheduleId,
+            @Param("count") int count,
+            @Param("fullStatus") MovieSchedule.ScheduleStatus fullStatus,
+            @Param("onSaleStatus") MovieSchedule.ScheduleStatus onSaleStatus
+    );
+
     /**
      * 查詢需要自動更新狀態的場次
      */
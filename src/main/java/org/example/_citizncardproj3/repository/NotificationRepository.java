@@ -27,6 +27,17 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     List<Notification> findByType(Notification.NotificationType type);
 
     // 分頁查詢
+    // 以鍵集分頁查詢會員通知（取得 (createdAt, notificationId) 游標之後的資料）
+    @Query("SELECT n FROM Notification n WHERE n.member = :member " +
+            "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.notificationId < :notificationId)) " +
+            "ORDER BY n.createdAt DESC, n.notificationId DESC")
+    List<Notification> findByMemberBefore(
+            @Param("member") Member member,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("notificationId") Long notificationId,
+            Pageable pageable
+    );
+
     Page<Notification> findByMemberOrderByCreatedAtDesc(Member member, Pageable pageable);
 
     Page<Notification> findByTypeAndIsReadOrderByCreatedAtDesc(
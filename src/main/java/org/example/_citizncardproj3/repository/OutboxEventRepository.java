@@ -0,0 +1,41 @@
+package org.example._citizncardproj3.repository;
+
+import org.example._citizncardproj3.model.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // 鎖定一批到期的待轉送事件，略過其他轉送程序已鎖定的資料列（SKIP LOCKED）
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.status = :status " +
+            "AND e.nextAttemptAt <= :now ORDER BY e.eventId")
+    List<OutboxEvent> findDueEventsForUpdate(
+            @Param("status") OutboxEvent.EventStatus status,
+            @Param("now") LocalDateTime now,
+            Pageable pageable
+    );
+
+    long countByStatus(OutboxEvent.EventStatus status);
+
+    // 清除已轉送的舊事件
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = :status AND e.publishedAt < :before")
+    int deletePublishedBefore(
+            @Param("status") OutboxEvent.EventStatus status,
+            @Param("before") LocalDateTime before
+    );
+}
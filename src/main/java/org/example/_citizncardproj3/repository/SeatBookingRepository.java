@@ -13,11 +13,12 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface SeatBookingRepository extends JpaRepository<SeatBooking, Long> {
+public interface SeatBookingRepository extends JpaRepository<SeatBooking, Long>, SeatBookingRepositoryCustom {
 
     // 基本查詢方法
     List<SeatBooking> findByBooking(Booking booking);
@@ -58,6 +59,25 @@ public interface SeatBookingRepository extends JpaRepository<SeatBooking, Long>
             "AND sb.status = 'BOOKED'")
     long countBookedSeats(@Param("schedule") MovieSchedule schedule);
 
+    // 查詢場次特定狀態的座位號碼（座位位圖載入用）
+    @Query("SELECT sb.seatNumber FROM SeatBooking sb " +
+            "WHERE sb.schedule.scheduleId = :scheduleId AND sb.status IN :statuses")
+    List<String> findSeatNumbersByScheduleIdAndStatusIn(
+            @Param("scheduleId") Long scheduleId,
+            @Param("statuses") List<SeatBooking.SeatStatus> statuses
+    );
+
+    // 批次查詢多筆訂票的座位號碼，每列為 [bookingId, seatNumber]
+    @Query("SELECT sb.booking.bookingId, sb.seatNumber FROM SeatBooking sb " +
+            "WHERE sb.booking.bookingId IN :bookingIds ORDER BY sb.seatNumber")
+    List<Object[]> findSeatNumbersByBookingIds(@Param("bookingIds") Collection<Long> bookingIds);
+
+    // 查詢已取消訂票中仍佔用的座位，每列為 [bookingId, scheduleId, seatNumber]
+    @Query("SELECT sb.booking.bookingId, sb.schedule.scheduleId, sb.seatNumber FROM SeatBooking sb " +
+            "WHERE sb.booking.bookingId IN :bookingIds " +
+            "AND sb.booking.status = 'CANCELLED' AND sb.status = 'BOOKED'")
+    List<Object[]> findHeldSeatsOfCancelledBookings(@Param("bookingIds") List<Long> bookingIds);
+
     // 更新操作
     @Modifying
     @Query("UPDATE SeatBooking sb SET sb.status = :newStatus " +
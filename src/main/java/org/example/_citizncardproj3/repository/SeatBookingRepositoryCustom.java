@@ -0,0 +1,30 @@
+package org.example._citizncardproj3.repository;
+
+import org.example._citizncardproj3.model.entity.SeatBooking;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 座位預訂批次寫入
+ */
+public interface SeatBookingRepositoryCustom {
+
+    /**
+     * 以多列INSERT批次新增座位預訂
+     * @param bookingId 訂票ID
+     * @param scheduleId 場次ID
+     * @param seatIds 座位號碼與座位ID對照
+     * @param status 座位狀態
+     * @return 新增筆數
+     */
+    int batchInsert(Long bookingId, Long scheduleId, Map<String, Long> seatIds, SeatBooking.SeatStatus status);
+
+    /**
+     * 批次更新多筆訂票的座位狀態
+     * @param bookingIds 訂票ID列表
+     * @param status 新狀態
+     * @return 更新筆數
+     */
+    int batchUpdateStatus(Collection<Long> bookingIds, SeatBooking.SeatStatus status);
+}
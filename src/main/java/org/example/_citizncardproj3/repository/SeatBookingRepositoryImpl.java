@@ -0,0 +1,75 @@
+package org.example._citizncardproj3.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example._citizncardproj3.model.entity.SeatBooking;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class SeatBookingRepositoryImpl implements SeatBookingRepositoryCustom {
+
+    // 單一語句最多列數，避免超過 max_allowed_packet
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int batchInsert(Long bookingId, Long scheduleId, Map<String, Long> seatIds, SeatBooking.SeatStatus status) {
+        if (seatIds.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map.Entry<String, Long>> seats = new ArrayList<>(seatIds.entrySet());
+        int inserted = 0;
+
+        for (int from = 0; from < seats.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Map.Entry<String, Long>> chunk =
+                    seats.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, seats.size()));
+
+            StringBuilder sql = new StringBuilder("INSERT INTO SeatBookings " +
+                    "(BookingID, ScheduleID, SeatID, SeatNumber, Status, CreatedAt, UpdatedAt) VALUES ");
+            List<Object> args = new ArrayList<>(chunk.size() * 7);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?, ?)");
+                Map.Entry<String, Long> seat = chunk.get(i);
+                Collections.addAll(args, bookingId, scheduleId, seat.getValue(), seat.getKey(),
+                        status.name(), now, now);
+            }
+            inserted += jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+        return inserted;
+    }
+
+    @Override
+    public int batchUpdateStatus(Collection<Long> bookingIds, SeatBooking.SeatStatus status) {
+        if (bookingIds.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(bookingIds);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int updated = 0;
+
+        for (int from = 0; from < ids.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, ids.size()));
+
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            List<Object> args = new ArrayList<>(chunk.size() + 2);
+            args.add(status.name());
+            args.add(now);
+            args.addAll(chunk);
+            updated += jdbcTemplate.update(
+                    "UPDATE SeatBookings SET Status = ?, UpdatedAt = ? WHERE BookingID IN (" + placeholders + ")",
+                    args.toArray());
+        }
+        return updated;
+    }
+}
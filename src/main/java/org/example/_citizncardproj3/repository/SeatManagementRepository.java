@@ -127,6 +127,14 @@ public interface SeatManagementRepository extends JpaRepository<SeatManagement,
             @Param("row") String row
     );
 
+    // 查詢場次所在場地的座位配置（座位位圖載入用）
+    @Query("SELECT sm.seatId, sm.seatLabel, sm.status, sm.isActive, sm.seatRow, sm.seatColumn, sm.seatZone " +
+            "FROM SeatManagement sm, MovieSchedule ms " +
+            "WHERE ms.scheduleId = :scheduleId AND sm.venue = ms.venue " +
+            "AND sm.isDeleted = false " +
+            "ORDER BY sm.seatId")
+    List<Object[]> findSeatLayoutBySchedule(@Param("scheduleId") Long scheduleId);
+
     // 軟刪除
     @Modifying
     @Query("UPDATE SeatManagement sm SET sm.isDeleted = true " +
@@ -13,11 +13,12 @@ import org.springframework.stereotype.Repository;
 
 import javax.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom {
 
     // 基本查詢方法
     Optional<Transaction> findByTransactionNumber(String transactionNumber);
@@ -29,6 +30,18 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     List<Transaction> findByStatus(Transaction.TransactionStatus status);
 
     // 分頁查詢
+    // 以鍵集分頁查詢錢包交易（取得 (transactionTime, transactionId) 游標之後的資料）
+    @Query("SELECT t FROM Transaction t WHERE t.wallet = :wallet " +
+            "AND (t.transactionTime < :transactionTime " +
+            "OR (t.transactionTime = :transactionTime AND t.transactionId < :transactionId)) " +
+            "ORDER BY t.transactionTime DESC, t.transactionId DESC")
+    List<Transaction> findByWalletBefore(
+            @Param("wallet") Wallet wallet,
+            @Param("transactionTime") LocalDateTime transactionTime,
+            @Param("transactionId") Long transactionId,
+            Pageable pageable
+    );
+
     Page<Transaction> findByWalletOrderByTransactionTimeDesc(
             Wallet wallet,
             Pageable pageable
@@ -57,12 +70,6 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
             @Param("timeout") LocalDateTime timeout
     );
 
-    // 統計查詢
-    @Query("SELECT t.type, COUNT(t), SUM(t.amount) FROM Transaction t " +
-            "WHERE t.wallet = :wallet AND t.status = 'COMPLETED' " +
-            "GROUP BY t.type")
-    List<Object[]> getTransactionStatistics(@Param("wallet") Wallet wallet);
-
     @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.wallet = :wallet " +
             "AND t.type = :type AND t.status = 'COMPLETED'")
     Double calculateTotalAmount(
@@ -80,10 +87,40 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     );
 
     // 批量操作
+    // 以鍵集分頁查詢逾時交易ID
+    @Query("SELECT t.transactionId FROM Transaction t WHERE t.status = :status " +
+            "AND t.transactionTime < :timeout AND t.transactionId > :afterId " +
+            "ORDER BY t.transactionId")
+    List<Long> findTimedOutTransactionIds(
+            @Param("status") Transaction.TransactionStatus status,
+            @Param("timeout") LocalDateTime timeout,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
+    @Query("SELECT DISTINCT t.wallet.walletId FROM Transaction t WHERE t.transactionId IN :transactionIds")
+    List<Long> findWalletIdsByTransactionIds(@Param("transactionIds") Collection<Long> transactionIds);
+
+    // 鎖定仍為指定狀態的交易
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.transactionId IN :transactionIds " +
+            "AND t.status = :status ORDER BY t.transactionId")
+    List<Transaction> findByIdsAndStatusWithLock(
+            @Param("transactionIds") Collection<Long> transactionIds,
+            @Param("status") Transaction.TransactionStatus status
+    );
+
+    // 以狀態條件批次更新，期間已變更狀態的交易不受影響
     @Modifying
-    @Query("UPDATE Transaction t SET t.status = 'FAILED' " +
-            "WHERE t.status = 'PENDING' AND t.transactionTime < :timeout")
-    int cancelTimeoutTransactions(@Param("timeout") LocalDateTime timeout);
+    @Query("UPDATE Transaction t SET t.status = :newStatus, t.statusMessage = :message, " +
+            "t.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE t.transactionId IN :transactionIds AND t.status = :currentStatus")
+    int updateStatusByIds(
+            @Param("transactionIds") Collection<Long> transactionIds,
+            @Param("currentStatus") Transaction.TransactionStatus currentStatus,
+            @Param("newStatus") Transaction.TransactionStatus newStatus,
+            @Param("message") String message
+    );
 
     // 使用悲觀鎖查詢
     @Lock(LockModeType.PESSIMISTIC_WRITE)
@@ -107,13 +144,6 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     @Query("SELECT t FROM Transaction t WHERE t.relatedBooking.bookingId = :bookingId")
     Optional<Transaction> findByBookingId(@Param("bookingId") Long bookingId);
 
-    // 查詢每日交易統計
-    @Query("SELECT DATE(t.transactionTime), COUNT(t), SUM(t.amount) " +
-            "FROM Transaction t WHERE t.wallet = :wallet " +
-            "AND t.status = 'COMPLETED' " +
-            "GROUP BY DATE(t.transactionTime)")
-    List<Object[]> getDailyTransactionStats(@Param("wallet") Wallet wallet);
-
     // 查詢可退款的交易
     @Query("SELECT t FROM Transaction t WHERE t.status = 'COMPLETED' " +
             "AND t.type = 'PAYMENT' AND t.transactionTime > :refundableTime")
@@ -0,0 +1,32 @@
+package org.example._citizncardproj3.repository;
+
+import org.example._citizncardproj3.model.entity.Transaction;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 交易明細串流查詢與批次寫入
+ */
+public interface TransactionRepositoryCustom {
+
+    /**
+     * 以單向游標依時間順序逐列讀取錢包交易，資料不會整批載入記憶體
+     * @param walletId 錢包ID
+     * @param startTime 開始時間（含）
+     * @param endTime 結束時間（含）
+     * @param fetchSize 每次從資料庫取回的列數
+     * @param handler 逐列處理
+     */
+    void streamWalletTransactions(Long walletId, LocalDateTime startTime, LocalDateTime endTime,
+                                  int fetchSize, RowCallbackHandler handler);
+
+    /**
+     * 以多列 INSERT 批次寫入交易，再依交易編號查回交易ID並設定回傳入的物件
+     * 交易必須已設定錢包、編號、狀態、付款方式與交易時間
+     * @param transactions 交易
+     * @return 寫入筆數
+     */
+    int batchInsert(List<Transaction> transactions);
+}
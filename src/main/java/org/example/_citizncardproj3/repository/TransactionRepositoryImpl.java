@@ -0,0 +1,88 @@
+package org.example._citizncardproj3.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example._citizncardproj3.model.entity.Transaction;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
+
+    // 依 IX_Transactions_Wallet_Time 索引順序讀取
+    private static final String STATEMENT_SQL = "SELECT TransactionID, TransactionNumber, TransactionTime, " +
+            "TransactionType, Status, PaymentMethod, Amount, Description " +
+            "FROM Transactions WHERE WalletID = ? AND TransactionTime BETWEEN ? AND ? " +
+            "ORDER BY TransactionTime, TransactionID";
+
+    // 單一語句最多列數，避免超過 max_allowed_packet
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void streamWalletTransactions(Long walletId, LocalDateTime startTime, LocalDateTime endTime,
+                                         int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    STATEMENT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // 設定 fetch size 後驅動程式改為分段串流結果，不再一次緩衝整個結果集
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, walletId);
+            statement.setTimestamp(2, Timestamp.valueOf(startTime));
+            statement.setTimestamp(3, Timestamp.valueOf(endTime));
+            return statement;
+        }, handler);
+    }
+
+    @Override
+    public int batchInsert(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<String, Transaction> byNumber = new HashMap<>();
+        int inserted = 0;
+
+        for (int from = 0; from < transactions.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Transaction> chunk =
+                    transactions.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, transactions.size()));
+
+            StringBuilder sql = new StringBuilder("INSERT INTO Transactions " +
+                    "(TransactionNumber, WalletID, Amount, TransactionType, PaymentMethod, Status, " +
+                    "Description, TransactionTime, CreatedAt, UpdatedAt) VALUES ");
+            StringBuilder numbers = new StringBuilder();
+            List<Object> args = new ArrayList<>(chunk.size() * 10);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                numbers.append(i == 0 ? "?" : ", ?");
+                Transaction transaction = chunk.get(i);
+                byNumber.put(transaction.getTransactionNumber(), transaction);
+                Collections.addAll(args, transaction.getTransactionNumber(),
+                        transaction.getWallet().getWalletId(), transaction.getAmount(),
+                        transaction.getType().name(), transaction.getPaymentMethod().name(),
+                        transaction.getStatus().name(), transaction.getDescription(),
+                        Timestamp.valueOf(transaction.getTransactionTime()), now, now);
+            }
+            inserted += jdbcTemplate.update(sql.toString(), args.toArray());
+
+            // 自動遞增ID在多列 INSERT 下不保證連續，以唯一的交易編號查回
+            Object[] numberArgs = chunk.stream().map(Transaction::getTransactionNumber).toArray();
+            jdbcTemplate.query("SELECT TransactionNumber, TransactionID FROM Transactions " +
+                            "WHERE TransactionNumber IN (" + numbers + ")",
+                    (RowCallbackHandler) rs -> byNumber.get(rs.getString(1)).setTransactionId(rs.getLong(2)),
+                    numberArgs);
+        }
+        return inserted;
+    }
+}
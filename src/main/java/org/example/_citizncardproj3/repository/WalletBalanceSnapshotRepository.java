@@ -0,0 +1,29 @@
+package org.example._citizncardproj3.repository;
+
+import org.example._citizncardproj3.model.entity.WalletBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface WalletBalanceSnapshotRepository extends JpaRepository<WalletBalanceSnapshot, Long> {
+
+    // 錢包最新的快照
+    Optional<WalletBalanceSnapshot> findFirstByWalletIdOrderByLastEntryIdDesc(Long walletId);
+
+    @Query("SELECT COALESCE(MAX(s.lastEntryId), 0) FROM WalletBalanceSnapshot s")
+    long findMaxLastEntryId();
+
+    // 刪除被新快照取代的舊快照
+    @Modifying
+    @Query("DELETE FROM WalletBalanceSnapshot s " +
+            "WHERE s.walletId = :walletId AND s.lastEntryId < :lastEntryId")
+    int deleteOlderSnapshots(
+            @Param("walletId") Long walletId,
+            @Param("lastEntryId") Long lastEntryId
+    );
+}
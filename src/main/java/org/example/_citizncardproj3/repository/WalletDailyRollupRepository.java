@@ -0,0 +1,25 @@
+package org.example._citizncardproj3.repository;
+
+import org.example._citizncardproj3.model.entity.WalletDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface WalletDailyRollupRepository extends JpaRepository<WalletDailyRollup, Long>, WalletDailyRollupRepositoryCustom {
+
+    List<WalletDailyRollup> findByWalletIdAndStatDateBetweenOrderByStatDateAsc(
+            Long walletId,
+            LocalDate startDate,
+            LocalDate endDate
+    );
+
+    // 依交易類型彙總：類型、筆數、金額合計(分)
+    @Query("SELECT r.transactionType, SUM(r.txCount), SUM(r.amountMinor) FROM WalletDailyRollup r " +
+            "WHERE r.walletId = :walletId GROUP BY r.transactionType")
+    List<Object[]> sumByTransactionType(@Param("walletId") Long walletId);
+}
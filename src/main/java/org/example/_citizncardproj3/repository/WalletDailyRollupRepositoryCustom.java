@@ -0,0 +1,26 @@
+package org.example._citizncardproj3.repository;
+
+import org.example._citizncardproj3.model.entity.WalletDailyRollup;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 錢包每日彙總的累加與重建
+ */
+public interface WalletDailyRollupRepositoryCustom {
+
+    /**
+     * 以 INSERT ... ON DUPLICATE KEY UPDATE 累加增量
+     * @param increments 已依彙總鍵合併並排序的增量
+     * @return 影響列數
+     */
+    int upsertIncrements(List<WalletDailyRollup> increments);
+
+    /**
+     * 由成功交易及其分錄重新計算單日彙總，沒有分錄的舊交易以交易金額計算
+     * @param statDate 統計日期
+     * @return 重建後的彙總列數
+     */
+    int rebuildDay(LocalDate statDate);
+}
@@ -0,0 +1,93 @@
+package org.example._citizncardproj3.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example._citizncardproj3.model.entity.WalletDailyRollup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class WalletDailyRollupRepositoryImpl implements WalletDailyRollupRepositoryCustom {
+
+    // 單一語句最多列數，避免超過 max_allowed_packet
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private static final String UPSERT_UPDATE = " ON DUPLICATE KEY UPDATE " +
+            "TxCount = TxCount + VALUES(TxCount), " +
+            "AmountMinor = AmountMinor + VALUES(AmountMinor), " +
+            "MinAmountMinor = LEAST(MinAmountMinor, VALUES(MinAmountMinor)), " +
+            "MaxAmountMinor = GREATEST(MaxAmountMinor, VALUES(MaxAmountMinor)), " +
+            "UpdatedAt = VALUES(UpdatedAt)";
+
+    // 有分錄的交易以分錄正負判斷方向；分錄帳上線前的交易沒有分錄，改由交易金額與類型計算，
+    // 方向與 TransactionRollups.directionOf 相同。沖銷後的失敗交易不是 SUCCESS，不會計入
+    private static final String REBUILD_SQL = "INSERT INTO WalletDailyRollups " +
+            "(WalletID, StatDate, TransactionType, Direction, TxCount, AmountMinor, MinAmountMinor, MaxAmountMinor, UpdatedAt) " +
+            "SELECT s.WalletID, ?, s.TransactionType, s.Direction, " +
+            "COUNT(*), SUM(s.AmountMinor), MIN(s.AmountMinor), MAX(s.AmountMinor), ? " +
+            "FROM (" +
+            "SELECT e.WalletID, t.TransactionType, " +
+            "CASE WHEN e.AmountMinor < 0 THEN 'OUT' ELSE 'IN' END AS Direction, ABS(e.AmountMinor) AS AmountMinor " +
+            "FROM LedgerEntries e JOIN Transactions t ON t.TransactionID = e.TransactionID " +
+            "WHERE t.Status = 'SUCCESS' AND t.TransactionTime >= ? AND t.TransactionTime < ? " +
+            "UNION ALL " +
+            "SELECT t.WalletID, t.TransactionType, " +
+            "CASE WHEN t.TransactionType IN ('DEPOSIT', 'REFUND') THEN 'IN' ELSE 'OUT' END, " +
+            "ROUND(t.Amount * 100) " +
+            "FROM Transactions t " +
+            "WHERE t.Status = 'SUCCESS' AND t.TransactionTime >= ? AND t.TransactionTime < ? " +
+            "AND NOT EXISTS (SELECT 1 FROM LedgerEntries e WHERE e.TransactionID = t.TransactionID)" +
+            ") s " +
+            "GROUP BY s.WalletID, s.TransactionType, s.Direction";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int upsertIncrements(List<WalletDailyRollup> increments) {
+        if (increments.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int affected = 0;
+
+        for (int from = 0; from < increments.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<WalletDailyRollup> chunk =
+                    increments.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, increments.size()));
+
+            StringBuilder sql = new StringBuilder("INSERT INTO WalletDailyRollups " +
+                    "(WalletID, StatDate, TransactionType, Direction, TxCount, AmountMinor, " +
+                    "MinAmountMinor, MaxAmountMinor, UpdatedAt) VALUES ");
+            List<Object> args = new ArrayList<>(chunk.size() * 9);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                WalletDailyRollup increment = chunk.get(i);
+                Collections.addAll(args, increment.getWalletId(), Date.valueOf(increment.getStatDate()),
+                        increment.getTransactionType().name(), increment.getDirection().name(),
+                        increment.getTxCount(), increment.getAmountMinor(),
+                        increment.getMinAmountMinor(), increment.getMaxAmountMinor(), now);
+            }
+            sql.append(UPSERT_UPDATE);
+            affected += jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+        return affected;
+    }
+
+    @Override
+    public int rebuildDay(LocalDate statDate) {
+        jdbcTemplate.update("DELETE FROM WalletDailyRollups WHERE StatDate = ?", Date.valueOf(statDate));
+        Timestamp dayStart = Timestamp.valueOf(statDate.atStartOfDay());
+        Timestamp dayEnd = Timestamp.valueOf(statDate.plusDays(1).atStartOfDay());
+        return jdbcTemplate.update(REBUILD_SQL,
+                Date.valueOf(statDate),
+                Timestamp.valueOf(LocalDateTime.now()),
+                dayStart, dayEnd,
+                dayStart, dayEnd);
+    }
+}
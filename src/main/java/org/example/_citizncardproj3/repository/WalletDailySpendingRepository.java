@@ -0,0 +1,31 @@
+package org.example._citizncardproj3.repository;
+
+import org.example._citizncardproj3.model.entity.WalletDailySpending;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WalletDailySpendingRepository extends JpaRepository<WalletDailySpending, Long>, WalletDailySpendingRepositoryCustom {
+
+    // 當日與當月累計：錢包ID、當日金額(分)、當月金額(分)
+    @Query("SELECT s.walletId, SUM(CASE WHEN s.spendDate = :today THEN s.amountMinor ELSE 0L END), " +
+            "SUM(s.amountMinor) FROM WalletDailySpending s " +
+            "WHERE s.walletId IN :walletIds AND s.spendDate >= :monthStart AND s.spendDate <= :today " +
+            "GROUP BY s.walletId")
+    List<Object[]> sumByWalletIds(
+            @Param("walletIds") Collection<Long> walletIds,
+            @Param("monthStart") LocalDate monthStart,
+            @Param("today") LocalDate today
+    );
+
+    @Modifying
+    @Query("DELETE FROM WalletDailySpending s WHERE s.spendDate < :date")
+    int deleteBySpendDateBefore(@Param("date") LocalDate date);
+}
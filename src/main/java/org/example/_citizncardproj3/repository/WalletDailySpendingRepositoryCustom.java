@@ -0,0 +1,18 @@
+package org.example._citizncardproj3.repository;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * 錢包每日支出累計的累加
+ */
+public interface WalletDailySpendingRepositoryCustom {
+
+    /**
+     * 以 INSERT ... ON DUPLICATE KEY UPDATE 累加當日支出
+     * @param spendDate 支出日期
+     * @param amountMinorByWallet 錢包ID對應的支出金額(分)，依錢包ID排序
+     * @return 影響列數
+     */
+    int addAmounts(LocalDate spendDate, Map<Long, Long> amountMinorByWallet);
+}
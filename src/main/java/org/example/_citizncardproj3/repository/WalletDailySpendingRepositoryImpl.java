@@ -0,0 +1,51 @@
+package org.example._citizncardproj3.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class WalletDailySpendingRepositoryImpl implements WalletDailySpendingRepositoryCustom {
+
+    // 單一語句最多列數，避免超過 max_allowed_packet
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int addAmounts(LocalDate spendDate, Map<Long, Long> amountMinorByWallet) {
+        if (amountMinorByWallet.isEmpty()) {
+            return 0;
+        }
+
+        Date date = Date.valueOf(spendDate);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(amountMinorByWallet.entrySet());
+        int affected = 0;
+
+        for (int from = 0; from < entries.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Map.Entry<Long, Long>> chunk =
+                    entries.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, entries.size()));
+
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO WalletDailySpendings (WalletID, SpendDate, AmountMinor, UpdatedAt) VALUES ");
+            List<Object> args = new ArrayList<>(chunk.size() * 4);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+                Collections.addAll(args, chunk.get(i).getKey(), date, chunk.get(i).getValue(), now);
+            }
+            sql.append(" ON DUPLICATE KEY UPDATE AmountMinor = AmountMinor + VALUES(AmountMinor), " +
+                    "UpdatedAt = VALUES(UpdatedAt)");
+            affected += jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+        return affected;
+    }
+}
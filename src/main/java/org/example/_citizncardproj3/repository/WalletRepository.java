@@ -13,6 +13,7 @@ import org.springframework.stereotype.Repository;
 
 import javax.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +23,9 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     // 基本查詢方法
     Optional<Wallet> findByMember(Member member);
 
+    @Query("SELECT w.walletId FROM Wallet w WHERE w.member.email = :email")
+    Optional<Long> findWalletIdByMemberEmail(@Param("email") String email);
+
     List<Wallet> findByWalletType(Wallet.WalletType walletType);
 
     List<Wallet> findByStatus(Wallet.WalletStatus status);
@@ -45,29 +49,22 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
             "AND w.status = 'ACTIVE'")
     List<Wallet> findWalletsWithLowBalance(@Param("threshold") Double threshold);
 
-    // 統計查詢
+    // 統計查詢（餘額為最近一次快照時寫入的快取值，不含之後的分錄）
     @Query("SELECT w.walletType, COUNT(w), SUM(w.balance) FROM Wallet w " +
             "GROUP BY w.walletType")
     List<Object[]> getWalletStatistics();
 
+    // 同上，為快照時的快取餘額合計
     @Query("SELECT SUM(w.balance) FROM Wallet w WHERE w.status = 'ACTIVE'")
     Double getTotalActiveBalance();
 
     // 更新操作
+    // 以快照餘額更新錢包餘額欄位（報表用，實際餘額以分錄為準）
     @Modifying
-    @Query("UPDATE Wallet w SET w.balance = w.balance + :amount " +
-            "WHERE w.walletId = :walletId")
-    int addBalance(
+    @Query("UPDATE Wallet w SET w.balance = :balance WHERE w.walletId = :walletId")
+    int updateCachedBalance(
             @Param("walletId") Long walletId,
-            @Param("amount") Double amount
-    );
-
-    @Modifying
-    @Query("UPDATE Wallet w SET w.balance = w.balance - :amount " +
-            "WHERE w.walletId = :walletId AND w.balance >= :amount")
-    int subtractBalance(
-            @Param("walletId") Long walletId,
-            @Param("amount") Double amount
+            @Param("balance") Double balance
     );
 
     @Modifying
@@ -84,11 +81,20 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
             "WHERE w.balance < :minBalance AND w.status = 'ACTIVE'")
     int freezeLowBalanceWallets(@Param("minBalance") Double minBalance);
 
-    // 使用悲觀鎖查詢
+    // 使用悲觀鎖查詢（同一錢包的分錄與限額累計以此鎖序列化，支付只鎖定不改寫此列）
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT w FROM Wallet w WHERE w.walletId = :walletId")
     Optional<Wallet> findByIdWithLock(@Param("walletId") Long walletId);
 
+    // 依錢包ID順序鎖定多個錢包
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.walletId IN :walletIds ORDER BY w.walletId")
+    List<Wallet> findAllByIdsWithLock(@Param("walletIds") Collection<Long> walletIds);
+
+    // 批次查詢會員Email對應的錢包ID
+    @Query("SELECT m.email, w.walletId FROM Wallet w JOIN w.member m WHERE m.email IN :emails")
+    List<Object[]> findWalletIdsByMemberEmails(@Param("emails") Collection<String> emails);
+
     // 查詢交易記錄
     @Query("SELECT w FROM Wallet w WHERE w.member = :member " +
             "AND EXISTS (SELECT t FROM Transaction t WHERE t.wallet = w " +
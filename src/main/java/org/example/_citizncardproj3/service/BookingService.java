@@ -2,6 +2,7 @@ package org.example._citizncardproj3.service;
 
 import org.example._citizncardproj3.model.dto.request.BookingRequest;
 import org.example._citizncardproj3.model.dto.response.BookingResponse;
+import org.example._citizncardproj3.model.dto.response.CursorPage;
 import org.example._citizncardproj3.model.entity.Booking;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -44,6 +45,15 @@ public interface BookingService {
      */
     Page<BookingResponse> getMemberBookings(String userEmail, Pageable pageable);
 
+    /**
+     * 以游標分頁獲取會員訂票記錄
+     * @param userEmail 用戶郵箱
+     * @param cursor 上一頁回傳的游標，第一頁為空
+     * @param size 每頁筆數
+     * @return 訂票響應游標分頁
+     */
+    CursorPage<BookingResponse> getMemberBookingHistory(String userEmail, String cursor, int size);
+
     /**
      * 檢查座位是否可用
      * @param scheduleId 場次ID
@@ -5,9 +5,12 @@ import org.example._citizncardproj3.model.dto.request.DiscountUpdateRequest;
 import org.example._citizncardproj3.model.dto.response.DiscountResponse;
 import org.example._citizncardproj3.model.entity.Discount;
 import org.example._citizncardproj3.model.entity.DiscountUsage;
+import org.example._citizncardproj3.service.support.DiscountCodeIssuer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -110,6 +113,50 @@ public interface DiscountService {
      */
     void deactivateExpiredDiscounts();
 
+    /**
+     * 設定限量優惠的額度分片數
+     * @param discountId 優惠ID
+     * @param shards 分片數，小於等於 1 時改回單列計數
+     * @return 目前已使用次數
+     */
+    int shardQuota(Long discountId, int shards);
+
+    /**
+     * 依使用紀錄重新計算所有優惠的兌換次數
+     * @return 更新的優惠數
+     */
+    int resyncUsageCounts();
+
+    /**
+     * 為活動優惠排入一次性個人優惠碼的背景發行工作
+     * @param discountId 活動優惠ID
+     * @param count 發行數量
+     * @return 發行工作（含批次編號）
+     */
+    DiscountCodeIssuer.IssueJob issueCodes(Long discountId, int count);
+
+    /**
+     * 查詢發行批次的進度
+     * @param batchNo 發行批次編號
+     * @return 已寫入的優惠碼數，以及本節點的發行工作狀態（其他節點發行或已過保留期時為空）
+     */
+    Map<String, Object> getIssueStatus(String batchNo);
+
+    /**
+     * 查詢發行批次已寫入的優惠碼數
+     * @param batchNo 發行批次編號
+     * @return 優惠碼數（批次不存在時拋出例外）
+     */
+    long getIssuedCodeCount(String batchNo);
+
+    /**
+     * 匯出發行批次的優惠碼
+     * @param batchNo 發行批次編號
+     * @param out 輸出串流（gzip 壓縮的 CSV）
+     * @return 匯出筆數
+     */
+    long exportIssuedCodes(String batchNo, OutputStream out) throws IOException;
+
     /**
      * 獲取優惠使用統計
      * @param discountId 優惠ID
@@ -50,4 +50,9 @@ public interface EmailService {
      * 發送歡迎郵件
      */
     void sendWelcomeEmail(String email, String name);
+
+    /**
+     * 同步發送通知郵件，失敗時拋出例外由呼叫端重試
+     */
+    void sendNotificationEmail(String email, String title, String content);
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package org.example._citizncardproj3.service;
 import org.example._citizncardproj3.model.dto.request.ScheduleCreateRequest;
 import org.example._citizncardproj3.model.dto.response.ScheduleResponse;
 import org.example._citizncardproj3.model.entity.MovieSchedule;
+import org.example._citizncardproj3.service.support.SeatHoldRegistry;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -78,13 +79,24 @@ public interface MovieScheduleService {
      */
     boolean isSeatAvailable(Long scheduleId, String seatNumber);
 
+    /**
+     * 尋找最佳連續座位
+     * @param scheduleId 場次ID
+     * @param count 座位數量
+     * @param zone 座位區域，null 表示不限
+     * @return 連續座位號碼列表，找不到時為空列表
+     */
+    List<String> findBestAvailableSeats(Long scheduleId, int count, String zone);
+
     /**
      * 鎖定座位
+     * @param userEmail 會員Email
      * @param scheduleId 場次ID
      * @param seatNumbers 座位號碼列表
      * @param duration 鎖定時長(分鐘)
+     * @return 座位保留資訊（含訂票時使用的保留憑證）
      */
-    void lockSeats(Long scheduleId, List<String> seatNumbers, int duration);
+    SeatHoldRegistry.SeatHold lockSeats(String userEmail, Long scheduleId, List<String> seatNumbers, int duration);
 
     /**
      * 解鎖座位
@@ -93,6 +105,14 @@ public interface MovieScheduleService {
      */
     void unlockSeats(Long scheduleId, List<String> seatNumbers);
 
+    /**
+     * 依保留憑證解鎖座位，只能解鎖會員自己的保留
+     * @param userEmail 會員Email
+     * @param holdToken 保留憑證
+     * @return 是否解鎖成功
+     */
+    boolean unlockSeats(String userEmail, String holdToken);
+
     /**
      * 獲取場次統計信息
      * @param scheduleId 場次ID
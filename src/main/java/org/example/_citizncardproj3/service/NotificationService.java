@@ -1,5 +1,7 @@
 package org.example._citizncardproj3.service;
 
+import org.example._citizncardproj3.model.dto.response.CursorPage;
+import org.example._citizncardproj3.model.dto.response.NotificationResponse;
 import org.example._citizncardproj3.model.entity.Member;
 import org.example._citizncardproj3.model.entity.Notification;
 import org.springframework.data.domain.Page;
@@ -61,6 +63,15 @@ public interface NotificationService {
      */
     Page<Notification> getMemberNotifications(String userEmail, Pageable pageable);
 
+    /**
+     * 以游標分頁獲取會員通知
+     * @param userEmail 用戶郵箱
+     * @param cursor 上一頁回傳的游標，第一頁為空
+     * @param size 每頁筆數
+     * @return 通知響應游標分頁
+     */
+    CursorPage<NotificationResponse> getMemberNotifications(String userEmail, String cursor, int size);
+
     /**
      * 獲取未讀通知列表
      * @param userEmail 用戶郵箱
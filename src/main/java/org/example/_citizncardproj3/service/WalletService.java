@@ -1,14 +1,19 @@
 package org.example._citizncardproj3.service;
 
+import org.example._citizncardproj3.model.dto.request.BulkTransferRequest;
 import org.example._citizncardproj3.model.dto.request.TopUpRequest;
 import org.example._citizncardproj3.model.dto.request.TransferRequest;
+import org.example._citizncardproj3.model.dto.response.BulkTransferResponse;
+import org.example._citizncardproj3.model.dto.response.CursorPage;
 import org.example._citizncardproj3.model.dto.response.TransactionResponse;
 import org.example._citizncardproj3.model.dto.response.WalletResponse;
 import org.example._citizncardproj3.model.entity.Transaction;
 import org.example._citizncardproj3.model.entity.Wallet;
+import org.example._citizncardproj3.service.support.TransactionStatementExporter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Map;
 
@@ -54,6 +59,15 @@ public interface WalletService {
      */
     Page<Transaction> getTransactionHistory(String userEmail, Pageable pageable);
 
+    /**
+     * 以游標分頁獲取交易記錄
+     * @param userEmail 用戶郵箱
+     * @param cursor 上一頁回傳的游標，第一頁為空
+     * @param size 每頁筆數
+     * @return 交易響應游標分頁
+     */
+    CursorPage<TransactionResponse> getTransactionHistory(String userEmail, String cursor, int size);
+
     /**
      * 凍結錢包
      * @param userEmail 用戶郵箱
@@ -69,11 +83,13 @@ public interface WalletService {
 
     /**
      * 重設每日限額
+     * 累計金額跨日後自動視為 0，此方法僅作為維護用的批次清除
      */
     void resetDailyLimit();
 
     /**
      * 重設每月限額
+     * 累計金額跨月後自動視為 0，此方法僅作為維護用的批次清除
      */
     void resetMonthlyLimit();
 
@@ -145,6 +161,12 @@ public interface WalletService {
      */
     TransactionResponse transfer(String userEmail, TransferRequest request);
 
+    /**
+     * 批次轉帳（商家撥款）
+     * 依批次分段提交，回應列出失敗的明細
+     */
+    BulkTransferResponse bulkTransfer(String userEmail, BulkTransferRequest request);
+
     /**
      * 查詢交易記錄
      */
@@ -155,6 +177,38 @@ public interface WalletService {
             Pageable pageable
     );
 
+    /**
+     * 驗證並預約交易明細匯出（gzip 壓縮），在回應送出前呼叫以便回報錯誤
+     * @param userEmail 用戶郵箱
+     * @param startTime 開始時間，為空時從第一筆交易開始
+     * @param endTime 結束時間，為空時到目前為止
+     * @param format 輸出格式
+     * @return 寫入回應時執行的匯出
+     */
+    TransactionStatementExporter.Export prepareTransactionExport(
+            String userEmail,
+            LocalDateTime startTime,
+            LocalDateTime endTime,
+            TransactionStatementExporter.Format format
+    );
+
+    /**
+     * 查詢每日交易統計（由每日彙總讀取）
+     * @param userEmail 用戶郵箱
+     * @param startDate 開始日期，為空時為結束日期前 29 天
+     * @param endDate 結束日期，為空時為今天
+     * @return 每日各類型交易的筆數與金額
+     */
+    Map<String, Object> getDailyStatistics(String userEmail, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * 重建日期區間的每日彙總（管理用，可回補分錄帳上線前的交易）
+     * @param startDate 開始日期（含）
+     * @param endDate 結束日期（含），必須早於今天
+     * @return 成功重建的日數
+     */
+    int rebuildDailyStatistics(LocalDate startDate, LocalDate endDate);
+
     /**
      * 查詢單筆交易詳情
      */
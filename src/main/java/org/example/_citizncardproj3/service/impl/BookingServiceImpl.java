@@ -3,22 +3,36 @@ package org.example._citizncardproj3.service.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.dto.projection.BookingListView;
 import org.example._citizncardproj3.model.dto.request.BookingRequest;
 import org.example._citizncardproj3.model.dto.response.BookingResponse;
+import org.example._citizncardproj3.model.dto.response.CursorPage;
 import org.example._citizncardproj3.model.entity.*;
 import org.example._citizncardproj3.repository.*;
 import org.example._citizncardproj3.service.BookingService;
+import org.example._citizncardproj3.service.support.DiscountRedemption;
+import org.example._citizncardproj3.service.support.ExpiredBookingSweeper;
+import org.example._citizncardproj3.service.support.SeatHoldRegistry;
+import org.example._citizncardproj3.service.support.SeatMapIndex;
+import org.example._citizncardproj3.service.support.SeekCursor;
+import org.example._citizncardproj3.service.support.WalletLedger;
+import org.example._citizncardproj3.service.support.WalletSpendingLimits;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
@@ -30,7 +44,12 @@ public class BookingServiceImpl implements BookingService {
     private final SeatBookingRepository seatBookingRepository;
     private final MemberRepository memberRepository;
     private final WalletRepository walletRepository;
-    private final DiscountRepository discountRepository;
+    private final DiscountRedemption discountRedemption;
+    private final SeatMapIndex seatMapIndex;
+    private final WalletLedger walletLedger;
+    private final WalletSpendingLimits walletSpendingLimits;
+    private final SeatHoldRegistry seatHoldRegistry;
+    private final ExpiredBookingSweeper expiredBookingSweeper;
 
     @Override
     @Transactional
@@ -48,32 +67,27 @@ public class BookingServiceImpl implements BookingService {
             throw new CustomException.InvalidScheduleException("此場次無法訂票");
         }
 
-        // 驗證座位
-        validateSeats(schedule, request.getSeatNumbers());
+        // 驗證並預訂座位（有保留憑證時直接兌換）
+        reserveSeats(userEmail, schedule, request.getSeatNumbers(), request.getHoldToken());
 
         // 計算金額
         double totalAmount = calculateTotalAmount(schedule, request.getSeatNumbers().size());
         double discountAmount = 0.0;
 
-        // 處理優惠券
+        // 處理優惠券（由記憶體快照中已編譯的規則驗證與計算，個人優惠碼在本交易中兌換）
         if (request.getDiscountCode() != null) {
-            Discount discount = discountRepository.findByDiscountCode(request.getDiscountCode())
-                    .orElseThrow(() -> new CustomException.DiscountNotFoundException(0L));
-
-            if (!discount.isValid()) {
-                throw new CustomException.DiscountExpiredException(request.getDiscountCode());
-            }
-
-            discountAmount = discount.calculateDiscount(totalAmount);
+            discountAmount = discountRedemption.applyToBooking(
+                    member.getMemberId(), request.getDiscountCode(), totalAmount);
         }
 
         double finalAmount = totalAmount - discountAmount;
 
-        // 檢查錢包餘額
+        // 鎖定錢包並檢查餘額
         Wallet wallet = walletRepository.findByMember(member)
                 .orElseThrow(() -> new CustomException.WalletNotFoundException(0L));
+        walletLedger.lock(wallet);
 
-        if (!wallet.hasEnoughBalance(finalAmount)) {
+        if (!walletLedger.hasEnoughBalance(wallet, finalAmount)) {
             throw new CustomException.InsufficientBalanceException();
         }
 
@@ -92,18 +106,16 @@ public class BookingServiceImpl implements BookingService {
 
         booking = bookingRepository.save(booking);
 
-        // 創建座位預訂記錄
-        List<SeatBooking> seatBookings = createSeatBookings(booking, schedule, request.getSeatNumbers());
-        booking.setSeatBookings(seatBookings);
-
         // 處理支付
         processPayment(booking, wallet);
 
+        // 創建座位預訂記錄
+        createSeatBookings(booking, schedule, request.getSeatNumbers());
+
         // 更新場次座位數
-        schedule.updateAvailableSeats();
-        scheduleRepository.save(schedule);
+        decrementAvailableSeats(schedule.getScheduleId(), request.getSeatNumbers().size());
 
-        return convertToResponse(booking);
+        return convertToResponse(booking, request.getSeatNumbers());
     }
 
     @Override
@@ -128,9 +140,12 @@ public class BookingServiceImpl implements BookingService {
         releaseSeats(booking);
 
         // 更新場次座位數
-        MovieSchedule schedule = booking.getSchedule();
-        schedule.updateAvailableSeats();
-        scheduleRepository.save(schedule);
+        Long scheduleId = booking.getSchedule().getScheduleId();
+        List<String> releasedSeats = booking.getSeatBookings().stream()
+                .map(SeatBooking::getSeatNumber)
+                .toList();
+        incrementAvailableSeats(scheduleId, releasedSeats.size());
+        afterCommit(() -> seatMapIndex.release(scheduleId, releasedSeats));
 
         return convertToResponse(booking);
     }
@@ -143,16 +158,34 @@ public class BookingServiceImpl implements BookingService {
 
     @Override
     public Page<BookingResponse> getMemberBookings(String userEmail, Pageable pageable) {
-        Member member = memberRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new CustomException.MemberNotFoundException(userEmail));
+        if (!memberRepository.existsByEmail(userEmail)) {
+            throw new CustomException.MemberNotFoundException(userEmail);
+        }
 
-        return bookingRepository.findByMemberOrderByCreatedAtDesc(member, pageable)
-                .map(this::convertToResponse);
+        // 一次投影查詢取得訂票列表，再以一次查詢批次取得整頁的座位
+        Page<BookingListView> bookings = bookingRepository.findBookingViewsByMemberEmail(userEmail, pageable);
+        Map<Long, List<String>> seatNumbers = findSeatNumbers(bookings.getContent());
+        return bookings.map(view -> convertToResponse(view,
+                seatNumbers.getOrDefault(view.getBookingId(), List.of())));
+    }
+
+    @Override
+    public CursorPage<BookingResponse> getMemberBookingHistory(String userEmail, String cursor, int size) {
+        if (!memberRepository.existsByEmail(userEmail)) {
+            throw new CustomException.MemberNotFoundException(userEmail);
+        }
+
+        SeekCursor seek = SeekCursor.decode(cursor);
+        List<BookingListView> rows = bookingRepository.findBookingViewsByMemberEmailBefore(
+                userEmail, seek.getTimestamp(), seek.getId(), SeekCursor.fetchSize(size));
+        Map<Long, List<String>> seatNumbers = findSeatNumbers(rows);
+        return SeekCursor.page(rows, size, BookingListView::getCreatedAt, BookingListView::getBookingId,
+                view -> convertToResponse(view, seatNumbers.getOrDefault(view.getBookingId(), List.of())));
     }
 
     @Override
     public boolean isSeatAvailable(Long scheduleId, String seatNumber) {
-        return false;
+        return seatMapIndex.isAvailable(scheduleId, seatNumber);
     }
 
     @Override
@@ -182,7 +215,7 @@ public class BookingServiceImpl implements BookingService {
 
     @Override
     public List<String> getBookedSeats(Long scheduleId) {
-        return List.of();
+        return seatMapIndex.getBookedSeats(scheduleId);
     }
 
     @Override
@@ -197,7 +230,7 @@ public class BookingServiceImpl implements BookingService {
 
     @Override
     public void cancelExpiredBookings() {
-
+        expiredBookingSweeper.sweep();
     }
 
     @Override
@@ -222,58 +255,115 @@ public class BookingServiceImpl implements BookingService {
 
     @Override
     public boolean checkSeatsAvailability(Long scheduleId, List<String> seatNumbers) {
-        return false;
+        return seatMapIndex.findUnavailable(scheduleId, seatNumbers).isEmpty();
     }
 
     // 私有輔助方法
 
-    private void validateSeats(MovieSchedule schedule, List<String> seatNumbers) {
-        for (String seatNumber : seatNumbers) {
-            if (!schedule.isSeatAvailable(seatNumber)) {
-                throw new CustomException.SeatNotAvailableException(seatNumber);
+    private void reserveSeats(String userEmail, MovieSchedule schedule, List<String> seatNumbers, String holdToken) {
+        Long scheduleId = schedule.getScheduleId();
+        if (holdToken != null) {
+            seatHoldRegistry.consume(holdToken, userEmail, scheduleId, seatNumbers)
+                    .orElseThrow(CustomException.SeatHoldExpiredException::new);
+        } else {
+            List<String> conflicts = seatMapIndex.reserve(scheduleId, seatNumbers);
+            if (!conflicts.isEmpty()) {
+                throw new CustomException.SeatNotAvailableException(String.join(",", conflicts));
+            }
+        }
+
+        // 交易完成後解除位圖佔用，回滾時先歸還記憶體中的座位
+        afterCompletion(committed -> {
+            if (!committed) {
+                seatMapIndex.release(scheduleId, seatNumbers);
+            }
+            seatMapIndex.unpin(scheduleId);
+        });
+    }
+
+    private void decrementAvailableSeats(Long scheduleId, int count) {
+        int updated = scheduleRepository.decrementAvailableSeats(
+                scheduleId, count, MovieSchedule.ScheduleStatus.FULL);
+        if (updated == 0) {
+            throw new CustomException.InvalidScheduleException("場次剩餘座位不足");
+        }
+    }
+
+    // 歸還座位數；超過總座位數時不更新，代表座位數已與訂票紀錄不一致，不阻擋取消但記錄錯誤
+    private void incrementAvailableSeats(Long scheduleId, int count) {
+        int updated = scheduleRepository.incrementAvailableSeats(scheduleId, count,
+                MovieSchedule.ScheduleStatus.FULL, MovieSchedule.ScheduleStatus.ON_SALE);
+        if (updated != 1) {
+            log.error("場次可用座位數歸還失敗，座位數與訂票紀錄不一致: scheduleId={}, count={}", scheduleId, count);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
             }
+        });
+    }
+
+    private void afterCompletion(Consumer<Boolean> action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.accept(true);
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status == STATUS_COMMITTED);
+            }
+        });
     }
 
     private double calculateTotalAmount(MovieSchedule schedule, int seatCount) {
         return schedule.getBasePrice() * seatCount;
     }
 
-    private List<SeatBooking> createSeatBookings(Booking booking, MovieSchedule schedule, List<String> seatNumbers) {
-        List<SeatBooking> seatBookings = new ArrayList<>();
-        for (String seatNumber : seatNumbers) {
-            SeatBooking seatBooking = SeatBooking.builder()
-                    .booking(booking)
-                    .schedule(schedule)
-                    .seatNumber(seatNumber)
-                    .status(SeatBooking.SeatStatus.BOOKED)
-                    .build();
-            seatBookings.add(seatBookingRepository.save(seatBooking));
+    private void createSeatBookings(Booking booking, MovieSchedule schedule, List<String> seatNumbers) {
+        Map<String, Long> seatIds = seatMapIndex.resolveSeatIds(schedule.getScheduleId(), seatNumbers);
+
+        // 先送出訂票與錢包異動，再以單一多列INSERT寫入座位
+        bookingRepository.flush();
+        try {
+            seatBookingRepository.batchInsert(
+                    booking.getBookingId(), schedule.getScheduleId(), seatIds, SeatBooking.SeatStatus.BOOKED);
+        } catch (DataIntegrityViolationException e) {
+            // 位圖與資料庫不一致時由唯一約束擋下重複預訂
+            log.error("座位已有有效預訂，位圖與資料庫不一致: scheduleId={}, seats={}",
+                    schedule.getScheduleId(), seatNumbers);
+            throw new CustomException.SeatNotAvailableException(String.join(",", seatNumbers));
         }
-        return seatBookings;
     }
 
     private void processPayment(Booking booking, Wallet wallet) {
-        wallet.subtractBalance(booking.getFinalAmount());
-        walletRepository.save(wallet);
+        if (!wallet.isUsable()) {
+            throw new IllegalStateException("錢包狀態異常");
+        }
+        walletLedger.debit(wallet, booking.getFinalAmount(), Transaction.TransactionType.PAYMENT, null);
+        walletSpendingLimits.charge(wallet, booking.getFinalAmount());
 
         booking.setPaymentStatus(Booking.PaymentStatus.PAID);
         booking.setStatus(Booking.BookingStatus.CONFIRMED);
         booking.setPaymentTime(LocalDateTime.now());
-        bookingRepository.save(booking);
     }
 
     private void processRefund(Booking booking) {
         Wallet wallet = booking.getMember().getWallet();
-        wallet.addBalance(booking.getFinalAmount());
-        walletRepository.save(wallet);
+        walletLedger.credit(wallet, booking.getFinalAmount(), Transaction.TransactionType.REFUND, null);
     }
 
     private void releaseSeats(Booking booking) {
-        for (SeatBooking seatBooking : booking.getSeatBookings()) {
-            seatBooking.setStatus(SeatBooking.SeatStatus.AVAILABLE);
-            seatBookingRepository.save(seatBooking);
-        }
+        seatBookingRepository.batchUpdateStatus(
+                List.of(booking.getBookingId()), SeatBooking.SeatStatus.AVAILABLE);
     }
 
     private Booking validateBookingOwnership(String userEmail, Long bookingId) {
@@ -290,7 +380,55 @@ public class BookingServiceImpl implements BookingService {
         return booking;
     }
 
+    private Map<Long, List<String>> findSeatNumbers(List<BookingListView> bookings) {
+        if (bookings.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> bookingIds = bookings.stream()
+                .map(BookingListView::getBookingId)
+                .toList();
+
+        Map<Long, List<String>> seatNumbers = new HashMap<>();
+        for (Object[] row : seatBookingRepository.findSeatNumbersByBookingIds(bookingIds)) {
+            seatNumbers.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        return seatNumbers;
+    }
+
+    private BookingResponse convertToResponse(BookingListView view, List<String> seatNumbers) {
+        double totalAmount = view.getTotalAmount().doubleValue();
+        double discountAmount = view.getDiscountApplied() != null ? view.getDiscountApplied().doubleValue() : 0.0;
+        return BookingResponse.builder()
+                .bookingId(view.getBookingId())
+                .bookingNumber(view.getBookingNumber())
+                .memberName(view.getMemberName())
+                .memberEmail(view.getMemberEmail())
+                .movieName(view.getMovieName())
+                .movieId(view.getMovieId())
+                .scheduleId(view.getScheduleId())
+                .showTime(view.getShowTime())
+                .venueName(view.getVenueName())
+                .roomNumber(view.getRoomNumber())
+                .seatNumbers(seatNumbers)
+                .status(BookingResponse.BookingStatus.fromEntityStatus(view.getStatus()))
+                .paymentStatus(BookingResponse.PaymentStatus.fromEntityStatus(view.getPaymentStatus()))
+                .priceDetails(new BookingResponse.PriceDetails(
+                        totalAmount,
+                        discountAmount,
+                        totalAmount - discountAmount,
+                        null))
+                .bookingTime(view.getCreatedAt())
+                .paymentTime(view.getPaymentTime())
+                .build();
+    }
+
     private BookingResponse convertToResponse(Booking booking) {
+        return convertToResponse(booking, booking.getSeatBookings().stream()
+                .map(SeatBooking::getSeatNumber)
+                .toList());
+    }
+
+    private BookingResponse convertToResponse(Booking booking, List<String> seatNumbers) {
         return BookingResponse.builder()
                 .bookingId(booking.getBookingId())
                 .bookingNumber(booking.getBookingNumber())
@@ -302,9 +440,7 @@ public class BookingServiceImpl implements BookingService {
                 .showTime(booking.getSchedule().getShowTime())
                 .venueName(booking.getSchedule().getVenue().getVenueName())
                 .roomNumber(booking.getSchedule().getRoomNumber())
-                .seatNumbers(booking.getSeatBookings().stream()
-                        .map(SeatBooking::getSeatNumber)
-                        .toList())
+                .seatNumbers(seatNumbers)
                 // 修改這裡：使用BookingResponse.BookingStatus的fromEntityStatus方法
                 .status(BookingResponse.BookingStatus.fromEntityStatus(booking.getStatus()))
                 .paymentStatus(BookingResponse.PaymentStatus.fromEntityStatus(booking.getPaymentStatus()))
@@ -41,12 +41,12 @@ public class CityMovieServiceImpl implements CityMovieService {
     @Override
     public Page<MovieResponse> getAllMovies(Boolean showingOnly, Pageable pageable) {
         if (Boolean.TRUE.equals(showingOnly)) {
-            return movieRepository.findByStatusOrderByReleaseDateDesc(
+            return movieRepository.findMovieViewsByStatus(
                     CityMovie.MovieStatus.NOW_SHOWING,
                     pageable
-            ).map(this::convertToResponse);
+            ).map(MovieResponse::fromView);
         }
-        return movieRepository.findAll(pageable).map(this::convertToResponse);
+        return movieRepository.findMovieViews(pageable).map(MovieResponse::fromView);
     }
 
     @Override
@@ -58,20 +58,18 @@ public class CityMovieServiceImpl implements CityMovieService {
 
     @Override
     public Page<MovieResponse> searchMovies(String keyword, Pageable pageable) {
-        return movieRepository.searchMovies(keyword, pageable)
-                .map(this::convertToResponse);
+        return movieRepository.searchMovieViews(keyword, pageable)
+                .map(MovieResponse::fromView);
     }
 
     @Override
     public List<ScheduleResponse> getMovieSchedules(Long movieId, LocalDate date) {
-        CityMovie movie = movieRepository.findById(movieId)
-                .orElseThrow(() -> new CustomException.MovieNotFoundException(movieId));
+        if (!movieRepository.existsById(movieId)) {
+            throw new CustomException.MovieNotFoundException(movieId);
+        }
 
-        return scheduleRepository.findByMovieAndShowTimeBetween(
-                        movie,
-                        date.atStartOfDay(),
-                        date.plusDays(1).atStartOfDay()
-                ).stream().map(this::convertToScheduleResponse)
+        return scheduleRepository.findScheduleViewsByMovieIdAndShowDate(movieId, date)
+                .stream().map(ScheduleResponse::fromView)
                 .collect(Collectors.toList());
     }
 
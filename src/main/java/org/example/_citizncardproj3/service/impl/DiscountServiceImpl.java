@@ -9,18 +9,30 @@ import org.example._citizncardproj3.model.dto.response.DiscountResponse;
 import org.example._citizncardproj3.model.entity.Discount;
 import org.example._citizncardproj3.model.entity.DiscountUsage;
 import org.example._citizncardproj3.model.entity.Member;
+import org.example._citizncardproj3.repository.DiscountCodeRepository;
 import org.example._citizncardproj3.repository.DiscountRepository;
 import org.example._citizncardproj3.repository.DiscountUsageRepository;
 import org.example._citizncardproj3.repository.MemberRepository;
 import org.example._citizncardproj3.service.DiscountService;
+import org.example._citizncardproj3.service.support.DiscountCatalog;
+import org.example._citizncardproj3.service.support.DiscountCodeIssuer;
+import org.example._citizncardproj3.service.support.DiscountEligibility;
+import org.example._citizncardproj3.service.support.DiscountQuotaShards;
+import org.example._citizncardproj3.service.support.DiscountRedemption;
+import org.example._citizncardproj3.util.IdGenerator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -30,6 +42,15 @@ public class DiscountServiceImpl implements DiscountService {
     private final DiscountRepository discountRepository;
     private final DiscountUsageRepository discountUsageRepository;
     private final MemberRepository memberRepository;
+    private final DiscountQuotaShards discountQuotaShards;
+    private final DiscountEligibility discountEligibility;
+    private final DiscountCatalog discountCatalog;
+    private final DiscountCodeRepository discountCodeRepository;
+    private final DiscountCodeIssuer discountCodeIssuer;
+    private final DiscountRedemption discountRedemption;
+
+    @Value("${app.discount-code.max-per-batch:5000000}")
+    private int maxCodesPerBatch;
 
     @Override
     public Page<Discount> getAllDiscounts(boolean activeOnly, Pageable pageable) {
@@ -43,12 +64,9 @@ public class DiscountServiceImpl implements DiscountService {
     public List<Discount> getValidDiscounts(String userEmail) {
         Member member = memberRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new CustomException.MemberNotFoundException(userEmail));
-        LocalDateTime now = LocalDateTime.now();
-        List<Discount> validDiscounts = discountRepository.findValidDiscounts(now);
 
-        return validDiscounts.stream()
-                .filter(discount -> isDiscountAvailableForMember(discount, member))
-                .toList();
+        // 一次分組查詢取得會員在各優惠的使用次數
+        return discountEligibility.filterEligible(member, discountRepository.findValidDiscounts(LocalDateTime.now()));
     }
 
     @Override
@@ -70,7 +88,9 @@ public class DiscountServiceImpl implements DiscountService {
                 .isDeleted(false)
                 .build();
 
-        return discountRepository.save(discount);
+        discount = discountRepository.save(discount);
+        discountCatalog.refreshAfterCommit();
+        return discount;
     }
 
     @Override
@@ -91,7 +111,9 @@ public class DiscountServiceImpl implements DiscountService {
             discount.setDescription(request.getDescription());
         }
 
-        return discountRepository.save(discount);
+        discount = discountRepository.save(discount);
+        discountCatalog.refreshAfterCommit();
+        return discount;
     }
 
     @Override
@@ -109,6 +131,7 @@ public class DiscountServiceImpl implements DiscountService {
         discount.setIsDeleted(true);
         discount.setDeletedAt(LocalDateTime.now());
         discountRepository.save(discount);
+        discountCatalog.refreshAfterCommit();
     }
 
     @Override
@@ -117,14 +140,22 @@ public class DiscountServiceImpl implements DiscountService {
         Member member = memberRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new CustomException.MemberNotFoundException(userEmail));
 
+        // 活動優惠碼或批次發行的個人優惠碼；檢查碼不符的不查詢個人優惠碼
         Discount discount = discountRepository.findByDiscountCode(discountCode)
+                .or(() -> discountCodeIssuer.isWellFormed(discountCode)
+                        ? discountCodeRepository.findDiscountByCode(discountCode)
+                        : Optional.empty())
                 .orElseThrow(() -> new CustomException.DiscountNotFoundException(0L));
 
         if (!discount.isValid()) {
+            // 已達使用上限與過期、停用分開回報
+            if (discount.isExhausted()) {
+                throw new CustomException.DiscountExhaustedException(discountCode);
+            }
             throw new CustomException.DiscountExpiredException(discountCode);
         }
 
-        if (!isDiscountAvailableForMember(discount, member)) {
+        if (!discountEligibility.isEligible(member, discount)) {
             throw new CustomException.DiscountUsedException(discountCode);
         }
 
@@ -134,6 +165,9 @@ public class DiscountServiceImpl implements DiscountService {
 
         Double discountAmount = discount.calculateDiscount(amount);
 
+        // 兌換個人優惠碼並佔用一次額度
+        discountRedemption.redeem(member.getMemberId(), discount, discountCode);
+
         DiscountUsage usage = DiscountUsage.builder()
                 .member(member)
                 .discount(discount)
@@ -157,11 +191,24 @@ public class DiscountServiceImpl implements DiscountService {
 
         usage.cancel();
         discountUsageRepository.save(usage);
+
+        // 只有已使用的紀錄可以取消，歸還一次兌換額度
+        Discount discount = usage.getDiscount();
+        if (discount.isQuotaSharded()) {
+            discountQuotaShards.release(discount.getDiscountId());
+        } else {
+            discountRepository.releaseRedemption(discount.getDiscountId());
+        }
     }
 
     @Override
     public boolean isDiscountAvailable(String discountCode, String userEmail) {
-        return false;
+        Member member = memberRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new CustomException.MemberNotFoundException(userEmail));
+
+        return discountRepository.findByDiscountCode(discountCode)
+                .map(discount -> discountEligibility.isEligible(member, discount))
+                .orElse(false);
     }
 
     @Override
@@ -189,6 +236,75 @@ public class DiscountServiceImpl implements DiscountService {
 
     }
 
+    @Override
+    @Transactional
+    public int shardQuota(Long discountId, int shards) {
+        Discount discount = discountRepository.findByIdWithLock(discountId)
+                .orElseThrow(() -> new CustomException.DiscountNotFoundException(discountId));
+
+        if (discount.getIsDeleted()) {
+            throw new IllegalStateException("無法設定已刪除的優惠");
+        }
+
+        int usedCount = discountQuotaShards.reshard(discount, shards);
+        discountCatalog.refreshAfterCommit();
+        return usedCount;
+    }
+
+    @Override
+    @Transactional
+    public int resyncUsageCounts() {
+        int updated = discountRepository.resyncUsedCounts();
+        log.info("優惠兌換次數已重新計算: discounts={}", updated);
+        return updated;
+    }
+
+    @Override
+    public DiscountCodeIssuer.IssueJob issueCodes(Long discountId, int count) {
+        if (count <= 0 || count > maxCodesPerBatch) {
+            throw new IllegalArgumentException("發行數量必須介於 1 到 " + maxCodesPerBatch);
+        }
+
+        Discount discount = discountRepository.findById(discountId)
+                .orElseThrow(() -> new CustomException.DiscountNotFoundException(discountId));
+
+        if (discount.getIsDeleted() || discount.getValidUntil().isBefore(LocalDateTime.now())) {
+            throw new IllegalStateException("無法為已刪除或已過期的優惠發行優惠碼");
+        }
+
+        // 在背景執行緒分段寫入，每段各自的交易，不在此開啟交易
+        return discountCodeIssuer.submit(discountId, count);
+    }
+
+    @Override
+    public Map<String, Object> getIssueStatus(String batchNo) {
+        DiscountCodeIssuer.IssueJob job = discountCodeIssuer.findJob(batchNo).orElse(null);
+        long storedCodes = discountCodeRepository.countByBatchNo(batchNo);
+        if (job == null && storedCodes == 0) {
+            throw new CustomException.DiscountCodeBatchNotFoundException(batchNo);
+        }
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("batchNo", batchNo);
+        status.put("storedCodes", storedCodes);
+        status.put("job", job);
+        return status;
+    }
+
+    @Override
+    public long getIssuedCodeCount(String batchNo) {
+        long count = discountCodeRepository.countByBatchNo(batchNo);
+        if (count == 0) {
+            throw new CustomException.DiscountCodeBatchNotFoundException(batchNo);
+        }
+        return count;
+    }
+
+    @Override
+    public long exportIssuedCodes(String batchNo, OutputStream out) throws IOException {
+        return discountCodeIssuer.export(batchNo, out);
+    }
+
     @Override
     public Map<String, Object> getDiscountStatistics(Long discountId) {
         return Map.of();
@@ -211,7 +327,9 @@ public class DiscountServiceImpl implements DiscountService {
 
     @Override
     public List<DiscountResponse> getAvailableDiscounts(String userEmail) {
-        return List.of();
+        return getValidDiscounts(userEmail).stream()
+                .map(DiscountResponse::fromEntity)
+                .toList();
     }
 
     @Override
@@ -248,20 +366,7 @@ public class DiscountServiceImpl implements DiscountService {
         }
     }
 
-    private boolean isDiscountAvailableForMember(Discount discount, Member member) {
-        // 使用getter方法檢查
-        if (discount.getIsDeleted() || !discount.isValid()) {
-            return false;
-        }
-
-        // 使用自定義查詢方法
-        long userUsageCount = discountUsageRepository.countByMemberAndDiscountAndStatus(
-                member, discount, DiscountUsage.UsageStatus.USED);
-
-        Integer usageLimit = discount.getUsageLimit();
-        return usageLimit == null || userUsageCount < usageLimit;
-    }
     private String generateDiscountCode() {
-        return "DC" + System.currentTimeMillis();
+        return IdGenerator.nextCode("DC");
     }
 }
\ No newline at end of file
@@ -131,6 +131,20 @@ public class EmailServiceImpl implements EmailService {
 
     }
 
+    @Override
+    public void sendNotificationEmail(String email, String title, String content) {
+        String htmlContent = String.format("""
+                <h2>%s</h2>
+                <p>%s</p>
+                <p>通知時間：%s</p>
+                """,
+                title,
+                content,
+                LocalDateTime.now().format(DATE_FORMATTER));
+
+        sendEmail(email, title, htmlContent);
+    }
+
     // ... 其他郵件發送方法使用類似的模式 ...
 
     // 私有輔助方法
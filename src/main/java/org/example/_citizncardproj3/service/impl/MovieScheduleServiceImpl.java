@@ -12,6 +12,8 @@ import org.example._citizncardproj3.repository.CityMovieRepository;
 import org.example._citizncardproj3.repository.MovieScheduleRepository;
 import org.example._citizncardproj3.repository.VenueRepository;
 import org.example._citizncardproj3.service.MovieScheduleService;
+import org.example._citizncardproj3.service.support.SeatHoldRegistry;
+import org.example._citizncardproj3.service.support.SeatMapIndex;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -29,6 +31,8 @@ public class MovieScheduleServiceImpl implements MovieScheduleService {
     private final MovieScheduleRepository scheduleRepository;
     private final CityMovieRepository movieRepository;
     private final VenueRepository venueRepository;
+    private final SeatMapIndex seatMapIndex;
+    private final SeatHoldRegistry seatHoldRegistry;
 
     @Override
     @Transactional
@@ -67,21 +71,24 @@ public class MovieScheduleServiceImpl implements MovieScheduleService {
 
     @Override
     public Page<ScheduleResponse> getMovieSchedules(Long movieId, Pageable pageable) {
-        CityMovie movie = movieRepository.findById(movieId)
-                .orElseThrow(() -> new CustomException.MovieNotFoundException(movieId));
+        if (!movieRepository.existsById(movieId)) {
+            throw new CustomException.MovieNotFoundException(movieId);
+        }
 
-        return scheduleRepository.findByMovieOrderByShowTimeAsc(movie, pageable)
-                .map(this::convertToResponse);
+        return scheduleRepository.findScheduleViewsByMovieId(movieId, pageable)
+                .map(ScheduleResponse::fromView);
     }
 
     @Override
     public List<ScheduleResponse> getAvailableSchedules(Long movieId, LocalDateTime startTime, LocalDateTime endTime) {
-        CityMovie movie = movieRepository.findById(movieId)
-                .orElseThrow(() -> new CustomException.MovieNotFoundException(movieId));
+        if (!movieRepository.existsById(movieId)) {
+            throw new CustomException.MovieNotFoundException(movieId);
+        }
 
-        return scheduleRepository.findAvailableSchedules(movie, startTime, endTime)
+        return scheduleRepository.findScheduleViewsByMovieIdAndStatus(
+                        movieId, startTime.toLocalDate(), endTime.toLocalDate(), MovieSchedule.ScheduleStatus.ON_SALE)
                 .stream()
-                .map(this::convertToResponse)
+                .map(ScheduleResponse::fromView)
                 .toList();
     }
 
@@ -115,7 +122,7 @@ public class MovieScheduleServiceImpl implements MovieScheduleService {
         MovieSchedule schedule = scheduleRepository.findById(scheduleId)
                 .orElseThrow(() -> new CustomException.ScheduleNotFoundException(scheduleId));
 
-        schedule.updateAvailableSeats();
+        schedule.updateAvailableSeats(seatMapIndex.getAvailableCount(scheduleId));
         scheduleRepository.save(schedule);
     }
 
@@ -131,17 +138,27 @@ public class MovieScheduleServiceImpl implements MovieScheduleService {
 
     @Override
     public boolean isSeatAvailable(Long scheduleId, String seatNumber) {
-        return false;
+        return seatMapIndex.isAvailable(scheduleId, seatNumber);
     }
 
     @Override
-    public void lockSeats(Long scheduleId, List<String> seatNumbers, int duration) {
+    public List<String> findBestAvailableSeats(Long scheduleId, int count, String zone) {
+        return seatMapIndex.findBestAvailable(scheduleId, count, zone);
+    }
 
+    @Override
+    public SeatHoldRegistry.SeatHold lockSeats(String userEmail, Long scheduleId, List<String> seatNumbers, int duration) {
+        return seatHoldRegistry.hold(userEmail, scheduleId, seatNumbers, duration);
     }
 
     @Override
     public void unlockSeats(Long scheduleId, List<String> seatNumbers) {
+        seatHoldRegistry.releaseSeats(scheduleId, seatNumbers);
+    }
 
+    @Override
+    public boolean unlockSeats(String userEmail, String holdToken) {
+        return seatHoldRegistry.release(holdToken, userEmail);
     }
 
     @Override
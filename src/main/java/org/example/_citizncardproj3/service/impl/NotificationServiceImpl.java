@@ -3,11 +3,15 @@ package org.example._citizncardproj3.service.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.dto.response.CursorPage;
+import org.example._citizncardproj3.model.dto.response.NotificationResponse;
 import org.example._citizncardproj3.model.entity.Member;
 import org.example._citizncardproj3.model.entity.Notification;
 import org.example._citizncardproj3.repository.MemberRepository;
 import org.example._citizncardproj3.repository.NotificationRepository;
 import org.example._citizncardproj3.service.NotificationService;
+import org.example._citizncardproj3.service.support.NotificationOutbox;
+import org.example._citizncardproj3.service.support.SeekCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -23,6 +27,7 @@ public class NotificationServiceImpl implements NotificationService {
 
     private final NotificationRepository notificationRepository;
     private final MemberRepository memberRepository;
+    private final NotificationOutbox notificationOutbox;
 
     @Override
     @Transactional
@@ -110,6 +115,18 @@ public class NotificationServiceImpl implements NotificationService {
         return notificationRepository.findByMemberOrderByCreatedAtDesc(member, pageable);
     }
 
+    @Override
+    public CursorPage<NotificationResponse> getMemberNotifications(String userEmail, String cursor, int size) {
+        Member member = memberRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new CustomException.MemberNotFoundException(userEmail));
+
+        SeekCursor seek = SeekCursor.decode(cursor);
+        List<Notification> rows = notificationRepository.findByMemberBefore(
+                member, seek.getTimestamp(), seek.getId(), SeekCursor.fetchSize(size));
+        return SeekCursor.page(rows, size, Notification::getCreatedAt, Notification::getNotificationId,
+                NotificationResponse::fromEntity);
+    }
+
     @Override
     public List<Notification> getUnreadNotifications(String userEmail) {
         Member member = memberRepository.findByEmail(userEmail)
@@ -136,49 +153,23 @@ public class NotificationServiceImpl implements NotificationService {
         notificationRepository.deleteExpiredNotifications(expiryTime);
     }
 
+    // 以下三種通知改寫入發件匣，與呼叫端交易一起提交後由轉送程序建立
     @Override
     @Transactional
     public void createBookingNotification(String userEmail, Long bookingId, String bookingNumber) {
-        String title = "訂票成功通知";
-        String content = String.format("您的訂票(編號: %s)已成功完成", bookingNumber);
-
-        createNotification(
-                userEmail,
-                title,
-                content,
-                Notification.NotificationType.BOOKING,
-                Notification.NotificationPriority.HIGH
-        );
+        notificationOutbox.bookingConfirmed(userEmail, bookingNumber);
     }
 
     @Override
     @Transactional
     public void createPaymentNotification(String userEmail, Double amount, String transactionNumber) {
-        String title = "支付成功通知";
-        String content = String.format("您已成功支付 %.2f 元(交易編號: %s)", amount, transactionNumber);
-
-        createNotification(
-                userEmail,
-                title,
-                content,
-                Notification.NotificationType.PAYMENT,
-                Notification.NotificationPriority.MEDIUM
-        );
+        notificationOutbox.paymentCompleted(userEmail, amount, transactionNumber);
     }
 
     @Override
     @Transactional
     public void createSecurityNotification(String userEmail, String action, String deviceInfo) {
-        String title = "安全提醒";
-        String content = String.format("您的帳戶在 %s 進行了 %s 操作", deviceInfo, action);
-
-        createNotification(
-                userEmail,
-                title,
-                content,
-                Notification.NotificationType.SECURITY,
-                Notification.NotificationPriority.HIGH
-        );
+        notificationOutbox.securityAction(userEmail, action, deviceInfo);
     }
 
     @Override
@@ -8,12 +8,15 @@ import org.example._citizncardproj3.model.entity.Venue;
 import org.example._citizncardproj3.repository.SeatManagementRepository;
 import org.example._citizncardproj3.repository.VenueRepository;
 import org.example._citizncardproj3.service.SeatManagementService;
+import org.example._citizncardproj3.service.support.SeatMapIndex;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 @Slf4j
@@ -165,9 +168,39 @@ public class SeatManagementServiceImpl implements SeatManagementService {
 
     @Override
     public List<SeatManagement> findConsecutiveSeats(Long venueId, String row, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("座位數量必須大於0");
+        }
         Venue venue = venueRepository.findById(venueId)
                 .orElseThrow(() -> new CustomException.VenueNotFoundException(venueId));
 
-        return seatManagementRepository.findConsecutiveSeats(venue, row);
+        List<SeatManagement> seats = new ArrayList<>(seatManagementRepository.findConsecutiveSeats(venue, row));
+        seats.sort(Comparator.comparing(SeatManagement::getSeatColumn, SeatMapIndex.LABEL_ORDER));
+
+        // 找出所有長度足夠的連續區段，取最接近行中央的位置
+        double center = (seats.size() - count) / 2.0;
+        int bestStart = -1;
+        double bestDistance = Double.MAX_VALUE;
+        int runStart = 0;
+        for (int i = 0; i <= seats.size(); i++) {
+            boolean runEnds = i == seats.size()
+                    || (i > runStart && !SeatMapIndex.isAdjacent(
+                            seats.get(i - 1).getSeatColumn(), seats.get(i).getSeatColumn()));
+            if (!runEnds) {
+                continue;
+            }
+            int last = i - count;
+            if (last >= runStart) {
+                int start = (int) Math.max(runStart, Math.min(last, Math.round(center)));
+                double distance = Math.abs(start - center);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    bestStart = start;
+                }
+            }
+            runStart = i;
+        }
+
+        return bestStart < 0 ? List.of() : seats.subList(bestStart, bestStart + count);
     }
 }
\ No newline at end of file
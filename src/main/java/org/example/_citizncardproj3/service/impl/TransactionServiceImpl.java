@@ -7,13 +7,20 @@ import org.example._citizncardproj3.model.entity.Transaction;
 import org.example._citizncardproj3.model.entity.Wallet;
 import org.example._citizncardproj3.repository.TransactionRepository;
 import org.example._citizncardproj3.repository.WalletRepository;
-import org.example._citizncardproj3.service.NotificationService;
 import org.example._citizncardproj3.service.TransactionService;
+import org.example._citizncardproj3.service.support.NotificationOutbox;
+import org.example._citizncardproj3.service.support.TimeoutTransactionReaper;
+import org.example._citizncardproj3.service.support.TransactionRollups;
+import org.example._citizncardproj3.service.support.WalletLedger;
+import org.example._citizncardproj3.service.support.WalletLockStripes;
+import org.example._citizncardproj3.service.support.WalletSpendingLimits;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -25,26 +32,37 @@ public class TransactionServiceImpl implements TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final WalletRepository walletRepository;
-    private final NotificationService notificationService;
+    private final NotificationOutbox notificationOutbox;
+    private final WalletLedger walletLedger;
+    private final WalletLockStripes walletLockStripes;
+    private final TimeoutTransactionReaper timeoutTransactionReaper;
+    private final TransactionRollups transactionRollups;
+    private final WalletSpendingLimits walletSpendingLimits;
+
+    @Value("${app.rollup.daily-stats-days:30}")
+    private int dailyStatsDays;
 
     @Override
-    @Transactional
     public Transaction createTransaction(Long walletId, Double amount, Transaction.TransactionType type,
                                          Transaction.PaymentMethod paymentMethod) {
+        return walletLockStripes.execute(walletId,
+                () -> doCreateTransaction(walletId, amount, type, paymentMethod));
+    }
 
-        Wallet wallet = walletRepository.findById(walletId)
+    private Transaction doCreateTransaction(Long walletId, Double amount, Transaction.TransactionType type,
+                                            Transaction.PaymentMethod paymentMethod) {
+        // 鎖定錢包後驗證狀態
+        Wallet wallet = walletRepository.findByIdWithLock(walletId)
                 .orElseThrow(() -> new CustomException.WalletNotFoundException(walletId));
-
-        // 驗證錢包狀態
         if (!wallet.isUsable()) {
             throw new IllegalStateException("錢包狀態異常");
         }
 
         // 檢查交易限額
-        validateTransactionLimits(wallet, amount);
+        walletSpendingLimits.check(wallet, amount);
 
         // 檢查餘額（如果是支付交易）
-        if (type == Transaction.TransactionType.PAYMENT && !wallet.hasEnoughBalance(amount)) {
+        if (type == Transaction.TransactionType.PAYMENT && !walletLedger.hasEnoughBalance(wallet, amount)) {
             throw new CustomException.InsufficientBalanceException();
         }
 
@@ -69,7 +87,13 @@ public class TransactionServiceImpl implements TransactionService {
     @Override
     @Transactional
     public Transaction completeTransaction(Long transactionId) {
-        Transaction transaction = transactionRepository.findById(transactionId)
+        // 與逾時清理相同，先鎖錢包再鎖交易；清理已標記失敗並沖銷的交易不能再完成
+        List<Long> walletIds = transactionRepository.findWalletIdsByTransactionIds(List.of(transactionId));
+        if (walletIds.isEmpty()) {
+            throw new CustomException.TransactionNotFoundException(transactionId);
+        }
+        walletRepository.findByIdWithLock(walletIds.get(0));
+        Transaction transaction = transactionRepository.findByIdWithLock(transactionId)
                 .orElseThrow(() -> new CustomException.TransactionNotFoundException(transactionId));
 
         if (transaction.getStatus() != Transaction.TransactionStatus.PENDING) {
@@ -79,9 +103,10 @@ public class TransactionServiceImpl implements TransactionService {
         transaction.setStatus(Transaction.TransactionStatus.SUCCESS);
         transaction.setTransactionTime(LocalDateTime.now());
         transaction = transactionRepository.save(transaction);
+        transactionRollups.record(transaction);
 
-        // 發送通知
-        notificationService.createPaymentNotification(
+        // 寫入通知事件，由發件匣非同步轉送
+        notificationOutbox.paymentCompleted(
                 transaction.getWallet().getMember().getEmail(),
                 transaction.getAmount(),
                 transaction.getTransactionNumber()
@@ -140,10 +165,12 @@ public class TransactionServiceImpl implements TransactionService {
 
     @Override
     public List<Object[]> getTransactionStatistics(Long walletId) {
-        Wallet wallet = walletRepository.findById(walletId)
-                .orElseThrow(() -> new CustomException.WalletNotFoundException(walletId));
+        if (!walletRepository.existsById(walletId)) {
+            throw new CustomException.WalletNotFoundException(walletId);
+        }
 
-        return transactionRepository.getTransactionStatistics(wallet);
+        // 由每日彙總計算，不需掃描交易明細
+        return transactionRollups.totalsByType(walletId);
     }
 
     @Override
@@ -163,12 +190,12 @@ public class TransactionServiceImpl implements TransactionService {
 
     @Override
     public List<Transaction> getPendingTransactions() {
-        return List.of();
+        return transactionRepository.findPendingTransactions(LocalDateTime.now());
     }
 
     @Override
     public void handleTimeoutTransactions() {
-
+        timeoutTransactionReaper.reap();
     }
 
     @Override
@@ -188,7 +215,12 @@ public class TransactionServiceImpl implements TransactionService {
 
     @Override
     public Map<String, Object> getDailyTransactionStats(Long walletId) {
-        return Map.of();
+        if (!walletRepository.existsById(walletId)) {
+            throw new CustomException.WalletNotFoundException(walletId);
+        }
+
+        LocalDate to = LocalDate.now();
+        return transactionRollups.dailyReport(walletId, to.minusDays(dailyStatsDays - 1L), to);
     }
 
     // 私有輔助方法
@@ -196,19 +228,19 @@ public class TransactionServiceImpl implements TransactionService {
         try {
             Wallet wallet = transaction.getWallet();
 
+            // 餘額異動一律寫入分錄
             switch (transaction.getType()) {
-                case DEPOSIT:  // 修改自 TOP_UP
-                    wallet.addBalance(transaction.getAmount());
+                case DEPOSIT, REFUND:
+                    walletLedger.credit(wallet, transaction.getAmount(),
+                            transaction.getType(), transaction.getTransactionId());
                     break;
                 case PAYMENT, TRANSFER:
-                    wallet.subtractBalance(transaction.getAmount());
-                    break;
-                case REFUND:
-                    wallet.addBalance(transaction.getAmount());
+                    walletLedger.debit(wallet, transaction.getAmount(),
+                            transaction.getType(), transaction.getTransactionId());
+                    walletSpendingLimits.charge(wallet, transaction.getAmount());
                     break;
             }
 
-            walletRepository.save(wallet);
             completeTransaction(transaction.getTransactionId());
 
         } catch (Exception e) {
@@ -218,15 +250,4 @@ public class TransactionServiceImpl implements TransactionService {
         }
     }
 
-    private void validateTransactionLimits(Wallet wallet, Double amount) {
-        // 檢查每日限額
-        if (wallet.getDailyTransactionAmount() + amount > wallet.getDailyTransactionLimit()) {
-            throw new IllegalStateException("超過每日交易限額");
-        }
-
-        // 檢查每月限額
-        if (wallet.getMonthlyTransactionAmount() + amount > wallet.getMonthlyTransactionLimit()) {
-            throw new IllegalStateException("超過每月交易限額");
-        }
-    }
 }
\ No newline at end of file
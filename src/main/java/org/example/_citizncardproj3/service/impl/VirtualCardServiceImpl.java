@@ -8,8 +8,8 @@ import org.example._citizncardproj3.model.entity.VirtualCard;
 import org.example._citizncardproj3.model.entity.VirtualCardUsage;
 import org.example._citizncardproj3.repository.MemberRepository;
 import org.example._citizncardproj3.repository.VirtualCardRepository;
-import org.example._citizncardproj3.service.NotificationService;
 import org.example._citizncardproj3.service.VirtualCardService;
+import org.example._citizncardproj3.service.support.NotificationOutbox;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -26,7 +26,7 @@ public class VirtualCardServiceImpl implements VirtualCardService {
 
     private final VirtualCardRepository virtualCardRepository;
     private final MemberRepository memberRepository;
-    private final NotificationService notificationService;
+    private final NotificationOutbox notificationOutbox;
 
     @Override
     @Transactional
@@ -48,8 +48,8 @@ public class VirtualCardServiceImpl implements VirtualCardService {
 
         virtualCard = virtualCardRepository.save(virtualCard);
 
-        // 發送通知
-        notificationService.createSecurityNotification(
+        // 寫入通知事件，由發件匣非同步轉送
+        notificationOutbox.securityAction(
                 userEmail,
                 "虛擬卡創建",
                 "系統"
@@ -75,8 +75,8 @@ public class VirtualCardServiceImpl implements VirtualCardService {
         virtualCard.bindDevice(deviceId, deviceName);
         virtualCard = virtualCardRepository.save(virtualCard);
 
-        // 發送通知
-        notificationService.createSecurityNotification(
+        // 寫入通知事件，由發件匣非同步轉送
+        notificationOutbox.securityAction(
                 userEmail,
                 "設備綁定",
                 deviceName
@@ -98,8 +98,8 @@ public class VirtualCardServiceImpl implements VirtualCardService {
         virtualCard.unbindDevice(reason);
         virtualCard = virtualCardRepository.save(virtualCard);
 
-        // 發送通知
-        notificationService.createSecurityNotification(
+        // 寫入通知事件，由發件匣非同步轉送
+        notificationOutbox.securityAction(
                 userEmail,
                 "設備解綁",
                 deviceName
@@ -137,8 +137,8 @@ public class VirtualCardServiceImpl implements VirtualCardService {
         virtualCard.suspend(reason);
         virtualCard = virtualCardRepository.save(virtualCard);
 
-        // 發送通知
-        notificationService.createSecurityNotification(
+        // 寫入通知事件，由發件匣非同步轉送
+        notificationOutbox.securityAction(
                 userEmail,
                 "虛擬卡停用",
                 "系統"
@@ -3,8 +3,11 @@ package org.example._citizncardproj3.service.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.dto.request.BulkTransferRequest;
 import org.example._citizncardproj3.model.dto.request.TopUpRequest;
 import org.example._citizncardproj3.model.dto.request.TransferRequest;
+import org.example._citizncardproj3.model.dto.response.BulkTransferResponse;
+import org.example._citizncardproj3.model.dto.response.CursorPage;
 import org.example._citizncardproj3.model.dto.response.TransactionResponse;
 import org.example._citizncardproj3.model.dto.response.WalletResponse;
 import org.example._citizncardproj3.model.entity.Member;
@@ -13,14 +16,27 @@ import org.example._citizncardproj3.model.entity.Wallet;
 import org.example._citizncardproj3.repository.MemberRepository;
 import org.example._citizncardproj3.repository.TransactionRepository;
 import org.example._citizncardproj3.repository.WalletRepository;
-import org.example._citizncardproj3.service.NotificationService;
 import org.example._citizncardproj3.service.WalletService;
+import org.example._citizncardproj3.service.support.NotificationOutbox;
+import org.example._citizncardproj3.service.support.SeekCursor;
+import org.example._citizncardproj3.service.support.TransactionRollupRebuilder;
+import org.example._citizncardproj3.service.support.TransactionRollups;
+import org.example._citizncardproj3.service.support.TransactionStatementExporter;
+import org.example._citizncardproj3.service.support.WalletLedger;
+import org.example._citizncardproj3.service.support.WalletLockStripes;
+import org.example._citizncardproj3.service.support.WalletPaymentBatcher;
+import org.example._citizncardproj3.service.support.WalletSpendingLimits;
+import org.example._citizncardproj3.service.support.WalletTransferEngine;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -29,10 +45,22 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class WalletServiceImpl implements WalletService {
 
+    private static final int RECIPIENT_LOOKUP_CHUNK = 1000;
+    private static final LocalDateTime STATEMENT_EARLIEST_TIME = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final int MAX_DAILY_STATISTICS_DAYS = 366;
+
     private final WalletRepository walletRepository;
     private final MemberRepository memberRepository;
     private final TransactionRepository transactionRepository;
-    private final NotificationService notificationService;
+    private final NotificationOutbox notificationOutbox;
+    private final WalletLedger walletLedger;
+    private final WalletLockStripes walletLockStripes;
+    private final WalletTransferEngine walletTransferEngine;
+    private final TransactionStatementExporter transactionStatementExporter;
+    private final TransactionRollups transactionRollups;
+    private final TransactionRollupRebuilder transactionRollupRebuilder;
+    private final WalletSpendingLimits walletSpendingLimits;
+    private final WalletPaymentBatcher walletPaymentBatcher;
 
     @Override
     @Transactional
@@ -54,50 +82,43 @@ public class WalletServiceImpl implements WalletService {
                 .pointsBalance(0)
                 .dailyTransactionLimit(50000.0)
                 .monthlyTransactionLimit(500000.0)
-                .dailyTransactionAmount(0.0)
-                .monthlyTransactionAmount(0.0)
                 .build();
 
         return walletRepository.save(wallet);
     }
 
     @Override
-    @Transactional
     public Wallet topUp(String userEmail, Double amount, Transaction.PaymentMethod paymentMethod) {
-        Member member = memberRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new CustomException.MemberNotFoundException(userEmail));
-
-        Wallet wallet = walletRepository.findByMember(member)
-                .orElseThrow(() -> new CustomException.WalletNotFoundException(0L));
+        Long walletId = findWalletId(userEmail);
+        return walletLockStripes.execute(walletId, () -> doTopUp(walletId, userEmail, amount, paymentMethod));
+    }
 
-        // 驗證錢包狀態
+    private Wallet doTopUp(Long walletId, String userEmail, Double amount, Transaction.PaymentMethod paymentMethod) {
+        // 鎖定錢包後驗證狀態
+        Wallet wallet = walletRepository.findByIdWithLock(walletId)
+                .orElseThrow(() -> new CustomException.WalletNotFoundException(walletId));
         if (!wallet.isUsable()) {
             throw new IllegalStateException("錢包狀態異常");
         }
 
-        // 創建儲值交易
+        // 交易與分錄在同一資料庫交易中寫入，直接以成功狀態建立
         Transaction transaction = Transaction.builder()
                 .wallet(wallet)
                 .amount(amount)
                 .type(Transaction.TransactionType.DEPOSIT)
-                .status(Transaction.TransactionStatus.PENDING)
+                .status(Transaction.TransactionStatus.SUCCESS)
                 .paymentMethod(paymentMethod)
                 .transactionTime(LocalDateTime.now())
                 .build();
 
         transaction = transactionRepository.save(transaction);
 
-        // 更新錢包餘額
-        wallet.addBalance(amount);
-        wallet = walletRepository.save(wallet);
+        // 新增入帳分錄
+        walletLedger.credit(wallet, amount, Transaction.TransactionType.DEPOSIT, transaction.getTransactionId());
+        transactionRollups.record(transaction);
 
-        // 完成交易
-        transaction.setStatus(Transaction.TransactionStatus.SUCCESS);
-        transaction.setTransactionTime(LocalDateTime.now());
-        transactionRepository.save(transaction);
-
-        // 發送通知
-        notificationService.createPaymentNotification(
+        // 寫入通知事件，由發件匣非同步轉送
+        notificationOutbox.paymentCompleted(
                 userEmail,
                 amount,
                 transaction.getTransactionNumber()
@@ -107,47 +128,44 @@ public class WalletServiceImpl implements WalletService {
     }
 
     @Override
-    @Transactional
     public Wallet pay(String userEmail, Double amount) {
-        Member member = memberRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new CustomException.MemberNotFoundException(userEmail));
-
-        Wallet wallet = walletRepository.findByMember(member)
-                .orElseThrow(() -> new CustomException.WalletNotFoundException(0L));
+        Long walletId = findWalletId(userEmail);
+        if (walletPaymentBatcher.isEnabled()) {
+            // 高頻小額支付併入群組提交
+            return walletPaymentBatcher.pay(walletId, amount);
+        }
+        return walletLockStripes.execute(walletId, () -> doPay(walletId, amount));
+    }
 
-        // 驗證錢包狀態和餘額
+    private Wallet doPay(Long walletId, Double amount) {
+        // 鎖定錢包後驗證狀態
+        Wallet wallet = walletRepository.findByIdWithLock(walletId)
+                .orElseThrow(() -> new CustomException.WalletNotFoundException(walletId));
         if (!wallet.isUsable()) {
             throw new IllegalStateException("錢包狀態異常");
         }
 
-        if (!wallet.hasEnoughBalance(amount)) {
-            throw new CustomException.InsufficientBalanceException();
-        }
-
         // 檢查交易限額
-        validateTransactionLimits(wallet, amount);
+        walletSpendingLimits.check(wallet, amount);
 
-        // 創建支付交易
+        // 交易與分錄在同一資料庫交易中寫入，直接以成功狀態建立
         Transaction transaction = Transaction.builder()
                 .wallet(wallet)
                 .amount(amount)
                 .type(Transaction.TransactionType.PAYMENT)
-                .status(Transaction.TransactionStatus.PENDING)
+                .status(Transaction.TransactionStatus.SUCCESS)
                 .paymentMethod(Transaction.PaymentMethod.WALLET_BALANCE)
                 .transactionTime(LocalDateTime.now())
                 .build();
 
         transaction = transactionRepository.save(transaction);
 
-        // 扣除錢包餘額
-        wallet.subtractBalance(amount);
-        wallet = walletRepository.save(wallet);
-
-        // 完成交易
-        transaction.setStatus(Transaction.TransactionStatus.SUCCESS);
-        transaction.setTransactionTime(LocalDateTime.now());
-        transactionRepository.save(transaction);
+        // 新增出帳分錄（餘額不足時整筆回滾）
+        walletLedger.debit(wallet, amount, Transaction.TransactionType.PAYMENT, transaction.getTransactionId());
+        transactionRollups.record(transaction);
 
+        // 累計交易限額；錢包資料列只鎖定不改寫
+        walletSpendingLimits.charge(wallet, amount);
         return wallet;
     }
 
@@ -159,7 +177,7 @@ public class WalletServiceImpl implements WalletService {
         Wallet wallet = walletRepository.findByMember(member)
                 .orElseThrow(() -> new CustomException.WalletNotFoundException(0L));
 
-        return wallet.getBalance();
+        return walletLedger.getBalance(wallet);
     }
 
     @Override
@@ -173,6 +191,21 @@ public class WalletServiceImpl implements WalletService {
         return transactionRepository.findByWalletOrderByTransactionTimeDesc(wallet, pageable);
     }
 
+    @Override
+    public CursorPage<TransactionResponse> getTransactionHistory(String userEmail, String cursor, int size) {
+        Member member = memberRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new CustomException.MemberNotFoundException(userEmail));
+
+        Wallet wallet = walletRepository.findByMember(member)
+                .orElseThrow(() -> new CustomException.WalletNotFoundException(0L));
+
+        SeekCursor seek = SeekCursor.decode(cursor);
+        List<Transaction> rows = transactionRepository.findByWalletBefore(
+                wallet, seek.getTimestamp(), seek.getId(), SeekCursor.fetchSize(size));
+        return SeekCursor.page(rows, size, Transaction::getTransactionTime, Transaction::getTransactionId,
+                this::convertToTransactionResponse);
+    }
+
     @Override
     @Transactional
     public void freezeWallet(String userEmail, String reason) {
@@ -185,8 +218,8 @@ public class WalletServiceImpl implements WalletService {
         wallet.freeze(reason);
         walletRepository.save(wallet);
 
-        // 發送通知
-        notificationService.createSecurityNotification(
+        // 寫入通知事件，由發件匣非同步轉送
+        notificationOutbox.securityAction(
                 userEmail,
                 "錢包凍結",
                 "系統"
@@ -199,23 +232,16 @@ public class WalletServiceImpl implements WalletService {
     }
 
     @Override
-    @Transactional
     public void resetDailyLimit() {
-        List<Wallet> wallets = walletRepository.findAll();
-        for (Wallet wallet : wallets) {
-            wallet.resetDailyTransactionAmount();
-            walletRepository.save(wallet);
-        }
+        // 每日累計以日期為鍵，跨日後自動從 0 開始，不需要重設
+        log.debug("每日交易累計依日期分列，略過重設");
     }
 
     @Override
-    @Transactional
     public void resetMonthlyLimit() {
-        List<Wallet> wallets = walletRepository.findAll();
-        for (Wallet wallet : wallets) {
-            wallet.resetMonthlyTransactionAmount();
-            walletRepository.save(wallet);
-        }
+        // 每月累計只合計當月各日，清除上個月之前的累計列
+        int purged = walletSpendingLimits.purgeBefore(LocalDate.now().withDayOfMonth(1));
+        log.info("清除過期交易累計: rows={}", purged);
     }
 
     @Override
@@ -260,7 +286,66 @@ public class WalletServiceImpl implements WalletService {
 
     @Override
     public TransactionResponse transfer(String userEmail, TransferRequest request) {
-        return null;
+        Long fromWalletId = findWalletId(userEmail);
+        Long toWalletId = findWalletId(request.getRecipientEmail());
+
+        Transaction debit = walletTransferEngine.transfer(
+                fromWalletId, toWalletId, request.getAmount(), request.getNote());
+
+        TransactionResponse response = convertToTransactionResponse(debit);
+        response.setRecipientEmail(request.getRecipientEmail());
+        return response;
+    }
+
+    @Override
+    public BulkTransferResponse bulkTransfer(String userEmail, BulkTransferRequest request) {
+        Long fromWalletId = findWalletId(userEmail);
+        List<BulkTransferRequest.Leg> requested = request.getLegs();
+
+        // 批次解析收款人錢包
+        Map<String, Long> walletIds = new HashMap<>();
+        List<String> emails = requested.stream()
+                .map(BulkTransferRequest.Leg::getRecipientEmail)
+                .distinct()
+                .toList();
+        for (int i = 0; i < emails.size(); i += RECIPIENT_LOOKUP_CHUNK) {
+            List<String> chunk = emails.subList(i, Math.min(i + RECIPIENT_LOOKUP_CHUNK, emails.size()));
+            for (Object[] row : walletRepository.findWalletIdsByMemberEmails(chunk)) {
+                walletIds.put((String) row[0], (Long) row[1]);
+            }
+        }
+
+        // 找不到收款人的明細直接列為失敗，其餘交給轉帳引擎
+        List<BulkTransferResponse.FailedLeg> failures = new ArrayList<>();
+        List<WalletTransferEngine.Leg> legs = new ArrayList<>(requested.size());
+        List<Integer> requestIndexes = new ArrayList<>(requested.size());
+        for (int i = 0; i < requested.size(); i++) {
+            BulkTransferRequest.Leg leg = requested.get(i);
+            Long toWalletId = walletIds.get(leg.getRecipientEmail());
+            if (toWalletId == null) {
+                failures.add(new BulkTransferResponse.FailedLeg(i, leg.getRecipientEmail(), "找不到收款人錢包"));
+            } else {
+                legs.add(new WalletTransferEngine.Leg(toWalletId, leg.getAmount()));
+                requestIndexes.add(i);
+            }
+        }
+
+        WalletTransferEngine.BulkResult result = walletTransferEngine.transferAll(fromWalletId, legs, request.getNote());
+        result.getFailures().forEach((index, reason) -> {
+            int requestIndex = requestIndexes.get(index);
+            failures.add(new BulkTransferResponse.FailedLeg(
+                    requestIndex, requested.get(requestIndex).getRecipientEmail(), reason));
+        });
+        failures.sort(Comparator.comparingInt(BulkTransferResponse.FailedLeg::getIndex));
+
+        return BulkTransferResponse.builder()
+                .batchNumber(result.getBatchNumber())
+                .totalLegs(requested.size())
+                .succeededLegs(result.getSucceeded())
+                .failedLegs(failures.size())
+                .totalAmount(result.getTotalAmount())
+                .failures(failures)
+                .build();
     }
 
     @Override
@@ -268,6 +353,38 @@ public class WalletServiceImpl implements WalletService {
         return null;
     }
 
+    @Override
+    public TransactionStatementExporter.Export prepareTransactionExport(String userEmail, LocalDateTime startTime,
+                                                                        LocalDateTime endTime,
+                                                                        TransactionStatementExporter.Format format) {
+        Long walletId = findWalletId(userEmail);
+        LocalDateTime from = startTime != null ? startTime : STATEMENT_EARLIEST_TIME;
+        LocalDateTime to = endTime != null ? endTime : LocalDateTime.now();
+        if (from.isAfter(to)) {
+            throw new CustomException.ValidationException("開始時間不能晚於結束時間");
+        }
+        return transactionStatementExporter.prepare(walletId, from, to, format);
+    }
+
+    @Override
+    public Map<String, Object> getDailyStatistics(String userEmail, LocalDate startDate, LocalDate endDate) {
+        Long walletId = findWalletId(userEmail);
+        LocalDate to = endDate != null ? endDate : LocalDate.now();
+        LocalDate from = startDate != null ? startDate : to.minusDays(29);
+        if (from.isAfter(to)) {
+            throw new CustomException.ValidationException("開始日期不能晚於結束日期");
+        }
+        if (from.plusDays(MAX_DAILY_STATISTICS_DAYS).isBefore(to)) {
+            throw new CustomException.ValidationException("查詢區間不能超過 " + MAX_DAILY_STATISTICS_DAYS + " 天");
+        }
+        return transactionRollups.dailyReport(walletId, from, to);
+    }
+
+    @Override
+    public int rebuildDailyStatistics(LocalDate startDate, LocalDate endDate) {
+        return transactionRollupRebuilder.backfill(startDate, endDate);
+    }
+
     @Override
     public TransactionResponse getTransaction(Long transactionId, String userEmail) {
         return null;
@@ -279,13 +396,28 @@ public class WalletServiceImpl implements WalletService {
     }
 
     // 私有輔助方法
-    private void validateTransactionLimits(Wallet wallet, Double amount) {
-        if (wallet.getDailyTransactionAmount() + amount > wallet.getDailyTransactionLimit()) {
-            throw new IllegalStateException("超過每日交易限額");
-        }
+    // 依錢包ID區間分批執行更新，每批獨立交易，避免單一語句鎖住整張表
+
+    private Long findWalletId(String userEmail) {
+        return walletRepository.findWalletIdByMemberEmail(userEmail).orElseThrow(() -> {
+            if (!memberRepository.existsByEmail(userEmail)) {
+                return new CustomException.MemberNotFoundException(userEmail);
+            }
+            return new CustomException.WalletNotFoundException(0L);
+        });
+    }
 
-        if (wallet.getMonthlyTransactionAmount() + amount > wallet.getMonthlyTransactionLimit()) {
-            throw new IllegalStateException("超過每月交易限額");
-        }
+
+    private TransactionResponse convertToTransactionResponse(Transaction transaction) {
+        return TransactionResponse.builder()
+                .transactionId(transaction.getTransactionId())
+                .transactionNumber(transaction.getTransactionNumber())
+                .type(transaction.getType())
+                .amount(transaction.getAmount())
+                .status(transaction.getStatus())
+                .description(transaction.getDescription())
+                .paymentMethod(transaction.getPaymentMethod() != null ? transaction.getPaymentMethod().name() : null)
+                .transactionTime(transaction.getTransactionTime())
+                .build();
     }
 }
\ No newline at end of file
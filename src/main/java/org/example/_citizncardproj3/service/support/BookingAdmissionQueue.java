@@ -0,0 +1,247 @@
+package org.example._citizncardproj3.service.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.exception.CustomException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 訂票准入佇列
+ * 同一場次的訂票請求進入該場次的有界佇列，由單一工作執行緒以小批次依序處理，
+ * 避免大量交易同時爭搶同一場次與錢包資料列。佇列已滿時立即拒絕並回傳建議重試秒數。
+ */
+@Slf4j
+@Component
+public class BookingAdmissionQueue {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final long waitSeconds;
+    private final ExecutorService workers;
+    private final Cache<Long, Lane> lanes;
+
+    private final AtomicInteger totalDepth = new AtomicInteger();
+    // 單筆訂票平均處理時間(奈秒)，指數移動平均
+    private final AtomicLong averageServiceNanos = new AtomicLong(TimeUnit.MILLISECONDS.toNanos(50));
+    private final Counter rejectedCounter;
+    private final Counter timeoutCounter;
+    private final Counter processedCounter;
+
+    public BookingAdmissionQueue(MeterRegistry meterRegistry,
+                                 @Value("${app.booking-queue.enabled:true}") boolean enabled,
+                                 @Value("${app.booking-queue.capacity:200}") int capacity,
+                                 @Value("${app.booking-queue.batch-size:20}") int batchSize,
+                                 @Value("${app.booking-queue.workers:8}") int workerCount,
+                                 @Value("${app.booking-queue.wait-seconds:15}") long waitSeconds) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.waitSeconds = waitSeconds;
+        this.lanes = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "booking-lane-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("booking.queue.depth", totalDepth, AtomicInteger::get)
+                .description("等待處理的訂票請求數")
+                .register(meterRegistry);
+        Gauge.builder("booking.queue.lanes", lanes, cache -> cache.estimatedSize())
+                .description("訂票佇列場次數")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("booking.queue.rejected")
+                .description("因佇列已滿被拒絕的訂票請求數")
+                .register(meterRegistry);
+        this.timeoutCounter = Counter.builder("booking.queue.timeouts")
+                .description("等待逾時而放棄的訂票請求數")
+                .register(meterRegistry);
+        this.processedCounter = Counter.builder("booking.queue.processed")
+                .description("經佇列處理的訂票請求數")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdown();
+    }
+
+    /**
+     * 送出訂票請求並等待處理結果
+     * @param scheduleId 場次ID
+     * @param task 實際訂票作業（需自行開啟交易）
+     * @return 訂票作業結果
+     * @throws CustomException.BookingQueueFullException 佇列已滿
+     * @throws CustomException.BookingQueueTimeoutException 等待逾時且請求尚未開始處理
+     */
+    public <T> T submit(Long scheduleId, Supplier<T> task) {
+        if (!enabled) {
+            return task.get();
+        }
+
+        Lane lane = lanes.get(scheduleId, id -> new Lane());
+        Entry<T> entry = new Entry<>(task);
+        if (!lane.queue.offer(entry)) {
+            rejectedCounter.increment();
+            throw new CustomException.BookingQueueFullException(estimateRetrySeconds(lane.queue.size()));
+        }
+        totalDepth.incrementAndGet();
+        schedule(lane);
+
+        try {
+            return entry.future.get(waitSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // 尚未開始處理則放棄；已在處理中則等待結果，避免扣款後回應遺失
+            if (entry.claimed.compareAndSet(false, true)) {
+                timeoutCounter.increment();
+                throw new CustomException.BookingQueueTimeoutException(estimateRetrySeconds(lane.queue.size()));
+            }
+            return await(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entry.claimed.compareAndSet(false, true);
+            throw new CustomException.SystemException("訂票請求被中斷");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * 各場次佇列深度（僅列出有等待請求的場次）
+     */
+    public Map<Long, Integer> getQueueDepths() {
+        Map<Long, Integer> depths = new LinkedHashMap<>();
+        lanes.asMap().forEach((scheduleId, lane) -> {
+            int depth = lane.queue.size();
+            if (depth > 0) {
+                depths.put(scheduleId, depth);
+            }
+        });
+        return depths;
+    }
+
+    /**
+     * 所有場次等待處理的請求總數
+     */
+    public int getTotalDepth() {
+        return totalDepth.get();
+    }
+
+    private void schedule(Lane lane) {
+        if (lane.draining.compareAndSet(false, true)) {
+            workers.execute(() -> drain(lane));
+        }
+    }
+
+    // 每次取出一批請求依序處理，處理完仍有請求時重新排入，讓其他場次有機會執行
+    private void drain(Lane lane) {
+        try {
+            List<Entry<?>> batch = new ArrayList<>(batchSize);
+            lane.queue.drainTo(batch, batchSize);
+            totalDepth.addAndGet(-batch.size());
+            for (Entry<?> entry : batch) {
+                if (entry.claimed.compareAndSet(false, true)) {
+                    process(entry);
+                }
+            }
+        } catch (Exception e) {
+            log.error("訂票佇列處理失敗", e);
+        } finally {
+            lane.draining.set(false);
+            if (!lane.queue.isEmpty()) {
+                schedule(lane);
+            }
+        }
+    }
+
+    private <T> void process(Entry<T> entry) {
+        long start = System.nanoTime();
+        try {
+            entry.future.complete(entry.task.get());
+        } catch (Throwable e) {
+            entry.future.completeExceptionally(e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            averageServiceNanos.updateAndGet(avg -> avg + (elapsed - avg) / 8);
+            processedCounter.increment();
+        }
+    }
+
+    private long estimateRetrySeconds(int depth) {
+        long nanos = (long) Math.max(depth, 1) * averageServiceNanos.get();
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos) + 1);
+    }
+
+    private <T> T await(Entry<T> entry) {
+        try {
+            return entry.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException.SystemException("訂票請求被中斷");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new CustomException.SystemException("訂票處理失敗: " + cause.getMessage());
+    }
+
+    /**
+     * 單一場次的佇列
+     */
+    private final class Lane {
+        private final BlockingQueue<Entry<?>> queue = new ArrayBlockingQueue<>(capacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+    }
+
+    /**
+     * 佇列中的單筆請求
+     * claimed 由工作執行緒（開始處理）或等待方（放棄）其中之一取得
+     */
+    private static final class Entry<T> {
+        private final Supplier<T> task;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private Entry(Supplier<T> task) {
+            this.task = task;
+        }
+    }
+}
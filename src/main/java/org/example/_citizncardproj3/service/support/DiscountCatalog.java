@@ -0,0 +1,215 @@
+package org.example._citizncardproj3.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.model.entity.Discount;
+import org.example._citizncardproj3.model.entity.DiscountCode;
+import org.example._citizncardproj3.repository.DiscountCodeRepository;
+import org.example._citizncardproj3.repository.DiscountRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * 有效優惠快照
+ * 將未刪除且未過期的優惠載入記憶體，以優惠碼為鍵的雜湊索引查詢；每個優惠的規則
+ * （類型、最低消費、折扣上限、有效期間、使用上限）預先編譯成 {@link Rule}，訂票時不需讀取資料庫。
+ * 快照以不可變 Map 整批替換，優惠新增、修改、停用後於交易提交時重建，並定期重建以同步其他節點的異動與兌換次數。
+ */
+@Slf4j
+@Component
+public class DiscountCatalog {
+
+    private final DiscountRepository discountRepository;
+    private final DiscountCodeRepository discountCodeRepository;
+    private final DiscountCodeIssuer discountCodeIssuer;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter refreshCounter;
+
+    private volatile Map<String, Rule> rulesByCode;
+
+    public DiscountCatalog(DiscountRepository discountRepository,
+                           DiscountCodeRepository discountCodeRepository,
+                           DiscountCodeIssuer discountCodeIssuer,
+                           MeterRegistry meterRegistry) {
+        this.discountRepository = discountRepository;
+        this.discountCodeRepository = discountCodeRepository;
+        this.discountCodeIssuer = discountCodeIssuer;
+
+        this.hitCounter = Counter.builder("discount.catalog.hits")
+                .description("由優惠快照命中的查詢次數")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("discount.catalog.misses")
+                .description("快照中不存在而查詢資料庫的次數")
+                .register(meterRegistry);
+        this.refreshCounter = Counter.builder("discount.catalog.refreshes")
+                .description("優惠快照重建次數")
+                .register(meterRegistry);
+        Gauge.builder("discount.catalog.size", this, DiscountCatalog::size)
+                .description("優惠快照中的優惠數")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 依優惠碼查詢已編譯的規則
+     * 快照中沒有時（不存在、已過期、其他節點剛建立或個人優惠碼）才查詢資料庫，結果不放入快照；
+     * 個人優惠碼只在格式正確且尚未兌換時回傳所屬活動優惠的規則。
+     */
+    public Optional<Rule> find(String discountCode) {
+        Rule rule = snapshot().get(discountCode);
+        if (rule != null) {
+            hitCounter.increment();
+            return Optional.of(rule);
+        }
+        missCounter.increment();
+        return discountRepository.findByDiscountCode(discountCode)
+                .or(() -> discountCodeIssuer.isWellFormed(discountCode)
+                        ? discountCodeRepository.findDiscountByCodeAndStatus(
+                                discountCode, DiscountCode.CodeStatus.ISSUED)
+                        : Optional.empty())
+                .map(Rule::compile);
+    }
+
+    @Scheduled(fixedDelayString = "${app.discount-catalog.refresh-interval-millis:5000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // 保留舊快照，下一輪再重建
+            log.warn("優惠快照重建失敗: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 重新載入快照
+     * @return 快照中的優惠數
+     */
+    public synchronized int refresh() {
+        List<Discount> discounts = discountRepository.findActiveForCatalog(LocalDateTime.now());
+        Map<String, Rule> rules = new HashMap<>(discounts.size() * 2);
+        for (Discount discount : discounts) {
+            rules.put(discount.getDiscountCode(), Rule.compile(discount));
+        }
+        rulesByCode = Collections.unmodifiableMap(rules);
+        refreshCounter.increment();
+        log.debug("優惠快照已重建: discounts={}", rules.size());
+        return rules.size();
+    }
+
+    /**
+     * 優惠異動後重建快照，在交易中呼叫時延到提交後執行
+     */
+    public void refreshAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                scheduledRefresh();
+            }
+        });
+    }
+
+    public int size() {
+        Map<String, Rule> rules = rulesByCode;
+        return rules != null ? rules.size() : 0;
+    }
+
+    private Map<String, Rule> snapshot() {
+        Map<String, Rule> rules = rulesByCode;
+        if (rules == null) {
+            refresh();
+            rules = rulesByCode;
+        }
+        return rules;
+    }
+
+    /**
+     * 預先編譯的優惠規則
+     * 有效期間轉為 epoch 毫秒，折扣類型與上限在編譯時合成為單一計算函式，
+     * 已達使用上限的優惠直接編譯為無效；分片模式的計數有延遲，與 {@link Discount#isValid()} 相同不檢查上限。
+     */
+    @Getter
+    public static final class Rule {
+
+        private static final ZoneId ZONE = ZoneId.systemDefault();
+
+        private final Long discountId;
+        private final String discountCode;
+        private final long validFromMillis;
+        private final long validUntilMillis;
+        private final double minPurchaseAmount;
+        private final boolean exhausted;
+        private final boolean quotaSharded;
+        private final DoubleUnaryOperator amountFunction;
+
+        private Rule(Discount discount) {
+            this.discountId = discount.getDiscountId();
+            this.discountCode = discount.getDiscountCode();
+            this.validFromMillis = toMillis(discount.getValidFrom());
+            this.validUntilMillis = toMillis(discount.getValidUntil());
+            this.minPurchaseAmount = discount.getMinPurchaseAmount();
+            this.exhausted = Boolean.TRUE.equals(discount.getIsDeleted()) || discount.isExhausted();
+            this.quotaSharded = discount.isQuotaSharded();
+            this.amountFunction = compileAmount(discount);
+        }
+
+        public static Rule compile(Discount discount) {
+            return new Rule(discount);
+        }
+
+        /**
+         * 指定時間是否有效
+         */
+        public boolean isValidAt(long nowMillis) {
+            return !exhausted && nowMillis >= validFromMillis && nowMillis <= validUntilMillis;
+        }
+
+        /**
+         * 計算折扣金額，規則與 {@link Discount#calculateDiscount(Double)} 相同
+         */
+        public double discountFor(double originalAmount, long nowMillis) {
+            if (!isValidAt(nowMillis) || originalAmount < minPurchaseAmount) {
+                return 0.0;
+            }
+            return amountFunction.applyAsDouble(originalAmount);
+        }
+
+        private static DoubleUnaryOperator compileAmount(Discount discount) {
+            double value = discount.getDiscountValue();
+            double cap = discount.getMaxDiscountAmount();
+            switch (discount.getDiscountType()) {
+                case FIXED_AMOUNT:
+                case POINTS_DISCOUNT:
+                    double fixed = Math.min(value, cap);
+                    return amount -> fixed;
+                case PERCENTAGE:
+                    double rate = value / 100;
+                    return amount -> Math.min(amount * rate, cap);
+                default:
+                    return amount -> 0.0;
+            }
+        }
+
+        private static long toMillis(LocalDateTime time) {
+            return time.atZone(ZONE).toInstant().toEpochMilli();
+        }
+    }
+}
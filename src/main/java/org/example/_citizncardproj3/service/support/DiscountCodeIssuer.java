@@ -0,0 +1,362 @@
+package org.example._citizncardproj3.service.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.repository.DiscountCodeRepository;
+import org.example._citizncardproj3.util.BloomFilter;
+import org.example._citizncardproj3.util.IdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 個人優惠碼批次發行
+ * 以 SecureRandom 產生不含易混淆字元的隨機碼並附加 mod 31 檢查碼。
+ * 既有優惠碼與本次已寫入的優惠碼記錄在布隆過濾器，目前分段則以雜湊集合去重，
+ * 判定可能重複的候選碼直接捨棄重抽，不需查詢資料庫；每個分段以多列 INSERT IGNORE
+ * 在獨立交易中寫入，其他節點同時發行造成的重複由唯一索引略過後補發。
+ * 記憶體用量只和布隆過濾器（每筆約 10 位元）與分段大小有關。
+ * 發行在單一背景執行緒依序執行，呼叫端立即取得批次編號，再以批次編號查詢進度。
+ */
+@Slf4j
+@Component
+public class DiscountCodeIssuer {
+
+    // 不含 0/O、1/I/L 的 31 個字元
+    private static final char[] ALPHABET = "23456789ABCDEFGHJKMNPQRSTUVWXYZ".toCharArray();
+    private static final int BASE = ALPHABET.length;
+    private static final int[] INDEX = new int[128];
+
+    static {
+        Arrays.fill(INDEX, -1);
+        for (int i = 0; i < BASE; i++) {
+            INDEX[ALPHABET[i]] = i;
+        }
+    }
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_PENDING_JOBS = 8;
+
+    private final DiscountCodeRepository discountCodeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SecureRandom random = new SecureRandom();
+    private final int codeLength;
+    private final int chunkSize;
+    private final int fetchSize;
+    private final ExecutorService worker;
+    private final Cache<String, IssueJob> jobs;
+
+    private final Counter issuedCounter;
+    private final Counter rejectedCounter;
+    private final Timer issueTimer;
+
+    public DiscountCodeIssuer(DiscountCodeRepository discountCodeRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.discount-code.length:12}") int codeLength,
+                              @Value("${app.discount-code.chunk-size:5000}") int chunkSize,
+                              @Value("${app.discount-code.fetch-size:1000}") int fetchSize) {
+        this.discountCodeRepository = discountCodeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.codeLength = codeLength;
+        this.chunkSize = chunkSize;
+        this.fetchSize = fetchSize;
+        this.worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING_JOBS), runnable -> {
+            Thread thread = new Thread(runnable, "discount-code-issuer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofDays(1))
+                .build();
+
+        this.issuedCounter = Counter.builder("discount.code.issued")
+                .description("發行的個人優惠碼數")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("discount.code.rejected")
+                .description("因可能重複而重抽的候選碼數")
+                .register(meterRegistry);
+        this.issueTimer = Timer.builder("discount.code.issue.duration")
+                .description("個人優惠碼批次發行耗時")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * 排入背景發行工作
+     * @param discountId 活動優惠ID（呼叫端須先驗證）
+     * @param count 發行數量
+     * @return 已排入的工作，批次編號立即可用
+     */
+    public IssueJob submit(Long discountId, int count) {
+        IssueJob job = new IssueJob(IdGenerator.nextCode("DB"), discountId, count);
+        jobs.put(job.getBatchNo(), job);
+        try {
+            worker.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.getBatchNo());
+            throw new IllegalStateException("排隊中的發行工作過多，請稍後再試");
+        }
+        log.info("個人優惠碼發行已排入: discountId={}, batchNo={}, count={}", discountId, job.getBatchNo(), count);
+        return job;
+    }
+
+    /**
+     * 查詢本節點的發行工作，工作完成一天後或節點重啟後不再保留
+     */
+    public Optional<IssueJob> findJob(String batchNo) {
+        return Optional.ofNullable(jobs.getIfPresent(batchNo));
+    }
+
+    /**
+     * 為活動優惠發行指定數量的個人優惠碼，在呼叫端執行緒上完成
+     * @param discountId 活動優惠ID（呼叫端須先驗證）
+     * @param count 發行數量
+     * @return 發行結果
+     */
+    public IssueResult issue(Long discountId, int count) {
+        String batchNo = IdGenerator.nextCode("DB");
+        return issueTimer.record(() -> issueAll(discountId, batchNo, count, issued -> { }));
+    }
+
+    /**
+     * 以 gzip 壓縮的 CSV 串流輸出發行批次的優惠碼
+     * @param out 輸出串流（寫入完成後不關閉）
+     * @return 輸出筆數
+     */
+    public long export(String batchNo, OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write("code,status\r\n");
+
+        long[] rows = {0L};
+        try {
+            discountCodeRepository.streamBatch(batchNo, fetchSize, rs -> {
+                try {
+                    writer.write(rs.getString(1));
+                    writer.write(',');
+                    writer.write(rs.getString(2));
+                    writer.write("\r\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            // 用戶端中斷下載時停止讀取游標
+            throw e.getCause();
+        }
+
+        writer.flush();
+        gzip.finish();
+        out.flush();
+        log.info("優惠碼批次匯出完成: batchNo={}, rows={}", batchNo, rows[0]);
+        return rows[0];
+    }
+
+    /**
+     * 檢查是否為格式正確的個人優惠碼
+     * 長度、字元集與檢查碼都符合才回傳 true；打錯或猜測的優惠碼不需查詢資料庫即可排除。
+     */
+    public boolean isWellFormed(String code) {
+        if (code == null || code.length() != codeLength + 1) {
+            return false;
+        }
+        int[] digits = new int[codeLength];
+        for (int i = 0; i < codeLength; i++) {
+            int digit = indexOf(code.charAt(i));
+            if (digit < 0) {
+                return false;
+            }
+            digits[i] = digit;
+        }
+        return indexOf(code.charAt(codeLength)) == checkValue(digits, codeLength);
+    }
+
+    private void run(IssueJob job) {
+        job.start();
+        try {
+            IssueResult result = issueTimer.record(() ->
+                    issueAll(job.getDiscountId(), job.getBatchNo(), job.getRequested(), job::progress));
+            job.complete(result);
+        } catch (RuntimeException e) {
+            // 已寫入的分段保留，可下載或另發新批次補足
+            log.error("個人優惠碼發行失敗: discountId={}, batchNo={}", job.getDiscountId(), job.getBatchNo(), e);
+            job.fail(e.getMessage());
+        }
+    }
+
+    private IssueResult issueAll(Long discountId, String batchNo, int count, IntConsumer progress) {
+        BloomFilter issuedCodes = loadExistingCodes(count);
+
+        Set<String> chunk = new LinkedHashSet<>(Math.min(chunkSize, count) * 2);
+        int[] digits = new int[codeLength + 1];
+        int issued = 0;
+        long rejected = 0;
+
+        while (issued < count) {
+            String candidate = nextCode(digits);
+            if (chunk.contains(candidate) || issuedCodes.mightContain(candidate)) {
+                rejected++;
+                continue;
+            }
+            chunk.add(candidate);
+
+            if (chunk.size() >= Math.min(chunkSize, count - issued)) {
+                issued += write(discountId, batchNo, chunk);
+                for (String code : chunk) {
+                    issuedCodes.put(code);
+                }
+                chunk.clear();
+                progress.accept(issued);
+            }
+        }
+
+        issuedCounter.increment(issued);
+        rejectedCounter.increment(rejected);
+        log.info("個人優惠碼發行完成: discountId={}, batchNo={}, issued={}, rejected={}",
+                discountId, batchNo, issued, rejected);
+        return new IssueResult(batchNo, issued, rejected);
+    }
+
+    // 分段寫入，每段一個資料庫交易；回傳實際寫入筆數，被唯一索引略過的由下一段補足
+    private int write(Long discountId, String batchNo, Set<String> chunk) {
+        Integer inserted = transactionTemplate.execute(status ->
+                discountCodeRepository.insertIgnore(discountId, batchNo, new ArrayList<>(chunk)));
+        return inserted != null ? inserted : 0;
+    }
+
+    // 以既有優惠碼建立布隆過濾器，容量預留本次發行數量
+    private BloomFilter loadExistingCodes(int count) {
+        long existing = discountCodeRepository.countAllCodes();
+        BloomFilter filter = new BloomFilter(existing + count, FALSE_POSITIVE_RATE);
+        discountCodeRepository.streamAllCodes(fetchSize, rs -> filter.put(rs.getString(1)));
+        log.debug("優惠碼布隆過濾器已建立: existing={}, bytes={}", existing, filter.sizeInBytes());
+        return filter;
+    }
+
+    private String nextCode(int[] digits) {
+        char[] chars = new char[codeLength + 1];
+        for (int i = 0; i < codeLength; i++) {
+            digits[i] = random.nextInt(BASE);
+            chars[i] = ALPHABET[digits[i]];
+        }
+        chars[codeLength] = ALPHABET[checkValue(digits, codeLength)];
+        return new String(chars);
+    }
+
+    private static int indexOf(char c) {
+        return c < INDEX.length ? INDEX[c] : -1;
+    }
+
+    // 權重交替為 2、1 的 mod 31 檢查碼；31 為質數，乘 2 是一對一對應，可偵測所有單一字元錯誤與相鄰字元對調。
+    // Luhn 的「位數和」只在偶數進位制下是一對一對應，31 進位時會漏掉部分單一字元錯誤
+    private static int checkValue(int[] digits, int length) {
+        int factor = 2;
+        int sum = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            sum += factor * digits[i] % BASE;
+            factor = factor == 2 ? 1 : 2;
+        }
+        return (BASE - sum % BASE) % BASE;
+    }
+
+    /**
+     * 背景發行工作的狀態
+     */
+    @Getter
+    public static final class IssueJob {
+        private final String batchNo;
+        private final Long discountId;
+        private final int requested;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile int issued;
+        private volatile long rejected;
+        private volatile String message;
+        private volatile LocalDateTime completedAt;
+
+        IssueJob(String batchNo, Long discountId, int requested) {
+            this.batchNo = batchNo;
+            this.discountId = discountId;
+            this.requested = requested;
+        }
+
+        private void start() {
+            status = JobStatus.RUNNING;
+        }
+
+        private void progress(int issued) {
+            this.issued = issued;
+        }
+
+        private void complete(IssueResult result) {
+            issued = result.getIssued();
+            rejected = result.getRejected();
+            completedAt = LocalDateTime.now();
+            status = JobStatus.COMPLETED;
+        }
+
+        private void fail(String message) {
+            this.message = message;
+            completedAt = LocalDateTime.now();
+            status = JobStatus.FAILED;
+        }
+    }
+
+    public enum JobStatus {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    /**
+     * 發行結果
+     */
+    @Getter
+    public static final class IssueResult {
+        private final String batchNo;
+        private final int issued;
+        private final long rejected;
+
+        public IssueResult(String batchNo, int issued, long rejected) {
+            this.batchNo = batchNo;
+            this.issued = issued;
+            this.rejected = rejected;
+        }
+    }
+}
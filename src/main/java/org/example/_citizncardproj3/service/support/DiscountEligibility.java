@@ -0,0 +1,82 @@
+package org.example._citizncardproj3.service.support;
+
+import lombok.RequiredArgsConstructor;
+import org.example._citizncardproj3.model.entity.Discount;
+import org.example._citizncardproj3.model.entity.DiscountUsage;
+import org.example._citizncardproj3.model.entity.Member;
+import org.example._citizncardproj3.repository.DiscountUsageRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 會員優惠資格判斷
+ * 一次分組查詢取得會員在所有候選優惠的使用次數，再於記憶體中逐一判斷，
+ * 查詢次數與候選優惠數量無關。
+ */
+@Component
+@RequiredArgsConstructor
+public class DiscountEligibility {
+
+    // 單一 IN 查詢最多的優惠數
+    private static final int DISCOUNT_LOOKUP_CHUNK = 1000;
+
+    private final DiscountUsageRepository discountUsageRepository;
+
+    /**
+     * 篩選會員可使用的優惠
+     * @param member 會員
+     * @param candidates 候選優惠
+     * @return 可使用的優惠（保持原順序）
+     */
+    public List<Discount> filterEligible(Member member, List<Discount> candidates) {
+        List<Discount> valid = new ArrayList<>(candidates.size());
+        List<Discount> limited = new ArrayList<>();
+        for (Discount discount : candidates) {
+            if (!discount.getIsDeleted() && discount.isValid()) {
+                valid.add(discount);
+                if (discount.getUsageLimit() != null) {
+                    limited.add(discount);
+                }
+            }
+        }
+
+        // 只有設定使用上限的優惠需要查詢使用次數
+        Map<Long, Long> usedCounts = limited.isEmpty() ? Map.of() : countUsage(member, limited);
+        List<Discount> eligible = new ArrayList<>(valid.size());
+        for (Discount discount : valid) {
+            long used = usedCounts.getOrDefault(discount.getDiscountId(), 0L);
+            Integer usageLimit = discount.getUsageLimit();
+            if (usageLimit == null || used < usageLimit) {
+                eligible.add(discount);
+            }
+        }
+        return eligible;
+    }
+
+    /**
+     * 判斷單一優惠是否可由會員使用
+     */
+    public boolean isEligible(Member member, Discount discount) {
+        return !filterEligible(member, List.of(discount)).isEmpty();
+    }
+
+    // 優惠ID -> 會員已使用次數
+    private Map<Long, Long> countUsage(Member member, List<Discount> discounts) {
+        Map<Long, Long> usedCounts = new HashMap<>();
+        for (int from = 0; from < discounts.size(); from += DISCOUNT_LOOKUP_CHUNK) {
+            List<Long> discountIds = discounts.subList(from, Math.min(from + DISCOUNT_LOOKUP_CHUNK, discounts.size()))
+                    .stream()
+                    .map(Discount::getDiscountId)
+                    .toList();
+            for (Object[] row : discountUsageRepository.countByMemberAndStatusGroupByDiscount(
+                    member, discountIds, DiscountUsage.UsageStatus.USED)) {
+                usedCounts.put((Long) row[0], ((Number) row[1]).longValue());
+            }
+        }
+        return usedCounts;
+    }
+}
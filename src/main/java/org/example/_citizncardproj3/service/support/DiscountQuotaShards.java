@@ -0,0 +1,163 @@
+package org.example._citizncardproj3.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.entity.Discount;
+import org.example._citizncardproj3.model.entity.DiscountQuotaShard;
+import org.example._citizncardproj3.repository.DiscountQuotaShardRepository;
+import org.example._citizncardproj3.repository.DiscountRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 優惠兌換額度分片
+ * 限量搶購的優惠把剩餘額度拆成 N 列，每次兌換隨機挑一個仍有額度的分片做條件式 UPDATE，
+ * 鎖競爭分散到 N 個資料列。各分片額度總和等於使用上限，每列都以 used < quota 條件更新，不會超賣。
+ * 額度的佔用與使用紀錄在同一資料庫交易中提交，交易回滾或服務中斷時一併撤銷，沒有需要另外歸還的預留額度。
+ */
+@Slf4j
+@Component
+public class DiscountQuotaShards {
+
+    private final DiscountQuotaShardRepository shardRepository;
+    private final DiscountRepository discountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxShards;
+
+    private final Counter acquiredCounter;
+    private final Counter exhaustedCounter;
+    private final Counter retryCounter;
+
+    public DiscountQuotaShards(DiscountQuotaShardRepository shardRepository,
+                               DiscountRepository discountRepository,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.discount-quota.max-shards:64}") int maxShards) {
+        this.shardRepository = shardRepository;
+        this.discountRepository = discountRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxShards = maxShards;
+
+        this.acquiredCounter = Counter.builder("discount.quota.shard.acquired")
+                .description("以分片額度兌換成功的次數")
+                .register(meterRegistry);
+        this.exhaustedCounter = Counter.builder("discount.quota.shard.exhausted")
+                .description("分片額度已用完而拒絕的次數")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("discount.quota.shard.retries")
+                .description("選中的分片已被用完而改試其他分片的次數")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 兌換一次
+     * @param discountId 優惠ID
+     * @return 是否兌換成功，false 表示全部分片已用完
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean tryAcquire(Long discountId) {
+        List<Integer> available = shardRepository.findAvailableShardNos(discountId);
+        int size = available.size();
+        int start = size > 0 ? ThreadLocalRandom.current().nextInt(size) : 0;
+        for (int i = 0; i < size; i++) {
+            if (shardRepository.tryConsume(discountId, available.get((start + i) % size)) == 1) {
+                acquiredCounter.increment();
+                return true;
+            }
+            retryCounter.increment();
+        }
+        exhaustedCounter.increment();
+        return false;
+    }
+
+    /**
+     * 歸還一次（取消使用時）
+     * @param discountId 優惠ID
+     * @return 是否歸還成功
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean release(Long discountId) {
+        List<Integer> used = shardRepository.findUsedShardNos(discountId);
+        int size = used.size();
+        int start = size > 0 ? ThreadLocalRandom.current().nextInt(size) : 0;
+        for (int i = 0; i < size; i++) {
+            if (shardRepository.tryRelease(discountId, used.get((start + i) % size)) == 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 重新分配剩餘額度
+     * 呼叫端必須已鎖定優惠資料列。先鎖定既有分片並合計已使用次數，再依新的分片數平均分配剩餘額度；
+     * 分片數小於等於 1 時回到單列計數模式。
+     * @param discount 已鎖定的優惠
+     * @param shards 分片數
+     * @return 目前已使用次數
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int reshard(Discount discount, int shards) {
+        if (shards > maxShards) {
+            throw new CustomException.ValidationException("分片數不能超過 " + maxShards);
+        }
+        Long discountId = discount.getDiscountId();
+
+        List<DiscountQuotaShard> existing = shardRepository.findByDiscountIdWithLock(discountId);
+        int used = existing.isEmpty()
+                ? discount.getUsageCount()
+                : existing.stream().mapToInt(DiscountQuotaShard::getUsed).sum();
+        shardRepository.deleteByDiscountId(discountId);
+
+        if (shards <= 1) {
+            discountRepository.updateQuotaShards(discountId, null, used);
+            log.info("優惠改回單列計數: discountId={}, used={}", discountId, used);
+            return used;
+        }
+        if (discount.getUsageLimit() == null) {
+            throw new CustomException.ValidationException("無使用上限的優惠不需要分片");
+        }
+
+        // 已使用次數記在第 0 片，剩餘額度平均分配
+        int remaining = Math.max(0, discount.getUsageLimit() - used);
+        List<DiscountQuotaShard> rows = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            int share = remaining / shards + (i < remaining % shards ? 1 : 0);
+            rows.add(DiscountQuotaShard.builder()
+                    .discountId(discountId)
+                    .shardNo(i)
+                    .quota(i == 0 ? share + used : share)
+                    .used(i == 0 ? used : 0)
+                    .build());
+        }
+        shardRepository.saveAll(rows);
+        discountRepository.updateQuotaShards(discountId, shards, used);
+
+        log.info("優惠額度已分片: discountId={}, shards={}, used={}, remaining={}",
+                discountId, shards, used, remaining);
+        return used;
+    }
+
+    /**
+     * 定期把各分片的已使用次數彙總回優惠的兌換次數，供查詢與有效性判斷使用
+     */
+    @Scheduled(fixedDelayString = "${app.discount-quota.sync-interval-millis:5000}")
+    public void syncUsedCounts() {
+        try {
+            transactionTemplate.execute(status -> discountRepository.syncShardedUsedCounts());
+        } catch (Exception e) {
+            log.error("優惠分片兌換次數彙總失敗", e);
+        }
+    }
+}
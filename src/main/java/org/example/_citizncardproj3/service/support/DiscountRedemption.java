@@ -0,0 +1,83 @@
+package org.example._citizncardproj3.service.support;
+
+import lombok.RequiredArgsConstructor;
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.entity.Discount;
+import org.example._citizncardproj3.repository.DiscountCodeRepository;
+import org.example._citizncardproj3.repository.DiscountRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * 優惠兌換
+ * 個人優惠碼先以條件式 UPDATE 標記為已兌換，再佔用一次活動額度；兩者在呼叫端的同一資料庫交易中提交，
+ * 額度不足時優惠碼的兌換一併回滾。優惠使用與訂票共用此流程，同一個人優惠碼不論經由哪條路徑都只能兌換一次。
+ */
+@Component
+@RequiredArgsConstructor
+public class DiscountRedemption {
+
+    private final DiscountRepository discountRepository;
+    private final DiscountCodeRepository discountCodeRepository;
+    private final DiscountQuotaShards discountQuotaShards;
+    private final DiscountCatalog discountCatalog;
+
+    /**
+     * 兌換優惠
+     * @param memberId 會員ID
+     * @param discount 活動優惠
+     * @param discountCode 使用的優惠碼，與活動優惠碼不同時為個人優惠碼
+     * @throws CustomException.DiscountUsedException 個人優惠碼已兌換
+     * @throws CustomException.DiscountExhaustedException 活動額度已用完
+     */
+    @Transactional
+    public void redeem(Long memberId, Discount discount, String discountCode) {
+        redeemCode(memberId, discountCode, !discount.getDiscountCode().equals(discountCode));
+        acquireQuota(discount.getDiscountId(), discount.isQuotaSharded(), discountCode);
+    }
+
+    /**
+     * 訂票時驗證優惠碼並計算折扣
+     * 活動優惠碼沿用快照規則，不佔用額度；個人優惠碼兌換後佔用一次活動額度
+     * @param memberId 會員ID
+     * @param discountCode 優惠碼
+     * @param totalAmount 訂單金額
+     * @return 折扣金額
+     */
+    @Transactional
+    public double applyToBooking(Long memberId, String discountCode, double totalAmount) {
+        DiscountCatalog.Rule rule = discountCatalog.find(discountCode)
+                .orElseThrow(() -> new CustomException.DiscountNotFoundException(0L));
+
+        long now = System.currentTimeMillis();
+        if (!rule.isValidAt(now)) {
+            throw new CustomException.DiscountExpiredException(discountCode);
+        }
+
+        if (!rule.getDiscountCode().equals(discountCode)) {
+            redeemCode(memberId, discountCode, true);
+            acquireQuota(rule.getDiscountId(), rule.isQuotaSharded(), discountCode);
+        }
+        return rule.discountFor(totalAmount, now);
+    }
+
+    private void redeemCode(Long memberId, String discountCode, boolean personalCode) {
+        // 個人優惠碼只能兌換一次
+        if (personalCode && discountCodeRepository.tryRedeem(discountCode, memberId, LocalDateTime.now()) != 1) {
+            throw new CustomException.DiscountUsedException(discountCode);
+        }
+    }
+
+    // 以條件式 UPDATE 佔用一次兌換額度，同時兌換時只有未達上限者成功；
+    // 分片模式更新其中一個額度分片，不鎖定優惠資料列
+    private void acquireQuota(Long discountId, boolean quotaSharded, String discountCode) {
+        boolean redeemed = quotaSharded
+                ? discountQuotaShards.tryAcquire(discountId)
+                : discountRepository.tryRedeem(discountId, LocalDateTime.now()) == 1;
+        if (!redeemed) {
+            throw new CustomException.DiscountExhaustedException(discountCode);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.example._citizncardproj3.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.model.entity.Booking;
+import org.example._citizncardproj3.model.entity.MovieSchedule;
+import org.example._citizncardproj3.model.entity.SeatBooking;
+import org.example._citizncardproj3.repository.BookingRepository;
+import org.example._citizncardproj3.repository.MovieScheduleRepository;
+import org.example._citizncardproj3.repository.SeatBookingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 過期訂票清理
+ * 定期以鍵集分頁找出逾時未付款的訂票，每一批在獨立交易中以集合式語句
+ * 取消訂票、釋放座位並回補場次座位數，提交後再同步座位位圖。
+ */
+@Slf4j
+@Component
+public class ExpiredBookingSweeper {
+
+    private final BookingRepository bookingRepository;
+    private final SeatBookingRepository seatBookingRepository;
+    private final MovieScheduleRepository scheduleRepository;
+    private final SeatMapIndex seatMapIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final long timeoutMinutes;
+    private final int chunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter runCounter;
+    private final Counter cancelledCounter;
+    private final Timer runTimer;
+
+    public ExpiredBookingSweeper(BookingRepository bookingRepository,
+                                 SeatBookingRepository seatBookingRepository,
+                                 MovieScheduleRepository scheduleRepository,
+                                 SeatMapIndex seatMapIndex,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.booking-expiry.timeout-minutes:15}") long timeoutMinutes,
+                                 @Value("${app.booking-expiry.chunk-size:500}") int chunkSize) {
+        this.bookingRepository = bookingRepository;
+        this.seatBookingRepository = seatBookingRepository;
+        this.scheduleRepository = scheduleRepository;
+        this.seatMapIndex = seatMapIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.timeoutMinutes = timeoutMinutes;
+        this.chunkSize = chunkSize;
+
+        this.runCounter = Counter.builder("booking.expiry.runs")
+                .description("過期訂票清理執行次數")
+                .register(meterRegistry);
+        this.cancelledCounter = Counter.builder("booking.expiry.cancelled")
+                .description("過期訂票清理取消的訂票數")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("booking.expiry.duration")
+                .description("過期訂票清理耗時")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.booking-expiry.sweep-interval-millis:60000}")
+    public void scheduledSweep() {
+        sweep();
+    }
+
+    /**
+     * 執行一次清理
+     * @return 取消的訂票數量，已有清理在執行時為 0
+     */
+    public int sweep() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            return runTimer.record(this::sweepAll);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int sweepAll() {
+        LocalDateTime timeout = LocalDateTime.now().minusMinutes(timeoutMinutes);
+        long afterId = 0L;
+        int total = 0;
+
+        while (true) {
+            List<Long> bookingIds = bookingRepository.findExpiredBookingIds(
+                    Booking.BookingStatus.PENDING, timeout, afterId, PageRequest.of(0, chunkSize));
+            if (bookingIds.isEmpty()) {
+                break;
+            }
+            afterId = bookingIds.get(bookingIds.size() - 1);
+
+            try {
+                total += cancelChunk(bookingIds);
+            } catch (Exception e) {
+                // 單批失敗不影響後續批次，下次執行會再處理
+                log.error("過期訂票清理批次失敗: afterId={}", afterId, e);
+            }
+
+            if (bookingIds.size() < chunkSize) {
+                break;
+            }
+        }
+
+        runCounter.increment();
+        cancelledCounter.increment(total);
+        if (total > 0) {
+            log.info("過期訂票清理完成: cancelled={}", total);
+        }
+        return total;
+    }
+
+    private int cancelChunk(List<Long> bookingIds) {
+        Map<Long, List<String>> releasedSeats = new HashMap<>();
+
+        Integer cancelled = transactionTemplate.execute(status -> {
+            // 狀態條件確保期間已付款或已取消的訂票不受影響
+            int updated = bookingRepository.cancelBookingsByIds(bookingIds, Booking.BookingStatus.PENDING);
+            if (updated == 0) {
+                return 0;
+            }
+
+            // 只釋放本批取消的訂票仍佔用的座位
+            Set<Long> releasedBookings = new HashSet<>();
+            for (Object[] row : seatBookingRepository.findHeldSeatsOfCancelledBookings(bookingIds)) {
+                releasedBookings.add((Long) row[0]);
+                releasedSeats.computeIfAbsent((Long) row[1], id -> new ArrayList<>()).add((String) row[2]);
+            }
+            if (!releasedBookings.isEmpty()) {
+                seatBookingRepository.batchUpdateStatus(releasedBookings, SeatBooking.SeatStatus.AVAILABLE);
+            }
+            releasedSeats.forEach((scheduleId, seats) -> {
+                int restored = scheduleRepository.incrementAvailableSeats(scheduleId, seats.size(),
+                        MovieSchedule.ScheduleStatus.FULL, MovieSchedule.ScheduleStatus.ON_SALE);
+                if (restored != 1) {
+                    log.error("場次可用座位數歸還失敗，座位數與訂票紀錄不一致: scheduleId={}, count={}",
+                            scheduleId, seats.size());
+                }
+            });
+            return updated;
+        });
+
+        // 交易提交後才釋放記憶體中的座位
+        releasedSeats.forEach(seatMapIndex::release);
+        return cancelled == null ? 0 : cancelled;
+    }
+}
@@ -0,0 +1,95 @@
+package org.example._citizncardproj3.service.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.exception.CustomException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * 冪等請求快取
+ * 以呼叫者與 Idempotency-Key 為鍵保存進行中與已完成的結果，
+ * 重送的請求直接取得第一次的結果；同時到達的重複請求只會執行一次。
+ * 執行失敗的結果不保留，讓用戶端可以重試。
+ */
+@Slf4j
+@Component
+public class IdempotencyCache {
+
+    private final Cache<String, Execution> executions;
+
+    public IdempotencyCache(@Value("${app.idempotency.max-keys:100000}") long maxKeys,
+                            @Value("${app.idempotency.expire-hours:24}") long expireHours) {
+        this.executions = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(Duration.ofHours(expireHours))
+                .build();
+    }
+
+    /**
+     * 以冪等方式執行作業
+     * @param scope 鍵的範圍（例如會員Email），避免不同使用者的鍵互相衝突
+     * @param key Idempotency-Key，為空時直接執行
+     * @param fingerprint 請求內容，同一個鍵搭配不同內容時拒絕執行
+     * @param action 實際作業
+     * @return 作業結果（重送時為第一次的結果）
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String scope, String key, Object fingerprint, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+
+        String cacheKey = scope + ":" + key;
+        Execution created = new Execution(fingerprint);
+        Execution execution = executions.asMap().putIfAbsent(cacheKey, created);
+
+        if (execution == null) {
+            try {
+                T result = action.get();
+                created.future.complete(result);
+                return result;
+            } catch (Throwable e) {
+                // 包含 Error，確保等待同一個鍵的重複請求不會永久阻塞
+                executions.asMap().remove(cacheKey, created);
+                created.future.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        if (!Objects.equals(execution.fingerprint, fingerprint)) {
+            throw new CustomException.ValidationException("Idempotency-Key 已用於其他請求");
+        }
+        log.debug("重複請求，沿用先前結果: key={}", cacheKey);
+        try {
+            return (T) execution.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 單一鍵的執行狀態
+     */
+    private static final class Execution {
+        private final Object fingerprint;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        private Execution(Object fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.example._citizncardproj3.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.model.entity.Wallet;
+import org.example._citizncardproj3.model.entity.WalletBalanceSnapshot;
+import org.example._citizncardproj3.repository.LedgerEntryRepository;
+import org.example._citizncardproj3.repository.WalletBalanceSnapshotRepository;
+import org.example._citizncardproj3.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 錢包餘額快照壓縮
+ * 定期找出上次執行後有新分錄的錢包，尾段分錄達門檻時建立新快照並刪除舊快照，
+ * 讓餘額查詢只需加總少量分錄。每個錢包在持有錢包鎖的獨立交易中處理。
+ */
+@Slf4j
+@Component
+public class LedgerSnapshotCompactor {
+
+    private final LedgerEntryRepository entryRepository;
+    private final WalletBalanceSnapshotRepository snapshotRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long snapshotThreshold;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    // 已掃描到的分錄ID，-1 表示尚未初始化
+    private volatile long scannedUpTo = -1L;
+
+    private final Counter runCounter;
+    private final Counter snapshotCounter;
+    private final Timer runTimer;
+
+    public LedgerSnapshotCompactor(LedgerEntryRepository entryRepository,
+                                   WalletBalanceSnapshotRepository snapshotRepository,
+                                   WalletRepository walletRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.ledger.snapshot-threshold:100}") long snapshotThreshold) {
+        this.entryRepository = entryRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.walletRepository = walletRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotThreshold = snapshotThreshold;
+
+        this.runCounter = Counter.builder("ledger.compaction.runs")
+                .description("餘額快照壓縮執行次數")
+                .register(meterRegistry);
+        this.snapshotCounter = Counter.builder("ledger.compaction.snapshots")
+                .description("建立的餘額快照數")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("ledger.compaction.duration")
+                .description("餘額快照壓縮耗時")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.ledger.compact-interval-millis:60000}")
+    public void scheduledCompact() {
+        compact();
+    }
+
+    /**
+     * 執行一次壓縮
+     * @return 建立的快照數量，已有壓縮在執行時為 0
+     */
+    public int compact() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            return runTimer.record(this::compactActiveWallets);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int compactActiveWallets() {
+        if (scannedUpTo < 0) {
+            // 重新啟動後從最新快照位置接續，之前未達門檻的錢包有新分錄時會再被掃到
+            scannedUpTo = snapshotRepository.findMaxLastEntryId();
+        }
+        long upTo = entryRepository.findMaxEntryId();
+        if (upTo <= scannedUpTo) {
+            return 0;
+        }
+
+        List<Long> walletIds = entryRepository.findWalletIdsWithEntriesBetween(scannedUpTo, upTo);
+        int created = 0;
+        for (Long walletId : walletIds) {
+            try {
+                if (compactWallet(walletId)) {
+                    created++;
+                }
+            } catch (Exception e) {
+                // 單一錢包失敗不影響其他錢包，下次有新分錄時會再處理
+                log.error("餘額快照壓縮失敗: walletId={}", walletId, e);
+            }
+        }
+        scannedUpTo = upTo;
+
+        runCounter.increment();
+        snapshotCounter.increment(created);
+        if (created > 0) {
+            log.info("餘額快照壓縮完成: wallets={}, snapshots={}", walletIds.size(), created);
+        }
+        return created;
+    }
+
+    /**
+     * 為單一錢包建立快照（尾段未達門檻時略過）
+     */
+    public boolean compactWallet(Long walletId) {
+        Boolean created = transactionTemplate.execute(status -> {
+            // 分錄只在持有錢包鎖時寫入，鎖定後尾段不會再有未提交的分錄
+            Wallet wallet = walletRepository.findByIdWithLock(walletId).orElse(null);
+            if (wallet == null) {
+                return false;
+            }
+
+            WalletBalanceSnapshot latest = snapshotRepository
+                    .findFirstByWalletIdOrderByLastEntryIdDesc(walletId)
+                    .orElse(null);
+            long openingMinor = latest != null ? latest.getBalanceMinor() : WalletLedger.toMinor(wallet.getBalance());
+            long afterEntryId = latest != null ? latest.getLastEntryId() : 0L;
+
+            Object[] tail = entryRepository.summarizeAfter(walletId, afterEntryId).get(0);
+            long count = ((Number) tail[0]).longValue();
+            if (count < snapshotThreshold) {
+                return false;
+            }
+
+            long balanceMinor = openingMinor + ((Number) tail[1]).longValue();
+            long lastEntryId = ((Number) tail[2]).longValue();
+            snapshotRepository.save(WalletBalanceSnapshot.builder()
+                    .walletId(walletId)
+                    .lastEntryId(lastEntryId)
+                    .balanceMinor(balanceMinor)
+                    .build());
+            snapshotRepository.deleteOlderSnapshots(walletId, lastEntryId);
+            walletRepository.updateCachedBalance(walletId, WalletLedger.toAmount(balanceMinor));
+            return true;
+        });
+        return Boolean.TRUE.equals(created);
+    }
+}
@@ -0,0 +1,70 @@
+package org.example._citizncardproj3.service.support;
+
+import lombok.RequiredArgsConstructor;
+import org.example._citizncardproj3.model.entity.Notification;
+import org.example._citizncardproj3.model.entity.OutboxEvent;
+import org.example._citizncardproj3.repository.OutboxEventRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 通知發件匣
+ * 業務交易只寫入一筆事件，不查詢會員也不建立通知；事件隨業務交易一起提交或回滾，
+ * 由 {@link NotificationOutboxRelay} 非同步轉成通知與郵件。
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    /**
+     * 支付完成事件
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void paymentCompleted(String userEmail, Double amount, String transactionNumber) {
+        append(OutboxEvent.builder()
+                .eventType(OutboxEvent.EventType.PAYMENT_COMPLETED)
+                .reference(transactionNumber)
+                .recipientEmail(userEmail)
+                .notificationType(Notification.NotificationType.PAYMENT)
+                .priority(Notification.NotificationPriority.MEDIUM)
+                .title("支付成功通知")
+                .content(String.format("您已成功支付 %.2f 元(交易編號: %s)", amount, transactionNumber)));
+    }
+
+    /**
+     * 帳戶安全操作事件
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void securityAction(String userEmail, String action, String deviceInfo) {
+        append(OutboxEvent.builder()
+                .eventType(OutboxEvent.EventType.SECURITY_ACTION)
+                .reference(action)
+                .recipientEmail(userEmail)
+                .notificationType(Notification.NotificationType.SECURITY)
+                .priority(Notification.NotificationPriority.HIGH)
+                .title("安全提醒")
+                .content(String.format("您的帳戶在 %s 進行了 %s 操作", deviceInfo, action)));
+    }
+
+    /**
+     * 訂票完成事件
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookingConfirmed(String userEmail, String bookingNumber) {
+        append(OutboxEvent.builder()
+                .eventType(OutboxEvent.EventType.BOOKING_CONFIRMED)
+                .reference(bookingNumber)
+                .recipientEmail(userEmail)
+                .notificationType(Notification.NotificationType.BOOKING)
+                .priority(Notification.NotificationPriority.HIGH)
+                .title("訂票成功通知")
+                .content(String.format("您的訂票(編號: %s)已成功完成", bookingNumber)));
+    }
+
+    private void append(OutboxEvent.OutboxEventBuilder builder) {
+        outboxEventRepository.save(builder.build());
+    }
+}
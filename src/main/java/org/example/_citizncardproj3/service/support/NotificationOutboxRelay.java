@@ -0,0 +1,255 @@
+package org.example._citizncardproj3.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.model.entity.Member;
+import org.example._citizncardproj3.model.entity.Notification;
+import org.example._citizncardproj3.model.entity.OutboxEvent;
+import org.example._citizncardproj3.repository.MemberRepository;
+import org.example._citizncardproj3.repository.NotificationRepository;
+import org.example._citizncardproj3.repository.OutboxEventRepository;
+import org.example._citizncardproj3.service.EmailService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 通知發件匣轉送
+ * 定期取出一批待轉送事件，批次查詢收件會員並建立通知，需要即時提醒的事件再發送郵件。
+ * 每批在獨立交易中處理：提交前中斷時整批重送，因此通知與郵件可能重複但不會遺失。
+ * 郵件失敗的事件保留已建立的通知，以指數退避重試郵件。
+ */
+@Slf4j
+@Component
+public class NotificationOutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final NotificationRepository notificationRepository;
+    private final MemberRepository memberRepository;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBaseSeconds;
+    private final long retentionDays;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter publishedCounter;
+    private final Counter retryCounter;
+    private final Counter failedCounter;
+    private final Timer runTimer;
+
+    public NotificationOutboxRelay(OutboxEventRepository outboxEventRepository,
+                                   NotificationRepository notificationRepository,
+                                   MemberRepository memberRepository,
+                                   EmailService emailService,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.notification-outbox.batch-size:100}") int batchSize,
+                                   @Value("${app.notification-outbox.max-attempts:8}") int maxAttempts,
+                                   @Value("${app.notification-outbox.retry-base-seconds:30}") long retryBaseSeconds,
+                                   @Value("${app.notification-outbox.retention-days:7}") long retentionDays) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.notificationRepository = notificationRepository;
+        this.memberRepository = memberRepository;
+        this.emailService = emailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseSeconds = retryBaseSeconds;
+        this.retentionDays = retentionDays;
+
+        this.publishedCounter = Counter.builder("notification.outbox.published")
+                .description("轉送完成的發件匣事件數")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("notification.outbox.retries")
+                .description("轉送失敗待重試的發件匣事件數")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("notification.outbox.failed")
+                .description("放棄轉送的發件匣事件數")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("notification.outbox.relay.duration")
+                .description("發件匣轉送耗時")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.notification-outbox.relay-interval-millis:1000}")
+    public void scheduledRelay() {
+        relay();
+    }
+
+    @Scheduled(fixedDelayString = "${app.notification-outbox.cleanup-interval-millis:3600000}")
+    public void purgePublished() {
+        Integer deleted = transactionTemplate.execute(status -> outboxEventRepository.deletePublishedBefore(
+                OutboxEvent.EventStatus.PUBLISHED, LocalDateTime.now().minusDays(retentionDays)));
+        if (deleted != null && deleted > 0) {
+            log.info("清除已轉送的發件匣事件: deleted={}", deleted);
+        }
+    }
+
+    /**
+     * 轉送所有到期事件
+     * @return 轉送完成的事件數，已有轉送在執行時為 0
+     */
+    public int relay() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            return runTimer.record(this::relayAll);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int relayAll() {
+        int total = 0;
+        while (true) {
+            BatchResult result;
+            try {
+                result = transactionTemplate.execute(status -> relayBatch());
+            } catch (Exception e) {
+                // 整批回滾，下次執行會再處理
+                log.error("發件匣轉送批次失敗", e);
+                break;
+            }
+            if (result == null) {
+                break;
+            }
+            total += result.published;
+            if (result.fetched < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private BatchResult relayBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = outboxEventRepository.findDueEventsForUpdate(
+                OutboxEvent.EventStatus.PENDING, now, PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return null;
+        }
+
+        Map<OutboxEvent, Notification> notifications = createNotifications(events);
+
+        int published = 0;
+        for (OutboxEvent event : events) {
+            if (event.getStatus() != OutboxEvent.EventStatus.PENDING) {
+                continue;
+            }
+            Notification notification = notifications.get(event);
+            if (event.requiresEmail() && !sendEmail(event, now)) {
+                continue;
+            }
+            if (notification != null && event.requiresEmail()) {
+                notification.markAsSent();
+            }
+            event.markPublished();
+            published++;
+        }
+
+        publishedCounter.increment(published);
+        return new BatchResult(events.size(), published);
+    }
+
+    // 為尚未建立通知的事件批次建立通知；先前已建立通知的事件（郵件重試）載入原通知
+    private Map<OutboxEvent, Notification> createNotifications(List<OutboxEvent> events) {
+        List<String> emails = events.stream()
+                .filter(event -> event.getNotificationId() == null)
+                .map(OutboxEvent::getRecipientEmail)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<String, Member> members = emails.isEmpty() ? Map.of() : memberRepository.findByEmailIn(emails).stream()
+                .collect(Collectors.toMap(Member::getEmail, Function.identity(), (a, b) -> a));
+
+        List<Long> existingIds = events.stream()
+                .map(OutboxEvent::getNotificationId)
+                .filter(id -> id != null)
+                .collect(Collectors.toList());
+        Map<Long, Notification> existing = existingIds.isEmpty() ? Map.of() : notificationRepository.findAllById(existingIds).stream()
+                .collect(Collectors.toMap(Notification::getNotificationId, Function.identity()));
+
+        Map<OutboxEvent, Notification> result = new HashMap<>();
+        List<OutboxEvent> created = new ArrayList<>();
+        List<Notification> toSave = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            if (event.getNotificationId() != null) {
+                result.put(event, existing.get(event.getNotificationId()));
+                continue;
+            }
+            Member member = members.get(event.getRecipientEmail());
+            if (member == null) {
+                event.markFailed("會員不存在: " + event.getRecipientEmail());
+                failedCounter.increment();
+                continue;
+            }
+            created.add(event);
+            toSave.add(Notification.builder()
+                    .member(member)
+                    .title(event.getTitle())
+                    .content(event.getContent())
+                    .type(event.getNotificationType())
+                    .priority(event.getPriority())
+                    .isRead(false)
+                    .isSent(false)
+                    .sendTime(event.getCreatedAt())
+                    .build());
+        }
+
+        List<Notification> saved = notificationRepository.saveAll(toSave);
+        for (int i = 0; i < created.size(); i++) {
+            OutboxEvent event = created.get(i);
+            Notification notification = saved.get(i);
+            event.setNotificationId(notification.getNotificationId());
+            result.put(event, notification);
+        }
+        return result;
+    }
+
+    private boolean sendEmail(OutboxEvent event, LocalDateTime now) {
+        try {
+            emailService.sendNotificationEmail(event.getRecipientEmail(), event.getTitle(), event.getContent());
+            return true;
+        } catch (Exception e) {
+            long delaySeconds = retryBaseSeconds << Math.min(event.getAttempts(), 10);
+            event.markAttemptFailed(e.getMessage(), now.plusSeconds(delaySeconds), maxAttempts);
+            if (event.getStatus() == OutboxEvent.EventStatus.FAILED) {
+                failedCounter.increment();
+                log.error("通知郵件發送失敗，放棄重試: eventId={}", event.getEventId(), e);
+            } else {
+                retryCounter.increment();
+                log.warn("通知郵件發送失敗，稍後重試: eventId={}, attempts={}", event.getEventId(), event.getAttempts());
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 單批轉送結果
+     */
+    private static final class BatchResult {
+        private final int fetched;
+        private final int published;
+
+        private BatchResult(int fetched, int published) {
+            this.fetched = fetched;
+            this.published = published;
+        }
+    }
+}
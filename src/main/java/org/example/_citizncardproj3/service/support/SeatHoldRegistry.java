@@ -0,0 +1,271 @@
+package org.example._citizncardproj3.service.support;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.exception.CustomException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 座位保留登記處
+ * 選位後到付款前的座位保留全部放在記憶體，座位本身透過 SeatMapIndex 佔用，
+ * 到期時間由雜湊時間輪管理，新增與取消皆為 O(1)，到期時依場次批次釋放。
+ * 保留憑證只有建立保留的會員可以兌換或取消。
+ */
+@Slf4j
+@Component
+public class SeatHoldRegistry {
+
+    private final SeatMapIndex seatMapIndex;
+    private final long tickMillis;
+    private final int maxHoldMinutes;
+    private final int mask;
+    private final List<ConcurrentLinkedQueue<SeatHold>> wheel;
+    private final Map<String, SeatHold> holds = new ConcurrentHashMap<>();
+    private final Map<Long, Map<String, String>> seatOwners = new ConcurrentHashMap<>();
+
+    private volatile long currentTick;
+    private long startNanos;
+    private ScheduledExecutorService ticker;
+
+    public SeatHoldRegistry(SeatMapIndex seatMapIndex,
+                            @Value("${app.seat-hold.tick-millis:1000}") long tickMillis,
+                            @Value("${app.seat-hold.wheel-size:512}") int wheelSize,
+                            @Value("${app.seat-hold.max-minutes:15}") int maxHoldMinutes) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("時間輪大小必須為2的次方");
+        }
+        this.seatMapIndex = seatMapIndex;
+        this.tickMillis = tickMillis;
+        this.maxHoldMinutes = maxHoldMinutes;
+        this.mask = wheelSize - 1;
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        startNanos = System.nanoTime();
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-hold-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    /**
+     * 保留座位
+     * @param owner 建立保留的會員Email
+     * @param scheduleId 場次ID
+     * @param seatNumbers 座位號碼列表
+     * @param minutes 保留時長(分鐘)
+     * @return 保留資訊（含保留憑證）
+     */
+    public SeatHold hold(String owner, Long scheduleId, Collection<String> seatNumbers, int minutes) {
+        if (minutes <= 0 || minutes > maxHoldMinutes) {
+            throw new CustomException.ValidationException("座位保留時間必須介於1到" + maxHoldMinutes + "分鐘");
+        }
+
+        Set<String> seats = new LinkedHashSet<>(seatNumbers);
+        List<String> conflicts = seatMapIndex.reserve(scheduleId, seats);
+        if (!conflicts.isEmpty()) {
+            throw new CustomException.SeatLockedException(String.join(",", conflicts));
+        }
+
+        long ticks = Math.max(1, Duration.ofMinutes(minutes).toMillis() / tickMillis);
+        SeatHold seatHold = new SeatHold(
+                UUID.randomUUID().toString().replace("-", ""),
+                owner,
+                scheduleId,
+                Set.copyOf(seats),
+                LocalDateTime.now().plusMinutes(minutes),
+                currentTick + ticks
+        );
+
+        holds.put(seatHold.getToken(), seatHold);
+        Map<String, String> owners = seatOwners.computeIfAbsent(scheduleId, id -> new ConcurrentHashMap<>());
+        seats.forEach(seat -> owners.put(seat, seatHold.getToken()));
+        wheel.get((int) (seatHold.deadlineTick & mask)).add(seatHold);
+        return seatHold;
+    }
+
+    /**
+     * 兌換保留憑證，座位佔用轉交給訂票；未訂購的保留座位會一併釋放
+     * 位圖佔用隨之轉交，訂票交易完成後由呼叫端呼叫 {@link SeatMapIndex#unpin(Long)}
+     * @return 兌換成功的保留資訊，憑證無效、已過期、不屬於該會員或座位不符時為空
+     */
+    public Optional<SeatHold> consume(String token, String owner, Long scheduleId, Collection<String> seatNumbers) {
+        SeatHold seatHold = holds.get(token);
+        if (seatHold == null
+                || !seatHold.getOwner().equals(owner)
+                || !seatHold.getScheduleId().equals(scheduleId)
+                || !seatHold.getSeatNumbers().containsAll(seatNumbers)
+                || !holds.remove(token, seatHold)) {
+            return Optional.empty();
+        }
+
+        forgetOwners(seatHold);
+        Set<String> unused = new HashSet<>(seatHold.getSeatNumbers());
+        unused.removeAll(seatNumbers);
+        if (!unused.isEmpty()) {
+            seatMapIndex.release(scheduleId, unused);
+        }
+        return Optional.of(seatHold);
+    }
+
+    /**
+     * 依憑證釋放保留
+     * @param owner 建立保留的會員Email
+     * @return 是否有保留被釋放，憑證不屬於該會員時視為不存在
+     */
+    public boolean release(String token, String owner) {
+        SeatHold seatHold = holds.get(token);
+        return seatHold != null && seatHold.getOwner().equals(owner) && remove(seatHold);
+    }
+
+    /**
+     * 釋放包含指定座位的保留
+     * @return 被釋放的保留數量
+     */
+    public int releaseSeats(Long scheduleId, Collection<String> seatNumbers) {
+        Map<String, String> owners = seatOwners.get(scheduleId);
+        if (owners == null) {
+            return 0;
+        }
+
+        Set<String> tokens = new HashSet<>();
+        for (String seatNumber : seatNumbers) {
+            String token = owners.get(seatNumber);
+            if (token != null) {
+                tokens.add(token);
+            }
+        }
+
+        int released = 0;
+        for (String token : tokens) {
+            SeatHold seatHold = holds.get(token);
+            if (seatHold != null && remove(seatHold)) {
+                released++;
+            }
+        }
+        return released;
+    }
+
+    /**
+     * 目前有效的保留數量
+     */
+    public int getActiveHoldCount() {
+        return holds.size();
+    }
+
+    // 推進時間輪，處理落後的所有刻度
+    void advance() {
+        try {
+            long targetTick = (System.nanoTime() - startNanos) / TimeUnit.MILLISECONDS.toNanos(tickMillis);
+            while (currentTick < targetTick) {
+                currentTick++;
+                expireBucket(currentTick);
+            }
+        } catch (Exception e) {
+            log.error("座位保留時間輪處理失敗", e);
+        }
+    }
+
+    private void expireBucket(long tick) {
+        ConcurrentLinkedQueue<SeatHold> bucket = wheel.get((int) (tick & mask));
+        Map<Long, List<String>> expiredSeats = new HashMap<>();
+        List<Long> expiredHolds = new ArrayList<>();
+        List<SeatHold> pending = new ArrayList<>();
+
+        SeatHold seatHold;
+        while ((seatHold = bucket.poll()) != null) {
+            if (seatHold.deadlineTick > tick) {
+                // 尚未到期（保留時間超過一圈）
+                pending.add(seatHold);
+            } else if (holds.remove(seatHold.getToken(), seatHold)) {
+                forgetOwners(seatHold);
+                expiredHolds.add(seatHold.getScheduleId());
+                expiredSeats.computeIfAbsent(seatHold.getScheduleId(), id -> new ArrayList<>())
+                        .addAll(seatHold.getSeatNumbers());
+            }
+        }
+        bucket.addAll(pending);
+
+        // 依場次批次釋放
+        expiredSeats.forEach(seatMapIndex::release);
+        expiredHolds.forEach(seatMapIndex::unpin);
+        if (!expiredSeats.isEmpty()) {
+            log.debug("釋放過期座位保留: schedules={}", expiredSeats.keySet());
+        }
+    }
+
+    private boolean remove(SeatHold seatHold) {
+        if (!holds.remove(seatHold.getToken(), seatHold)) {
+            return false;
+        }
+        forgetOwners(seatHold);
+        seatMapIndex.release(seatHold.getScheduleId(), seatHold.getSeatNumbers());
+        seatMapIndex.unpin(seatHold.getScheduleId());
+        return true;
+    }
+
+    private void forgetOwners(SeatHold seatHold) {
+        Map<String, String> owners = seatOwners.get(seatHold.getScheduleId());
+        if (owners != null) {
+            seatHold.getSeatNumbers().forEach(seat -> owners.remove(seat, seatHold.getToken()));
+        }
+    }
+
+    /**
+     * 單筆座位保留
+     */
+    @Getter
+    public static final class SeatHold {
+        private final String token;
+        private final String owner;
+        private final Long scheduleId;
+        private final Set<String> seatNumbers;
+        private final LocalDateTime expiresAt;
+        private final long deadlineTick;
+
+        SeatHold(String token, String owner, Long scheduleId, Set<String> seatNumbers,
+                 LocalDateTime expiresAt, long deadlineTick) {
+            this.token = token;
+            this.owner = owner;
+            this.scheduleId = scheduleId;
+            this.seatNumbers = seatNumbers;
+            this.expiresAt = expiresAt;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
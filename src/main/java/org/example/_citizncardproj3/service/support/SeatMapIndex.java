@@ -0,0 +1,562 @@
+package org.example._citizncardproj3.service.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.entity.SeatBooking;
+import org.example._citizncardproj3.model.entity.SeatManagement;
+import org.example._citizncardproj3.repository.SeatBookingRepository;
+import org.example._citizncardproj3.repository.SeatManagementRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 場次座位位圖索引
+ * 每個場次以 long[] 位圖記錄已訂座位，座位檢查、已訂座位列表與剩餘座位數皆由記憶體計算。
+ * 位圖首次使用時由 SeatManagement / SeatBooking 載入，之後隨訂票與取消增量更新。
+ * 保留中與交易未完成的座位只存在位圖，佔用中的位圖被快取淘汰後仍保留在記憶體並於下次載入時沿用，
+ * 不會以資料庫重新載入而遺失佔用。
+ * 另依座位行維護連續空位區段索引，供最佳連續座位查詢使用。
+ */
+@Slf4j
+@Component
+public class SeatMapIndex {
+
+    // 視為已佔用的座位狀態
+    static final List<SeatBooking.SeatStatus> OCCUPYING_STATUSES = List.of(
+            SeatBooking.SeatStatus.BOOKED,
+            SeatBooking.SeatStatus.OCCUPIED
+    );
+
+    // 座位行列排序：數字依數值排序，其餘依字串排序
+    public static final Comparator<String> LABEL_ORDER = Comparator
+            .comparingLong(SeatMapIndex::labelNumber)
+            .thenComparing(Comparator.naturalOrder());
+
+    private final SeatManagementRepository seatManagementRepository;
+    private final SeatBookingRepository seatBookingRepository;
+    private final double preferredRowRatio;
+    private final Cache<Long, SeatMap> seatMaps;
+    // 仍有保留或未完成交易佔用的位圖，淘汰後由此沿用
+    private final Map<Long, SeatMap> pinnedMaps = new ConcurrentHashMap<>();
+
+    public SeatMapIndex(SeatManagementRepository seatManagementRepository,
+                        SeatBookingRepository seatBookingRepository,
+                        @Value("${app.seat-map.max-schedules:2000}") long maxSchedules,
+                        @Value("${app.seat-map.expire-hours:6}") long expireHours,
+                        @Value("${app.seat-map.preferred-row-ratio:0.6}") double preferredRowRatio) {
+        this.seatManagementRepository = seatManagementRepository;
+        this.seatBookingRepository = seatBookingRepository;
+        this.preferredRowRatio = preferredRowRatio;
+        this.seatMaps = Caffeine.newBuilder()
+                .maximumSize(maxSchedules)
+                .expireAfterAccess(Duration.ofHours(expireHours))
+                .evictionListener((Long scheduleId, SeatMap seatMap, RemovalCause cause) -> {
+                    if (seatMap != null) {
+                        seatMap.evict();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 檢查單一座位是否可用
+     */
+    public boolean isAvailable(Long scheduleId, String seatNumber) {
+        return getSeatMap(scheduleId).isAvailable(seatNumber);
+    }
+
+    /**
+     * 找出不可用的座位（不存在、停用或已被預訂）
+     * @return 不可用座位列表，空列表表示全部可用
+     */
+    public List<String> findUnavailable(Long scheduleId, Collection<String> seatNumbers) {
+        return getSeatMap(scheduleId).findUnavailable(seatNumbers);
+    }
+
+    /**
+     * 原子性預訂座位，全部可用才會標記
+     * 預訂成功後位圖維持佔用，呼叫端在座位寫入資料庫或釋放後必須呼叫 {@link #unpin(Long)}
+     * @return 衝突的座位列表，空列表表示預訂成功
+     */
+    public List<String> reserve(Long scheduleId, Collection<String> seatNumbers) {
+        while (true) {
+            SeatMap seatMap = getSeatMap(scheduleId);
+            synchronized (seatMap) {
+                // 已淘汰且無佔用的位圖不再使用，改用重新載入的位圖
+                if (seatMap.isRetired()) {
+                    continue;
+                }
+                List<String> conflicts = seatMap.reserve(seatNumbers);
+                if (conflicts.isEmpty() && seatMap.pin()) {
+                    pinnedMaps.put(scheduleId, seatMap);
+                }
+                return conflicts;
+            }
+        }
+    }
+
+    /**
+     * 解除一次預訂的佔用，座位已寫入資料庫或已釋放
+     */
+    public void unpin(Long scheduleId) {
+        SeatMap seatMap = pinnedMaps.get(scheduleId);
+        if (seatMap == null) {
+            log.warn("解除座位位圖佔用時找不到位圖: scheduleId={}", scheduleId);
+            return;
+        }
+        synchronized (seatMap) {
+            if (seatMap.unpin()) {
+                pinnedMaps.remove(scheduleId, seatMap);
+            }
+        }
+    }
+
+    /**
+     * 解析座位號碼對應的座位ID
+     * @return 依輸入順序排列的座位號碼與座位ID對照
+     */
+    public Map<String, Long> resolveSeatIds(Long scheduleId, Collection<String> seatNumbers) {
+        return getSeatMap(scheduleId).resolveSeatIds(seatNumbers);
+    }
+
+    /**
+     * 釋放座位
+     */
+    public void release(Long scheduleId, Collection<String> seatNumbers) {
+        SeatMap seatMap = pinnedMaps.get(scheduleId);
+        if (seatMap == null) {
+            seatMap = seatMaps.getIfPresent(scheduleId);
+        }
+        if (seatMap != null) {
+            seatMap.release(seatNumbers);
+        }
+    }
+
+    /**
+     * 獲取場次已訂座位
+     */
+    public List<String> getBookedSeats(Long scheduleId) {
+        return getSeatMap(scheduleId).getBookedSeats();
+    }
+
+    /**
+     * 獲取場次剩餘座位數
+     */
+    public int getAvailableCount(Long scheduleId) {
+        return getSeatMap(scheduleId).getAvailableCount();
+    }
+
+    /**
+     * 尋找最佳連續座位
+     * 依偏好排序逐行檢查連續空位區段，行內取最接近中央的位置
+     * @param scheduleId 場次ID
+     * @param count 座位數量
+     * @param zone 座位區域，null 表示不限
+     * @return 連續座位號碼列表，找不到時為空列表
+     */
+    public List<String> findBestAvailable(Long scheduleId, int count, String zone) {
+        if (count <= 0) {
+            throw new CustomException.ValidationException("座位數量必須大於0");
+        }
+        return getSeatMap(scheduleId).findBestAvailable(count, zone);
+    }
+
+    /**
+     * 判斷兩個依序排列的座位列是否相鄰，列號不連續視為中間有走道
+     */
+    public static boolean isAdjacent(String previousColumn, String column) {
+        long previous = labelNumber(previousColumn);
+        long current = labelNumber(column);
+        return previous == Long.MAX_VALUE || current == Long.MAX_VALUE || current - previous == 1;
+    }
+
+    // 非數字標籤回傳 Long.MAX_VALUE，排在數字標籤之後
+    static long labelNumber(String label) {
+        if (label == null || label.isEmpty() || label.length() > 18) {
+            return Long.MAX_VALUE;
+        }
+        for (int i = 0; i < label.length(); i++) {
+            if (!Character.isDigit(label.charAt(i))) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return Long.parseLong(label);
+    }
+
+    /**
+     * 移除場次位圖，下次使用時重新載入；仍有佔用的位圖會繼續沿用
+     */
+    public void invalidate(Long scheduleId) {
+        seatMaps.asMap().computeIfPresent(scheduleId, (id, seatMap) -> {
+            seatMap.evict();
+            return null;
+        });
+    }
+
+    private SeatMap getSeatMap(Long scheduleId) {
+        return seatMaps.get(scheduleId, this::load);
+    }
+
+    private SeatMap load(Long scheduleId) {
+        SeatMap pinned = pinnedMaps.get(scheduleId);
+        if (pinned != null && pinned.adopt()) {
+            log.debug("沿用仍有佔用的場次座位位圖: scheduleId={}", scheduleId);
+            return pinned;
+        }
+
+        List<Object[]> layout = seatManagementRepository.findSeatLayoutBySchedule(scheduleId);
+        List<String> bookedSeats = seatBookingRepository.findSeatNumbersByScheduleIdAndStatusIn(
+                scheduleId, OCCUPYING_STATUSES);
+
+        SeatMap seatMap = new SeatMap(layout, preferredRowRatio);
+        seatMap.markBooked(bookedSeats);
+        log.debug("載入場次座位位圖: scheduleId={}, seats={}, booked={}",
+                scheduleId, seatMap.size(), bookedSeats.size());
+        return seatMap;
+    }
+
+    /**
+     * 單一場次的座位位圖
+     */
+    static final class SeatMap {
+
+        private final Map<String, Integer> positions;
+        private final String[] labels;
+        private final long[] seatIds;
+        private final long[] blocked;
+        private final long[] booked;
+        private final int activeSeats;
+        private final RowIndex[] rowsByPreference;
+        private final RowIndex[] rowOf;
+        private final int[] slotOf;
+        private int bookedCount;
+        private int pins;
+        private boolean evicted;
+
+        // layout 每列為 [seatId, seatLabel, SeatManagement.SeatStatus, isActive, seatRow, seatColumn, seatZone]
+        SeatMap(List<Object[]> layout, double preferredRowRatio) {
+            int size = layout.size();
+            this.positions = new HashMap<>(size * 2);
+            this.labels = new String[size];
+            this.seatIds = new long[size];
+            this.blocked = new long[(size + 63) >>> 6];
+            this.booked = new long[(size + 63) >>> 6];
+
+            int active = 0;
+            for (int i = 0; i < size; i++) {
+                Object[] row = layout.get(i);
+                seatIds[i] = (Long) row[0];
+                labels[i] = (String) row[1];
+                positions.put(labels[i], i);
+
+                boolean usable = row[2] == SeatManagement.SeatStatus.AVAILABLE && Boolean.TRUE.equals(row[3]);
+                if (usable) {
+                    active++;
+                } else {
+                    blocked[i >>> 6] |= 1L << i;
+                }
+            }
+            this.activeSeats = active;
+
+            this.rowOf = new RowIndex[size];
+            this.slotOf = new int[size];
+            this.rowsByPreference = buildRows(layout, preferredRowRatio);
+        }
+
+        // 依座位行分組並建立連續空位索引，回傳依偏好排序的座位行
+        private RowIndex[] buildRows(List<Object[]> layout, double preferredRowRatio) {
+            Map<String, List<Integer>> grouped = new TreeMap<>(LABEL_ORDER);
+            for (int i = 0; i < layout.size(); i++) {
+                String row = (String) layout.get(i)[4];
+                grouped.computeIfAbsent(row, key -> new ArrayList<>()).add(i);
+            }
+
+            List<RowIndex> rows = new ArrayList<>(grouped.size());
+            for (Map.Entry<String, List<Integer>> entry : grouped.entrySet()) {
+                List<Integer> positions = entry.getValue();
+                positions.sort(Comparator.comparing(position -> (String) layout.get(position)[5], LABEL_ORDER));
+
+                RowIndex rowIndex = new RowIndex(rows.size(), (String) layout.get(positions.get(0))[6], positions.size());
+                String previousColumn = null;
+                for (int slot = 0; slot < positions.size(); slot++) {
+                    int position = positions.get(slot);
+                    String column = (String) layout.get(position)[5];
+                    rowIndex.seats[slot] = position;
+                    rowIndex.breakBefore[slot] = previousColumn == null || !isAdjacent(previousColumn, column);
+                    rowOf[position] = rowIndex;
+                    slotOf[position] = slot;
+                    previousColumn = column;
+                    if (isFree(position)) {
+                        rowIndex.free(slot);
+                    }
+                }
+                rows.add(rowIndex);
+            }
+
+            // 以偏好行為中心向前後展開，距離相同時偏好後排
+            double preferredRow = (rows.size() - 1) * preferredRowRatio;
+            rows.sort(Comparator.comparingDouble((RowIndex row) -> Math.abs(row.order - preferredRow))
+                    .thenComparing(row -> -row.order));
+            return rows.toArray(new RowIndex[0]);
+        }
+
+        int size() {
+            return labels.length;
+        }
+
+        // 回傳是否由未佔用轉為佔用
+        synchronized boolean pin() {
+            return pins++ == 0;
+        }
+
+        // 回傳是否已無佔用
+        synchronized boolean unpin() {
+            if (pins == 0) {
+                return false;
+            }
+            return --pins == 0;
+        }
+
+        synchronized void evict() {
+            evicted = true;
+        }
+
+        // 被快取淘汰後若仍有佔用，重新放回快取沿用
+        synchronized boolean adopt() {
+            if (pins == 0) {
+                return false;
+            }
+            evicted = false;
+            return true;
+        }
+
+        synchronized boolean isRetired() {
+            return evicted && pins == 0;
+        }
+
+        synchronized boolean isAvailable(String seatNumber) {
+            Integer position = positions.get(seatNumber);
+            return position != null && isFree(position);
+        }
+
+        synchronized List<String> findUnavailable(Collection<String> seatNumbers) {
+            List<String> unavailable = new ArrayList<>();
+            for (String seatNumber : seatNumbers) {
+                Integer position = positions.get(seatNumber);
+                if (position == null || !isFree(position)) {
+                    unavailable.add(seatNumber);
+                }
+            }
+            return unavailable;
+        }
+
+        synchronized List<String> reserve(Collection<String> seatNumbers) {
+            List<String> conflicts = findUnavailable(seatNumbers);
+            if (!conflicts.isEmpty()) {
+                return conflicts;
+            }
+
+            // 同一請求內重複的座位也視為衝突
+            long[] claimed = new long[booked.length];
+            for (String seatNumber : seatNumbers) {
+                int position = positions.get(seatNumber);
+                long mask = 1L << position;
+                if ((claimed[position >>> 6] & mask) != 0) {
+                    conflicts.add(seatNumber);
+                }
+                claimed[position >>> 6] |= mask;
+            }
+            if (!conflicts.isEmpty()) {
+                return conflicts;
+            }
+
+            for (int i = 0; i < booked.length; i++) {
+                booked[i] |= claimed[i];
+                bookedCount += Long.bitCount(claimed[i]);
+            }
+            for (String seatNumber : seatNumbers) {
+                int position = positions.get(seatNumber);
+                rowOf[position].occupy(slotOf[position]);
+            }
+            return conflicts;
+        }
+
+        synchronized void release(Collection<String> seatNumbers) {
+            for (String seatNumber : seatNumbers) {
+                Integer position = positions.get(seatNumber);
+                if (position == null) {
+                    continue;
+                }
+                long mask = 1L << position;
+                if ((booked[position >>> 6] & mask) != 0) {
+                    booked[position >>> 6] &= ~mask;
+                    if ((blocked[position >>> 6] & mask) == 0) {
+                        bookedCount--;
+                        rowOf[position].free(slotOf[position]);
+                    }
+                }
+            }
+        }
+
+        synchronized void markBooked(Collection<String> seatNumbers) {
+            for (String seatNumber : seatNumbers) {
+                Integer position = positions.get(seatNumber);
+                if (position == null) {
+                    continue;
+                }
+                long mask = 1L << position;
+                if ((booked[position >>> 6] & mask) == 0) {
+                    booked[position >>> 6] |= mask;
+                    if ((blocked[position >>> 6] & mask) == 0) {
+                        bookedCount++;
+                        rowOf[position].occupy(slotOf[position]);
+                    }
+                }
+            }
+        }
+
+        Map<String, Long> resolveSeatIds(Collection<String> seatNumbers) {
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (String seatNumber : seatNumbers) {
+                Integer position = positions.get(seatNumber);
+                if (position == null) {
+                    throw new CustomException.SeatNotFoundException(seatNumber);
+                }
+                result.put(seatNumber, seatIds[position]);
+            }
+            return result;
+        }
+
+        synchronized List<String> getBookedSeats() {
+            List<String> result = new ArrayList<>(bookedCount);
+            for (int word = 0; word < booked.length; word++) {
+                long bits = booked[word];
+                while (bits != 0) {
+                    int bit = Long.numberOfTrailingZeros(bits);
+                    result.add(labels[(word << 6) + bit]);
+                    bits &= bits - 1;
+                }
+            }
+            return result;
+        }
+
+        synchronized int getAvailableCount() {
+            return Math.max(activeSeats - bookedCount, 0);
+        }
+
+        synchronized List<String> findBestAvailable(int count, String zone) {
+            for (RowIndex row : rowsByPreference) {
+                if (row.maxRun < count || (zone != null && !zone.equals(row.zone))) {
+                    continue;
+                }
+                int start = row.bestStart(count);
+                List<String> result = new ArrayList<>(count);
+                for (int slot = start; slot < start + count; slot++) {
+                    result.add(labels[row.seats[slot]]);
+                }
+                return result;
+            }
+            return List.of();
+        }
+
+        private boolean isFree(int position) {
+            long mask = 1L << position;
+            return ((booked[position >>> 6] | blocked[position >>> 6]) & mask) == 0;
+        }
+    }
+
+    /**
+     * 單一座位行的連續空位區段索引
+     * freeRuns 以區段起點為鍵、長度為值，區段不跨越走道；佔用時切分、釋放時與相鄰區段合併
+     */
+    static final class RowIndex {
+
+        private final int order;
+        private final String zone;
+        private final int[] seats;
+        private final boolean[] breakBefore;
+        private final TreeMap<Integer, Integer> freeRuns = new TreeMap<>();
+        private int maxRun;
+
+        RowIndex(int order, String zone, int size) {
+            this.order = order;
+            this.zone = zone;
+            this.seats = new int[size];
+            this.breakBefore = new boolean[size];
+        }
+
+        void occupy(int slot) {
+            Map.Entry<Integer, Integer> run = freeRuns.floorEntry(slot);
+            if (run == null || run.getKey() + run.getValue() <= slot) {
+                return;
+            }
+            int start = run.getKey();
+            int end = start + run.getValue();
+            freeRuns.remove(start);
+            if (slot > start) {
+                freeRuns.put(start, slot - start);
+            }
+            if (slot + 1 < end) {
+                freeRuns.put(slot + 1, end - slot - 1);
+            }
+            if (run.getValue() == maxRun) {
+                maxRun = freeRuns.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+            }
+        }
+
+        void free(int slot) {
+            int start = slot;
+            int end = slot + 1;
+            if (!breakBefore[slot]) {
+                Map.Entry<Integer, Integer> left = freeRuns.lowerEntry(slot);
+                if (left != null && left.getKey() + left.getValue() == slot) {
+                    start = left.getKey();
+                    freeRuns.remove(start);
+                }
+            }
+            if (end < seats.length && !breakBefore[end]) {
+                Integer right = freeRuns.remove(end);
+                if (right != null) {
+                    end += right;
+                }
+            }
+            freeRuns.put(start, end - start);
+            maxRun = Math.max(maxRun, end - start);
+        }
+
+        // 在足夠長的區段中挑選最接近行中央的起點
+        int bestStart(int count) {
+            double center = (seats.length - count) / 2.0;
+            int bestStart = -1;
+            double bestDistance = Double.MAX_VALUE;
+            for (Map.Entry<Integer, Integer> run : freeRuns.entrySet()) {
+                if (run.getValue() < count) {
+                    continue;
+                }
+                int first = run.getKey();
+                int last = first + run.getValue() - count;
+                int start = (int) Math.max(first, Math.min(last, Math.round(center)));
+                double distance = Math.abs(start - center);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    bestStart = start;
+                }
+            }
+            return bestStart;
+        }
+    }
+}
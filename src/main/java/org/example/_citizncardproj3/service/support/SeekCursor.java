@@ -0,0 +1,92 @@
+package org.example._citizncardproj3.service.support;
+
+import lombok.Getter;
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.dto.response.CursorPage;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 鍵集分頁游標
+ * 以 (時間, ID) 作為排序鍵，下一頁條件為 時間 < t OR (時間 = t AND ID < id)，
+ * 可直接利用 (所屬者, 時間, ID) 索引，不需 OFFSET 與 COUNT。游標對用戶端為不透明字串。
+ */
+@Getter
+public final class SeekCursor {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // 第一頁的起點，排在所有資料之後
+    private static final SeekCursor FIRST = new SeekCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    private final LocalDateTime timestamp;
+    private final Long id;
+
+    private SeekCursor(LocalDateTime timestamp, Long id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    /**
+     * 解析游標，空值表示第一頁
+     */
+    public static SeekCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            return new SeekCursor(
+                    LocalDateTime.parse(decoded.substring(0, separator)),
+                    Long.parseLong(decoded.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new CustomException.ValidationException("無效的分頁游標");
+        }
+    }
+
+    public static String encode(LocalDateTime timestamp, Long id) {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 查詢用的分頁參數，多取一筆用來判斷是否還有下一頁
+     */
+    public static Pageable fetchSize(int size) {
+        return PageRequest.of(0, clamp(size) + 1);
+    }
+
+    /**
+     * 將多取一筆的查詢結果組成游標分頁
+     */
+    public static <T, R> CursorPage<R> page(List<T> rows, int size,
+                                             Function<T, LocalDateTime> timestamp,
+                                             Function<T, Long> id,
+                                             Function<T, R> mapper) {
+        int limit = clamp(size);
+        boolean hasNext = rows.size() > limit;
+        List<T> content = hasNext ? rows.subList(0, limit) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            T last = content.get(content.size() - 1);
+            nextCursor = encode(timestamp.apply(last), id.apply(last));
+        }
+        return new CursorPage<>(content.stream().map(mapper).toList(), nextCursor, hasNext);
+    }
+
+    private static int clamp(int size) {
+        if (size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+}
@@ -0,0 +1,207 @@
+package org.example._citizncardproj3.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.model.entity.Transaction;
+import org.example._citizncardproj3.model.entity.Wallet;
+import org.example._citizncardproj3.repository.LedgerEntryRepository;
+import org.example._citizncardproj3.repository.TransactionRepository;
+import org.example._citizncardproj3.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 逾時交易清理
+ * 定期以鍵集分頁找出逾時仍為 PENDING 的交易，每一批在獨立交易中：
+ * 依錢包ID順序鎖定相關錢包、鎖定仍為 PENDING 的交易、以沖銷分錄抵銷其淨餘額異動，
+ * 最後以集合式語句標記為 FAILED。沖銷以「交易淨額歸零」為準，重複執行不會重複沖銷。
+ */
+@Slf4j
+@Component
+public class TimeoutTransactionReaper {
+
+    private static final String TIMEOUT_MESSAGE = "交易逾時未完成，已自動取消";
+
+    private final TransactionRepository transactionRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final WalletRepository walletRepository;
+    private final WalletLedger walletLedger;
+    private final TransactionTemplate transactionTemplate;
+    private final long timeoutMinutes;
+    private final int chunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter runCounter;
+    private final Counter failedCounter;
+    private final Counter compensationCounter;
+    private final Timer runTimer;
+
+    public TimeoutTransactionReaper(TransactionRepository transactionRepository,
+                                    LedgerEntryRepository ledgerEntryRepository,
+                                    WalletRepository walletRepository,
+                                    WalletLedger walletLedger,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.transaction-timeout.timeout-minutes:30}") long timeoutMinutes,
+                                    @Value("${app.transaction-timeout.chunk-size:500}") int chunkSize) {
+        this.transactionRepository = transactionRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.walletRepository = walletRepository;
+        this.walletLedger = walletLedger;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.timeoutMinutes = timeoutMinutes;
+        this.chunkSize = chunkSize;
+
+        this.runCounter = Counter.builder("transaction.timeout.runs")
+                .description("逾時交易清理執行次數")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("transaction.timeout.failed")
+                .description("標記為逾時失敗的交易數")
+                .register(meterRegistry);
+        this.compensationCounter = Counter.builder("transaction.timeout.compensations")
+                .description("逾時交易的沖銷分錄數")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("transaction.timeout.duration")
+                .description("逾時交易清理耗時")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.transaction-timeout.sweep-interval-millis:60000}")
+    public void scheduledReap() {
+        reap();
+    }
+
+    /**
+     * 執行一次清理
+     * @return 本次執行結果，已有清理在執行時回傳空結果
+     */
+    public ReapResult reap() {
+        if (!running.compareAndSet(false, true)) {
+            return new ReapResult(0, 0, 0, 0L);
+        }
+        long start = System.nanoTime();
+        try {
+            ReapResult result = reapAll(start);
+            runTimer.record(result.getElapsedMillis(), TimeUnit.MILLISECONDS);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReapResult reapAll(long start) {
+        LocalDateTime timeout = LocalDateTime.now().minusMinutes(timeoutMinutes);
+        long afterId = 0L;
+        int scanned = 0;
+        int failed = 0;
+        int compensations = 0;
+
+        while (true) {
+            List<Long> transactionIds = transactionRepository.findTimedOutTransactionIds(
+                    Transaction.TransactionStatus.PENDING, timeout, afterId, PageRequest.of(0, chunkSize));
+            if (transactionIds.isEmpty()) {
+                break;
+            }
+            afterId = transactionIds.get(transactionIds.size() - 1);
+            scanned += transactionIds.size();
+
+            try {
+                int[] chunk = reapChunk(transactionIds);
+                failed += chunk[0];
+                compensations += chunk[1];
+            } catch (Exception e) {
+                // 單批失敗不影響後續批次，下次執行會再處理
+                log.error("逾時交易清理批次失敗: afterId={}", afterId, e);
+            }
+
+            if (transactionIds.size() < chunkSize) {
+                break;
+            }
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        runCounter.increment();
+        failedCounter.increment(failed);
+        compensationCounter.increment(compensations);
+        if (scanned > 0) {
+            log.info("逾時交易清理完成: scanned={}, failed={}, compensations={}, elapsedMillis={}",
+                    scanned, failed, compensations, elapsedMillis);
+        }
+        return new ReapResult(scanned, failed, compensations, elapsedMillis);
+    }
+
+    /**
+     * 處理一批逾時交易
+     * @return [標記失敗的交易數, 沖銷分錄數]
+     */
+    private int[] reapChunk(List<Long> transactionIds) {
+        // 錢包ID不會變動，可在鎖定前查詢；先鎖錢包再鎖交易，與付款流程的鎖定順序一致
+        List<Long> walletIds = transactionRepository.findWalletIdsByTransactionIds(transactionIds);
+
+        int[] result = transactionTemplate.execute(status -> {
+            Map<Long, Wallet> wallets = walletRepository.findAllByIdsWithLock(walletIds).stream()
+                    .collect(Collectors.toMap(Wallet::getWalletId, Function.identity()));
+
+            // 期間已完成或已取消的交易不在結果中
+            List<Long> pendingIds = transactionRepository.findByIdsAndStatusWithLock(
+                            transactionIds, Transaction.TransactionStatus.PENDING).stream()
+                    .map(Transaction::getTransactionId)
+                    .collect(Collectors.toList());
+            if (pendingIds.isEmpty()) {
+                return new int[]{0, 0};
+            }
+
+            List<WalletLedger.Posting> postings = new ArrayList<>();
+            for (Object[] row : ledgerEntryRepository.findNetAmountsByTransactionIds(pendingIds)) {
+                Long transactionId = (Long) row[0];
+                Wallet wallet = wallets.get((Long) row[1]);
+                if (wallet == null) {
+                    // 分錄一律記在交易所屬的錢包，不應發生
+                    log.warn("逾時交易的分錄不屬於交易錢包，略過沖銷: transactionId={}, walletId={}",
+                            transactionId, row[1]);
+                    continue;
+                }
+                Transaction.TransactionType type = (Transaction.TransactionType) row[2];
+                long netMinor = ((Number) row[3]).longValue();
+                postings.add(new WalletLedger.Posting(wallet, WalletLedger.toAmount(-netMinor), type, transactionId));
+            }
+            if (!postings.isEmpty()) {
+                walletLedger.compensate(postings);
+            }
+
+            int updated = transactionRepository.updateStatusByIds(pendingIds,
+                    Transaction.TransactionStatus.PENDING, Transaction.TransactionStatus.FAILED, TIMEOUT_MESSAGE);
+            return new int[]{updated, postings.size()};
+        });
+        return result == null ? new int[]{0, 0} : result;
+    }
+
+    /**
+     * 單次清理結果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ReapResult {
+        private final int scanned;
+        private final int failed;
+        private final int compensations;
+        private final long elapsedMillis;
+    }
+}
@@ -0,0 +1,120 @@
+package org.example._citizncardproj3.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.repository.WalletDailyRollupRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 每日彙總重建
+ * 定期由成功交易的分錄重新計算最近已結束的日期，修正退款、沖銷或寫入失敗造成的差異；
+ * 管理者可指定任意已結束的日期區間回補，包含分錄帳上線前的歷史交易。
+ * 每一天在獨立交易中先刪除再重建，失敗的日期記錄後略過，下次執行會再處理。
+ */
+@Slf4j
+@Component
+public class TransactionRollupRebuilder {
+
+    private final WalletDailyRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int rebuildDays;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter rebuiltDayCounter;
+    private final Timer runTimer;
+
+    public TransactionRollupRebuilder(WalletDailyRollupRepository rollupRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.rollup.rebuild-days:3}") int rebuildDays) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuildDays = rebuildDays;
+
+        this.rebuiltDayCounter = Counter.builder("transaction.rollup.rebuilt.days")
+                .description("重建的彙總日數")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("transaction.rollup.rebuild.duration")
+                .description("每日彙總重建耗時")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.rollup.rebuild-cron:0 30 2 * * *}")
+    public void scheduledRebuild() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        rebuild(yesterday.minusDays(rebuildDays - 1L), yesterday);
+    }
+
+    /**
+     * 重建日期區間的彙總
+     * @param from 開始日期（含）
+     * @param to 結束日期（含）
+     * @return 成功重建的日數，已有重建在執行時回傳 0
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        Integer rebuilt = tryRebuild(from, to);
+        return rebuilt == null ? 0 : rebuilt;
+    }
+
+    /**
+     * 回補日期區間的彙總（管理用）
+     * @param from 開始日期（含）
+     * @param to 結束日期（含），必須早於今天
+     * @return 成功重建的日數
+     * @throws CustomException.RollupRebuildBusyException 已有重建在執行
+     */
+    public int backfill(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new CustomException.ValidationException("開始日期不能晚於結束日期");
+        }
+        // 今天的彙總仍在累加，重建會與進行中的交易交錯
+        if (!to.isBefore(LocalDate.now())) {
+            throw new CustomException.ValidationException("只能重建已結束的日期");
+        }
+        Integer rebuilt = tryRebuild(from, to);
+        if (rebuilt == null) {
+            throw new CustomException.RollupRebuildBusyException();
+        }
+        return rebuilt;
+    }
+
+    // 已有重建在執行時回傳 null
+    private Integer tryRebuild(LocalDate from, LocalDate to) {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            int rebuilt = 0;
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                LocalDate statDate = date;
+                try {
+                    Integer rows = transactionTemplate.execute(status -> rollupRepository.rebuildDay(statDate));
+                    rebuilt++;
+                    log.debug("每日彙總重建完成: date={}, rows={}", statDate, rows);
+                } catch (Exception e) {
+                    log.error("每日彙總重建失敗: date={}", statDate, e);
+                }
+            }
+
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            rebuiltDayCounter.increment(rebuilt);
+            runTimer.record(elapsedMillis, TimeUnit.MILLISECONDS);
+            log.info("每日彙總重建完成: from={}, to={}, days={}, elapsedMillis={}", from, to, rebuilt, elapsedMillis);
+            return rebuilt;
+        } finally {
+            running.set(false);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.example._citizncardproj3.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.model.entity.Transaction;
+import org.example._citizncardproj3.model.entity.WalletDailyRollup;
+import org.example._citizncardproj3.repository.WalletDailyRollupRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 錢包交易彙總
+ * 交易成功時在同一個資料庫交易中累加每日彙總，統計查詢只讀取彙總列。
+ * 呼叫端已鎖定錢包，同一錢包的彙總列不會有額外的鎖競爭。
+ */
+@Slf4j
+@Component
+public class TransactionRollups {
+
+    // 依彙總鍵排序後寫入，多筆交易同時累加時鎖定順序一致
+    private static final Comparator<WalletDailyRollup> KEY_ORDER = Comparator
+            .comparing(WalletDailyRollup::getWalletId)
+            .thenComparing(WalletDailyRollup::getStatDate)
+            .thenComparing(WalletDailyRollup::getTransactionType)
+            .thenComparing(WalletDailyRollup::getDirection);
+
+    private final WalletDailyRollupRepository rollupRepository;
+    private final Counter recordedCounter;
+
+    public TransactionRollups(WalletDailyRollupRepository rollupRepository, MeterRegistry meterRegistry) {
+        this.rollupRepository = rollupRepository;
+        this.recordedCounter = Counter.builder("transaction.rollup.recorded")
+                .description("累加至每日彙總的交易數")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 交易方向：存款與退款為入帳，其餘為出帳
+     */
+    public static WalletDailyRollup.Direction directionOf(Transaction.TransactionType type) {
+        return type == Transaction.TransactionType.DEPOSIT || type == Transaction.TransactionType.REFUND
+                ? WalletDailyRollup.Direction.IN
+                : WalletDailyRollup.Direction.OUT;
+    }
+
+    /**
+     * 記錄單筆成功交易
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Transaction transaction) {
+        record(transaction, directionOf(transaction.getType()));
+    }
+
+    /**
+     * 記錄單筆成功交易並指定方向（轉帳的轉出與轉入）
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Transaction transaction, WalletDailyRollup.Direction direction) {
+        recordAll(List.of(transaction), List.of(direction));
+    }
+
+    /**
+     * 批次記錄成功交易
+     * @param transactions 成功交易
+     * @param directions 對應的資金方向
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(List<Transaction> transactions, List<WalletDailyRollup.Direction> directions) {
+        Map<String, WalletDailyRollup> increments = new LinkedHashMap<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            WalletDailyRollup increment = toIncrement(transactions.get(i), directions.get(i));
+            String key = increment.getWalletId() + "|" + increment.getStatDate() + "|"
+                    + increment.getTransactionType() + "|" + increment.getDirection();
+            increments.merge(key, increment, WalletDailyRollup::merge);
+        }
+
+        List<WalletDailyRollup> sorted = new ArrayList<>(increments.values());
+        sorted.sort(KEY_ORDER);
+        rollupRepository.upsertIncrements(sorted);
+        recordedCounter.increment(transactions.size());
+    }
+
+    /**
+     * 查詢錢包的每日彙總
+     * @param walletId 錢包ID
+     * @param from 開始日期（含）
+     * @param to 結束日期（含）
+     */
+    @Transactional(readOnly = true)
+    public List<WalletDailyRollup> dailyStats(Long walletId, LocalDate from, LocalDate to) {
+        return rollupRepository.findByWalletIdAndStatDateBetweenOrderByStatDateAsc(walletId, from, to);
+    }
+
+    /**
+     * 每日統計報表
+     * @param walletId 錢包ID
+     * @param from 開始日期（含）
+     * @param to 結束日期（含）
+     * @return walletId、from、to 與每日各類型的筆數及金額
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> dailyReport(Long walletId, LocalDate from, LocalDate to) {
+        List<Map<String, Object>> days = new ArrayList<>();
+        for (WalletDailyRollup rollup : dailyStats(walletId, from, to)) {
+            Map<String, Object> day = new LinkedHashMap<>();
+            day.put("date", rollup.getStatDate());
+            day.put("type", rollup.getTransactionType());
+            day.put("direction", rollup.getDirection());
+            day.put("count", rollup.getTxCount());
+            day.put("amount", WalletLedger.toAmount(rollup.getAmountMinor()));
+            day.put("minAmount", WalletLedger.toAmount(rollup.getMinAmountMinor()));
+            day.put("maxAmount", WalletLedger.toAmount(rollup.getMaxAmountMinor()));
+            days.add(day);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("walletId", walletId);
+        report.put("from", from);
+        report.put("to", to);
+        report.put("days", days);
+        return report;
+    }
+
+    /**
+     * 依交易類型彙總錢包的全部成功交易
+     * @return [交易類型, 筆數, 金額合計]
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> totalsByType(Long walletId) {
+        List<Object[]> totals = new ArrayList<>();
+        for (Object[] row : rollupRepository.sumByTransactionType(walletId)) {
+            long amountMinor = ((Number) row[2]).longValue();
+            totals.add(new Object[]{row[0], ((Number) row[1]).longValue(), WalletLedger.toAmount(amountMinor)});
+        }
+        return totals;
+    }
+
+    private WalletDailyRollup toIncrement(Transaction transaction, WalletDailyRollup.Direction direction) {
+        return WalletDailyRollup.increment(
+                transaction.getWallet().getWalletId(),
+                transaction.getTransactionTime().toLocalDate(),
+                transaction.getType(),
+                direction,
+                WalletLedger.toMinor(transaction.getAmount()));
+    }
+}
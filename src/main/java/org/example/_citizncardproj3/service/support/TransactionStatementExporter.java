@@ -0,0 +1,322 @@
+package org.example._citizncardproj3.service.support;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 交易明細匯出
+ * 以單向游標逐列讀取交易並直接寫入 gzip 壓縮的輸出串流，
+ * 記憶體用量只和 fetch size 與緩衝區大小有關，與明細筆數無關。
+ * 每個匯出在下載期間佔用一條資料庫連線，同時進行的匯出數以許可數限制，避免耗盡連線池。
+ */
+@Slf4j
+@Component
+public class TransactionStatementExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String[] CSV_HEADER = {
+            "transactionId", "transactionNumber", "transactionTime", "type",
+            "status", "paymentMethod", "amount", "description"
+    };
+
+    private final TransactionRepository transactionRepository;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final int fetchSize;
+    private final Semaphore exportPermits;
+
+    private final Counter rowCounter;
+    private final Counter rejectedCounter;
+    private final Timer exportTimer;
+
+    public TransactionStatementExporter(TransactionRepository transactionRepository,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${app.statement-export.fetch-size:1000}") int fetchSize,
+                                        @Value("${app.statement-export.max-concurrent:4}") int maxConcurrent) {
+        this.transactionRepository = transactionRepository;
+        this.fetchSize = fetchSize;
+        this.exportPermits = new Semaphore(maxConcurrent);
+
+        this.rowCounter = Counter.builder("statement.export.rows")
+                .description("匯出的交易明細筆數")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("statement.export.rejected")
+                .description("因同時匯出數已達上限而拒絕的匯出")
+                .register(meterRegistry);
+        this.exportTimer = Timer.builder("statement.export.duration")
+                .description("交易明細匯出耗時")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 預約一個匯出許可
+     * 在回應狀態送出前呼叫，許可已滿時直接拒絕；取得的許可在 {@link Export#writeTo(OutputStream)} 結束時釋放。
+     * @param walletId 錢包ID
+     * @param startTime 開始時間（含，呼叫端須先驗證）
+     * @param endTime 結束時間（含）
+     * @param format 輸出格式
+     * @return 尚未執行的匯出
+     */
+    public Export prepare(Long walletId, LocalDateTime startTime, LocalDateTime endTime, Format format) {
+        if (!exportPermits.tryAcquire()) {
+            rejectedCounter.increment();
+            log.warn("交易明細匯出數已達上限: walletId={}", walletId);
+            throw new CustomException.StatementExportBusyException();
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return out -> {
+            try {
+                return export(walletId, startTime, endTime, format, out);
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    exportPermits.release();
+                }
+            }
+        };
+    }
+
+    /**
+     * 匯出錢包交易明細
+     * @param walletId 錢包ID
+     * @param startTime 開始時間（含）
+     * @param endTime 結束時間（含）
+     * @param format 輸出格式
+     * @param out 輸出串流（寫入 gzip 壓縮資料，結束後不關閉）
+     * @return 匯出筆數
+     */
+    public long export(Long walletId, LocalDateTime startTime, LocalDateTime endTime,
+                       Format format, OutputStream out) throws IOException {
+        Timer.Sample sample = Timer.start();
+        GZIPOutputStream gzip = new GZIPOutputStream(new NonClosingOutputStream(out), BUFFER_SIZE);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+            rowWriter.begin();
+
+            long[] rows = {0L};
+            try {
+                transactionRepository.streamWalletTransactions(walletId, startTime, endTime, fetchSize, rs -> {
+                    try {
+                        rowWriter.write(rs);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    rows[0]++;
+                });
+            } catch (UncheckedIOException e) {
+                // 用戶端中斷下載時停止讀取游標
+                throw e.getCause();
+            }
+
+            rowWriter.end();
+            rowCounter.increment(rows[0]);
+            log.info("交易明細匯出完成: walletId={}, format={}, rows={}", walletId, format, rows[0]);
+            return rows[0];
+        } finally {
+            sample.stop(exportTimer);
+        }
+    }
+
+    /**
+     * 已取得許可、等待寫入回應的匯出
+     */
+    @FunctionalInterface
+    public interface Export {
+        /**
+         * 寫入匯出內容並釋放許可
+         * @param out 輸出串流（寫入 gzip 壓縮資料，結束後不關閉）
+         * @return 匯出筆數
+         */
+        long writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 匯出格式
+     */
+    @Getter
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+    }
+
+    private interface RowWriter {
+        void begin() throws IOException;
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void end() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        private CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write(String.join(",", CSV_HEADER));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            writer.write(Long.toString(rs.getLong(1)));
+            writer.write(',');
+            writeText(rs.getString(2));
+            writer.write(',');
+            writeTime(rs.getTimestamp(3));
+            writer.write(',');
+            writeText(rs.getString(4));
+            writer.write(',');
+            writeText(rs.getString(5));
+            writer.write(',');
+            writeText(rs.getString(6));
+            writer.write(',');
+            writeAmount(rs.getBigDecimal(7));
+            writer.write(',');
+            writeText(rs.getString(8));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void end() {
+        }
+
+        private void writeTime(Timestamp value) throws IOException {
+            if (value != null) {
+                writer.write(value.toLocalDateTime().toString());
+            }
+        }
+
+        private void writeAmount(BigDecimal value) throws IOException {
+            if (value != null) {
+                writer.write(value.toPlainString());
+            }
+        }
+
+        // RFC 4180 跳脫；以公式字元開頭的文字加上單引號，避免試算表執行公式
+        private void writeText(String value) throws IOException {
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            char first = value.charAt(0);
+            boolean formula = first == '=' || first == '+' || first == '-' || first == '@';
+            boolean quote = formula || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            if (formula) {
+                writer.write('\'');
+            }
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private boolean written;
+
+        private NdjsonRowWriter(Writer writer) throws IOException {
+            this.generator = jsonFactory.createGenerator(writer);
+            this.generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("transactionId", rs.getLong(1));
+            generator.writeStringField("transactionNumber", rs.getString(2));
+            Timestamp time = rs.getTimestamp(3);
+            generator.writeStringField("transactionTime", time != null ? time.toLocalDateTime().toString() : null);
+            generator.writeStringField("type", rs.getString(4));
+            generator.writeStringField("status", rs.getString(5));
+            generator.writeStringField("paymentMethod", rs.getString(6));
+            generator.writeNumberField("amount", rs.getBigDecimal(7));
+            generator.writeStringField("description", rs.getString(8));
+            generator.writeEndObject();
+            written = true;
+        }
+
+        @Override
+        public void end() throws IOException {
+            // 物件之間以換行分隔，最後一筆也以換行結尾
+            if (written) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+    }
+
+    /**
+     * 關閉壓縮串流時只完成 gzip 結尾，不關閉底層的回應串流
+     */
+    private static final class NonClosingOutputStream extends OutputStream {
+        private final OutputStream delegate;
+
+        private NonClosingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.flush();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package org.example._citizncardproj3.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.entity.LedgerEntry;
+import org.example._citizncardproj3.model.entity.Transaction;
+import org.example._citizncardproj3.model.entity.Wallet;
+import org.example._citizncardproj3.repository.LedgerEntryRepository;
+import org.example._citizncardproj3.repository.WalletBalanceSnapshotRepository;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 錢包分錄帳
+ * 餘額異動一律新增分錄，不再改寫錢包餘額欄位；餘額為最新快照加上其後分錄的合計。
+ * 同一錢包的分錄必須在持有錢包資料列鎖的交易中寫入，快照壓縮才不會漏掉尚未提交的分錄。
+ */
+@Component
+public class WalletLedger {
+
+    // 最小貨幣單位的小數位數(分)
+    private static final int MINOR_UNIT_SCALE = 2;
+
+    private final LedgerEntryRepository entryRepository;
+    private final WalletBalanceSnapshotRepository snapshotRepository;
+    private final Counter appendedCounter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public WalletLedger(LedgerEntryRepository entryRepository,
+                        WalletBalanceSnapshotRepository snapshotRepository,
+                        MeterRegistry meterRegistry) {
+        this.entryRepository = entryRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.appendedCounter = Counter.builder("ledger.entries.appended")
+                .description("新增的錢包分錄數")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 鎖定錢包資料列並重新讀取最新狀態
+     * 同一交易內已鎖定時不重複查詢
+     */
+    public Wallet lock(Wallet wallet) {
+        if (entityManager.getLockMode(wallet) != LockModeType.PESSIMISTIC_WRITE) {
+            entityManager.refresh(wallet, LockModeType.PESSIMISTIC_WRITE);
+        }
+        return wallet;
+    }
+
+    /**
+     * 入帳
+     */
+    public LedgerEntry credit(Wallet wallet, Double amount, Transaction.TransactionType type, Long transactionId) {
+        lock(wallet);
+        return append(wallet.getWalletId(), positiveMinor(amount), type, transactionId);
+    }
+
+    /**
+     * 出帳，餘額不足時拋出例外
+     */
+    public LedgerEntry debit(Wallet wallet, Double amount, Transaction.TransactionType type, Long transactionId) {
+        lock(wallet);
+        long amountMinor = positiveMinor(amount);
+        if (balanceMinor(wallet) < amountMinor) {
+            throw new CustomException.InsufficientBalanceException();
+        }
+        return append(wallet.getWalletId(), -amountMinor, type, transactionId);
+    }
+
+    /**
+     * 批次過帳
+     * 同一交易寫入多筆分錄，依錢包ID順序鎖定，淨出帳的錢包以合計金額檢查一次餘額
+     * @param postings 分錄（金額入帳為正、出帳為負）
+     * @return 新增的分錄
+     */
+    public List<LedgerEntry> post(List<Posting> postings) {
+        return post(postings, true);
+    }
+
+    /**
+     * 沖銷分錄
+     * 撤銷未完成交易已產生的餘額異動，不檢查餘額：沖銷未入帳成功的儲值可能使餘額為負，
+     * 這反映的是實際帳務狀態，不能因餘額不足而保留錯誤的入帳。
+     * @param postings 沖銷分錄（金額為原分錄的相反數）
+     * @return 新增的分錄
+     */
+    public List<LedgerEntry> compensate(List<Posting> postings) {
+        return post(postings, false);
+    }
+
+    /**
+     * 批次寫入已檢查餘額的分錄
+     * 呼叫端必須已鎖定所有相關錢包並自行檢查餘額；以多列 INSERT 寫入，不回傳分錄ID
+     * @param postings 分錄（金額入帳為正、出帳為負）
+     * @return 寫入筆數
+     */
+    public int appendChecked(List<Posting> postings) {
+        List<LedgerEntry> entries = new ArrayList<>(postings.size());
+        for (Posting posting : postings) {
+            entries.add(LedgerEntry.builder()
+                    .walletId(posting.getWallet().getWalletId())
+                    .amountMinor(toMinor(posting.getAmount()))
+                    .entryType(posting.getType())
+                    .transactionId(posting.getTransactionId())
+                    .build());
+        }
+        int inserted = entryRepository.batchInsert(entries);
+        appendedCounter.increment(inserted);
+        return inserted;
+    }
+
+    private List<LedgerEntry> post(List<Posting> postings, boolean checkBalance) {
+        Map<Long, Wallet> wallets = new TreeMap<>();
+        Map<Long, Long> netByWallet = new HashMap<>();
+        List<LedgerEntry> entries = new ArrayList<>(postings.size());
+        for (Posting posting : postings) {
+            Long walletId = posting.getWallet().getWalletId();
+            long amountMinor = toMinor(posting.getAmount());
+            if (amountMinor == 0) {
+                throw new CustomException.ValidationException("金額不能為0");
+            }
+            wallets.putIfAbsent(walletId, posting.getWallet());
+            netByWallet.merge(walletId, amountMinor, Long::sum);
+            entries.add(LedgerEntry.builder()
+                    .walletId(walletId)
+                    .amountMinor(amountMinor)
+                    .entryType(posting.getType())
+                    .transactionId(posting.getTransactionId())
+                    .build());
+        }
+
+        wallets.forEach((walletId, wallet) -> {
+            lock(wallet);
+            long net = netByWallet.get(walletId);
+            if (checkBalance && net < 0 && balanceMinor(wallet) + net < 0) {
+                throw new CustomException.InsufficientBalanceException();
+            }
+        });
+
+        List<LedgerEntry> saved = entryRepository.saveAll(entries);
+        appendedCounter.increment(saved.size());
+        return saved;
+    }
+
+    public Double getBalance(Wallet wallet) {
+        return toAmount(balanceMinor(wallet));
+    }
+
+    public boolean hasEnoughBalance(Wallet wallet, Double amount) {
+        return balanceMinor(wallet) >= toMinor(amount);
+    }
+
+    /**
+     * 餘額（最小貨幣單位）
+     * 尚未建立快照的錢包以原餘額欄位作為期初餘額
+     */
+    public long balanceMinor(Wallet wallet) {
+        return snapshotRepository.findFirstByWalletIdOrderByLastEntryIdDesc(wallet.getWalletId())
+                .map(snapshot -> snapshot.getBalanceMinor()
+                        + entryRepository.sumAmountAfter(wallet.getWalletId(), snapshot.getLastEntryId()))
+                .orElseGet(() -> toMinor(wallet.getBalance())
+                        + entryRepository.sumAmountAfter(wallet.getWalletId(), 0L));
+    }
+
+    private LedgerEntry append(Long walletId, long amountMinor, Transaction.TransactionType type, Long transactionId) {
+        LedgerEntry entry = entryRepository.save(LedgerEntry.builder()
+                .walletId(walletId)
+                .amountMinor(amountMinor)
+                .entryType(type)
+                .transactionId(transactionId)
+                .build());
+        appendedCounter.increment();
+        return entry;
+    }
+
+    private static long positiveMinor(Double amount) {
+        long amountMinor = toMinor(amount);
+        if (amountMinor <= 0) {
+            throw new CustomException.ValidationException("金額必須大於0");
+        }
+        return amountMinor;
+    }
+
+    public static long toMinor(Double amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return BigDecimal.valueOf(amount)
+                .setScale(MINOR_UNIT_SCALE, RoundingMode.HALF_UP)
+                .movePointRight(MINOR_UNIT_SCALE)
+                .longValueExact();
+    }
+
+    public static Double toAmount(long amountMinor) {
+        return BigDecimal.valueOf(amountMinor, MINOR_UNIT_SCALE).doubleValue();
+    }
+
+    /**
+     * 批次過帳的單筆分錄
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Posting {
+        private final Wallet wallet;
+        // 入帳為正、出帳為負
+        private final Double amount;
+        private final Transaction.TransactionType type;
+        private final Long transactionId;
+    }
+}
@@ -0,0 +1,149 @@
+package org.example._citizncardproj3.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.exception.CustomException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 錢包分段鎖
+ * 以錢包ID雜湊到固定數量的鎖，同一錢包的交易在 JVM 內依序執行，
+ * 等待中的請求不會先佔用連線再卡在資料列鎖上。資料庫端的資料列鎖與版本欄位作為跨節點的保護，
+ * 發生樂觀鎖衝突時以新交易重試。
+ */
+@Slf4j
+@Component
+public class WalletLockStripes {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long timeoutMillis;
+    private final int maxRetries;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Timer waitTimer;
+    private final Counter timeoutCounter;
+    private final Counter retryCounter;
+
+    public WalletLockStripes(PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.wallet-lock.stripes:1024}") int stripeCount,
+                             @Value("${app.wallet-lock.timeout-millis:3000}") long timeoutMillis,
+                             @Value("${app.wallet-lock.max-retries:3}") int maxRetries) {
+        // 取不小於設定值的 2 的次方，方便以位元運算取模
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.timeoutMillis = timeoutMillis;
+        this.maxRetries = maxRetries;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.waitTimer = Timer.builder("wallet.lock.wait")
+                .description("等待錢包分段鎖的時間")
+                .register(meterRegistry);
+        this.timeoutCounter = Counter.builder("wallet.lock.timeouts")
+                .description("等待錢包分段鎖逾時次數")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("wallet.lock.optimistic-retries")
+                .description("錢包樂觀鎖衝突重試次數")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 持有錢包的分段鎖並在交易中執行作業
+     * 已在外部交易中時直接加入該交易，不重試
+     * @param walletId 錢包ID
+     * @param action 錢包作業
+     * @return 作業結果
+     * @throws CustomException.WalletBusyException 等待鎖逾時
+     */
+    public <T> T execute(Long walletId, Supplier<T> action) {
+        return executeAll(List.of(walletId), action);
+    }
+
+    /**
+     * 持有多個錢包的分段鎖並在交易中執行作業
+     * 一律依分段編號由小到大取得鎖，多錢包作業之間不會互相死結
+     * @param walletIds 錢包ID
+     * @param action 錢包作業
+     * @return 作業結果
+     * @throws CustomException.WalletBusyException 等待鎖逾時
+     */
+    public <T> T executeAll(Collection<Long> walletIds, Supplier<T> action) {
+        // 分段編號 -> 任一對應的錢包ID（用於錯誤訊息）
+        TreeMap<Integer, Long> ordered = new TreeMap<>();
+        for (Long walletId : walletIds) {
+            ordered.putIfAbsent(stripeIndex(walletId), walletId);
+        }
+
+        List<ReentrantLock> acquired = new ArrayList<>(ordered.size());
+        try {
+            for (Map.Entry<Integer, Long> entry : ordered.entrySet()) {
+                ReentrantLock lock = stripes[entry.getKey()];
+                acquire(lock, entry.getValue());
+                acquired.add(lock);
+            }
+            return runInTransaction(action);
+        } finally {
+            for (int i = acquired.size() - 1; i >= 0; i--) {
+                acquired.get(i).unlock();
+            }
+        }
+    }
+
+    private <T> T runInTransaction(Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                retryCounter.increment();
+                log.debug("錢包樂觀鎖衝突，重試: attempt={}", attempt + 1);
+            }
+        }
+    }
+
+    int stripeIndex(Long walletId) {
+        long h = walletId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void acquire(ReentrantLock lock, Long walletId) {
+        long start = System.nanoTime();
+        try {
+            if (!lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCounter.increment();
+                throw new CustomException.WalletBusyException(walletId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException.WalletBusyException(walletId);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
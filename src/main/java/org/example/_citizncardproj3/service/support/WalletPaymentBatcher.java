@@ -0,0 +1,375 @@
+package org.example._citizncardproj3.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.entity.Transaction;
+import org.example._citizncardproj3.model.entity.Wallet;
+import org.example._citizncardproj3.model.entity.WalletDailyRollup;
+import org.example._citizncardproj3.repository.TransactionRepository;
+import org.example._citizncardproj3.repository.WalletRepository;
+import org.example._citizncardproj3.util.IdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 錢包支付群組提交
+ * 高頻小額支付（卡機感應、停車扣款）先放入佇列，累積數毫秒或達到批次上限後，
+ * 在同一資料庫交易中以多列 INSERT 寫入交易、分錄與彙總並一次提交，每位呼叫者各自取得成功或失敗結果。
+ * 佇列依錢包ID分區，每個分區由一條執行緒依序提交，不同分區的批次不會鎖定同一錢包。
+ * 整批提交失敗時改為逐筆提交，單筆錯誤不會連累同批的其他支付。
+ * 呼叫者等待逾時時，尚未被取出提交的支付直接放棄；已在提交中的支付回傳預先產生的交易編號供查詢結果。
+ */
+@Slf4j
+@Component
+public class WalletPaymentBatcher {
+
+    private static final long POLL_MILLIS = 100L;
+
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final WalletLedger walletLedger;
+    private final WalletLockStripes walletLockStripes;
+    private final TransactionRollups transactionRollups;
+    private final WalletSpendingLimits walletSpendingLimits;
+
+    @Getter
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long callerTimeoutMillis;
+    private final List<BlockingQueue<PaymentRequest>> partitions;
+    private final List<Thread> flushers = new ArrayList<>();
+    private volatile boolean running;
+
+    private final Counter commitCounter;
+    private final Counter paymentCounter;
+    private final Counter rejectedCounter;
+    private final Counter fallbackCounter;
+    private final DistributionSummary batchSizeSummary;
+
+    public WalletPaymentBatcher(WalletRepository walletRepository,
+                                TransactionRepository transactionRepository,
+                                WalletLedger walletLedger,
+                                WalletLockStripes walletLockStripes,
+                                TransactionRollups transactionRollups,
+                                WalletSpendingLimits walletSpendingLimits,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.payment-group-commit.enabled:false}") boolean enabled,
+                                @Value("${app.payment-group-commit.partitions:4}") int partitionCount,
+                                @Value("${app.payment-group-commit.max-batch-size:64}") int maxBatchSize,
+                                @Value("${app.payment-group-commit.max-wait-millis:2}") long maxWaitMillis,
+                                @Value("${app.payment-group-commit.queue-capacity:10000}") int queueCapacity,
+                                @Value("${app.payment-group-commit.caller-timeout-millis:5000}") long callerTimeoutMillis) {
+        this.walletRepository = walletRepository;
+        this.transactionRepository = transactionRepository;
+        this.walletLedger = walletLedger;
+        this.walletLockStripes = walletLockStripes;
+        this.transactionRollups = transactionRollups;
+        this.walletSpendingLimits = walletSpendingLimits;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.callerTimeoutMillis = callerTimeoutMillis;
+
+        this.partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new LinkedBlockingQueue<>(queueCapacity));
+        }
+
+        this.commitCounter = Counter.builder("wallet.payment.group.commits")
+                .description("支付群組提交的資料庫交易數")
+                .register(meterRegistry);
+        this.paymentCounter = Counter.builder("wallet.payment.group.payments")
+                .description("群組提交完成的支付數")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("wallet.payment.group.rejected")
+                .description("群組提交中被拒絕的支付數")
+                .register(meterRegistry);
+        this.fallbackCounter = Counter.builder("wallet.payment.group.fallbacks")
+                .description("整批失敗後改為逐筆提交的批次數")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("wallet.payment.group.batch-size")
+                .description("每次群組提交的支付數")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < partitions.size(); i++) {
+            BlockingQueue<PaymentRequest> queue = partitions.get(i);
+            Thread flusher = new Thread(() -> flushLoop(queue), "wallet-payment-batcher-" + i);
+            flusher.setDaemon(true);
+            flusher.start();
+            flushers.add(flusher);
+        }
+        log.info("錢包支付群組提交已啟用: partitions={}, maxBatchSize={}, maxWaitNanos={}",
+                partitions.size(), maxBatchSize, maxWaitNanos);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread flusher : flushers) {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // 停止後仍在佇列中的支付直接失敗，呼叫者可重試
+        for (BlockingQueue<PaymentRequest> queue : partitions) {
+            List<PaymentRequest> pending = new ArrayList<>();
+            queue.drainTo(pending);
+            for (PaymentRequest request : pending) {
+                if (request.claimed.compareAndSet(false, true)) {
+                    request.result.completeExceptionally(new CustomException.WalletBusyException(request.walletId));
+                }
+            }
+        }
+    }
+
+    /**
+     * 以群組提交支付，阻塞至所屬批次提交完成
+     * @param walletId 錢包ID
+     * @param amount 金額
+     * @return 扣款後的錢包
+     * @throws CustomException.WalletBusyException 佇列已滿，或等待逾時且支付尚未提交
+     * @throws CustomException.PaymentResultUnknownException 等待逾時但支付已在提交中
+     */
+    public Wallet pay(Long walletId, Double amount) {
+        if (!running) {
+            throw new IllegalStateException("支付群組提交未啟用");
+        }
+        PaymentRequest request = new PaymentRequest(walletId, amount);
+        BlockingQueue<PaymentRequest> queue = partitions.get(Math.floorMod(walletId.hashCode(), partitions.size()));
+        if (!queue.offer(request)) {
+            throw new CustomException.WalletBusyException(walletId);
+        }
+
+        try {
+            return request.result.get(callerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw abandon(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw abandon(request);
+        }
+    }
+
+    // 尚未被取出提交則放棄，呼叫者可安全重試；已在提交中則可能成功，只能以交易編號查詢
+    private CustomException abandon(PaymentRequest request) {
+        if (request.claimed.compareAndSet(false, true)) {
+            rejectedCounter.increment();
+            return new CustomException.WalletBusyException(request.walletId);
+        }
+        return new CustomException.PaymentResultUnknownException(request.transactionNumber);
+    }
+
+    private void flushLoop(BlockingQueue<PaymentRequest> queue) {
+        while (running) {
+            try {
+                PaymentRequest first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<PaymentRequest> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+                collect(queue, batch);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("錢包支付群組提交執行緒發生錯誤", e);
+            }
+        }
+    }
+
+    // 先取走已在佇列中的請求，不足批次上限時最多再等待 maxWait
+    private void collect(BlockingQueue<PaymentRequest> queue, List<PaymentRequest> batch) throws InterruptedException {
+        queue.drainTo(batch, maxBatchSize - batch.size());
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            PaymentRequest next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+    private void flush(List<PaymentRequest> batch) {
+        // 略過呼叫者已放棄的支付
+        batch.removeIf(request -> !request.claimed.compareAndSet(false, true));
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            commit(batch);
+        } catch (Exception e) {
+            // 整批回滾（例如樂觀鎖衝突或資料庫錯誤），逐筆重新提交
+            log.warn("錢包支付群組提交失敗，改為逐筆提交: size={}", batch.size(), e);
+            fallbackCounter.increment();
+            for (PaymentRequest request : batch) {
+                try {
+                    commit(List.of(request));
+                } catch (Exception single) {
+                    request.result.completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    // 在一個資料庫交易中處理整批支付，提交成功後才通知呼叫者
+    private void commit(List<PaymentRequest> batch) {
+        Set<Long> walletIds = batch.stream()
+                .map(PaymentRequest::getWalletId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Map<PaymentRequest, RuntimeException> rejected = new HashMap<>();
+        Map<Long, Wallet> wallets = walletLockStripes.executeAll(walletIds, () -> apply(batch, walletIds, rejected));
+
+        commitCounter.increment();
+        batchSizeSummary.record(batch.size());
+        for (PaymentRequest request : batch) {
+            RuntimeException error = rejected.get(request);
+            if (error != null) {
+                rejectedCounter.increment();
+                request.result.completeExceptionally(error);
+            } else {
+                paymentCounter.increment();
+                request.result.complete(wallets.get(request.walletId));
+            }
+        }
+    }
+
+    private Map<Long, Wallet> apply(List<PaymentRequest> batch, Set<Long> walletIds,
+                                    Map<PaymentRequest, RuntimeException> rejected) {
+        rejected.clear();
+        Map<Long, Wallet> wallets = walletRepository.findAllByIdsWithLock(walletIds).stream()
+                .collect(Collectors.toMap(Wallet::getWalletId, Function.identity()));
+
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, WalletSpendingLimits.Usage> usages = walletSpendingLimits.usages(wallets.keySet(), today);
+        Map<Long, Long> availableMinor = new HashMap<>();
+        Map<Long, Long> spentMinor = new HashMap<>();
+        List<Transaction> transactions = new ArrayList<>(batch.size());
+
+        for (PaymentRequest request : batch) {
+            Wallet wallet = wallets.get(request.walletId);
+            RuntimeException error = validate(request, wallet, usages, availableMinor);
+            if (error != null) {
+                rejected.put(request, error);
+                continue;
+            }
+            long amountMinor = WalletLedger.toMinor(request.amount);
+            availableMinor.merge(request.walletId, -amountMinor, Long::sum);
+            usages.get(request.walletId).add(amountMinor);
+            spentMinor.merge(request.walletId, amountMinor, Long::sum);
+            transactions.add(Transaction.builder()
+                    .transactionNumber(request.transactionNumber)
+                    .wallet(wallet)
+                    .amount(request.amount)
+                    .type(Transaction.TransactionType.PAYMENT)
+                    .status(Transaction.TransactionStatus.SUCCESS)
+                    .paymentMethod(Transaction.PaymentMethod.WALLET_BALANCE)
+                    .transactionTime(now)
+                    .build());
+        }
+
+        if (!transactions.isEmpty()) {
+            // 交易、分錄、彙總、限額累計各以一個多列語句寫入，錢包資料列只鎖定不改寫
+            transactionRepository.batchInsert(transactions);
+            List<WalletLedger.Posting> postings = new ArrayList<>(transactions.size());
+            for (Transaction transaction : transactions) {
+                postings.add(new WalletLedger.Posting(transaction.getWallet(), -transaction.getAmount(),
+                        Transaction.TransactionType.PAYMENT, transaction.getTransactionId()));
+            }
+            walletLedger.appendChecked(postings);
+            transactionRollups.recordAll(transactions,
+                    Collections.nCopies(transactions.size(), WalletDailyRollup.Direction.OUT));
+            walletSpendingLimits.recordAll(today, spentMinor);
+        }
+        return wallets;
+    }
+
+    // 與逐筆支付相同的檢查；餘額與限額累計都計入本批已接受的支付
+    private RuntimeException validate(PaymentRequest request, Wallet wallet,
+                                      Map<Long, WalletSpendingLimits.Usage> usages,
+                                      Map<Long, Long> availableMinor) {
+        if (wallet == null) {
+            return new CustomException.WalletNotFoundException(request.walletId);
+        }
+        if (!wallet.isUsable()) {
+            return new IllegalStateException("錢包狀態異常");
+        }
+        long amountMinor = WalletLedger.toMinor(request.amount);
+        if (amountMinor <= 0) {
+            return new CustomException.ValidationException("金額必須大於0");
+        }
+        String exceeded = usages.get(request.walletId).exceeded(wallet, amountMinor);
+        if (exceeded != null) {
+            return new IllegalStateException(exceeded);
+        }
+        long available = availableMinor.computeIfAbsent(request.walletId, id -> walletLedger.balanceMinor(wallet));
+        if (available < amountMinor) {
+            return new CustomException.InsufficientBalanceException();
+        }
+        return null;
+    }
+
+    /**
+     * 佇列中的單筆支付
+     * claimed 由提交執行緒（開始提交）或呼叫者（等待逾時放棄）其中之一取得
+     */
+    @Getter
+    private static final class PaymentRequest {
+        private final Long walletId;
+        private final Double amount;
+        // 入列時即產生，逾時後呼叫者仍可憑此查詢
+        private final String transactionNumber = IdGenerator.nextCode("TX");
+        private final CompletableFuture<Wallet> result = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private PaymentRequest(Long walletId, Double amount) {
+            this.walletId = walletId;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.example._citizncardproj3.service.support;
+
+import lombok.RequiredArgsConstructor;
+import org.example._citizncardproj3.model.entity.Wallet;
+import org.example._citizncardproj3.repository.WalletDailySpendingRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 錢包交易限額
+ * 支出累計記在每日累計列，支付只累加該列而不改寫錢包資料列；每月累計為當月各日的合計。
+ * 呼叫端須已鎖定錢包，同一錢包的檢查與累加不會交錯。
+ */
+@Component
+@RequiredArgsConstructor
+public class WalletSpendingLimits {
+
+    private final WalletDailySpendingRepository spendingRepository;
+
+    /**
+     * 檢查加上此金額後是否超過限額
+     * @throws IllegalStateException 超過每日或每月交易限額
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void check(Wallet wallet, Double amount) {
+        LocalDate today = LocalDate.now();
+        String exceeded = usages(List.of(wallet.getWalletId()), today)
+                .get(wallet.getWalletId())
+                .exceeded(wallet, WalletLedger.toMinor(amount));
+        if (exceeded != null) {
+            throw new IllegalStateException(exceeded);
+        }
+    }
+
+    /**
+     * 檢查限額並累計支出，超過時整筆回滾
+     * @throws IllegalStateException 超過每日或每月交易限額
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void charge(Wallet wallet, Double amount) {
+        check(wallet, amount);
+        recordAll(LocalDate.now(), Map.of(wallet.getWalletId(), WalletLedger.toMinor(amount)));
+    }
+
+    /**
+     * 查詢多個錢包的當日與當月累計
+     * @return 錢包ID對應的累計，沒有支出的錢包為 0
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, Usage> usages(Collection<Long> walletIds, LocalDate today) {
+        Map<Long, Usage> usages = new HashMap<>();
+        for (Long walletId : walletIds) {
+            usages.put(walletId, new Usage());
+        }
+        if (usages.isEmpty()) {
+            return usages;
+        }
+        for (Object[] row : spendingRepository.sumByWalletIds(walletIds, today.withDayOfMonth(1), today)) {
+            Usage usage = usages.get((Long) row[0]);
+            usage.dailyMinor = ((Number) row[1]).longValue();
+            usage.monthlyMinor = ((Number) row[2]).longValue();
+        }
+        return usages;
+    }
+
+    /**
+     * 累計多個錢包的當日支出
+     * @param amountMinorByWallet 錢包ID對應的支出金額(分)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(LocalDate today, Map<Long, Long> amountMinorByWallet) {
+        // 依錢包ID排序後寫入，與錢包資料列的鎖定順序一致
+        spendingRepository.addAmounts(today, new TreeMap<>(amountMinorByWallet));
+    }
+
+    /**
+     * 刪除指定日期之前的累計列（計算限額只需要當月）
+     * @return 刪除列數
+     */
+    @Transactional
+    public int purgeBefore(LocalDate date) {
+        return spendingRepository.deleteBySpendDateBefore(date);
+    }
+
+    /**
+     * 錢包的當日與當月累計(分)
+     */
+    public static final class Usage {
+        private long dailyMinor;
+        private long monthlyMinor;
+
+        /**
+         * 加上此金額後超過的限額
+         * @return 錯誤訊息，未超過時為 null
+         */
+        public String exceeded(Wallet wallet, long amountMinor) {
+            if (dailyMinor + amountMinor > WalletLedger.toMinor(wallet.getDailyTransactionLimit())) {
+                return "超過每日交易限額";
+            }
+            if (monthlyMinor + amountMinor > WalletLedger.toMinor(wallet.getMonthlyTransactionLimit())) {
+                return "超過每月交易限額";
+            }
+            return null;
+        }
+
+        // 累加本批已接受的支出
+        public void add(long amountMinor) {
+            dailyMinor += amountMinor;
+            monthlyMinor += amountMinor;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package org.example._citizncardproj3.service.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.entity.Transaction;
+import org.example._citizncardproj3.model.entity.Wallet;
+import org.example._citizncardproj3.model.entity.WalletDailyRollup;
+import org.example._citizncardproj3.repository.TransactionRepository;
+import org.example._citizncardproj3.repository.WalletRepository;
+import org.example._citizncardproj3.util.IdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 錢包轉帳引擎
+ * 轉出與轉入的交易紀錄與分錄在同一資料庫交易中寫入。涉及的錢包先依分段編號取得 JVM 鎖，
+ * 再依錢包ID順序鎖定資料列，任意方向的交叉轉帳都以相同順序上鎖，不會互相死結。
+ * 批次轉帳（商家撥款）依批次大小分段提交，每段為一個原子單位。
+ */
+@Slf4j
+@Component
+public class WalletTransferEngine {
+
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final WalletLedger walletLedger;
+    private final WalletLockStripes walletLockStripes;
+    private final TransactionRollups transactionRollups;
+    private final WalletSpendingLimits walletSpendingLimits;
+    private final int batchSize;
+
+    private final Counter legCounter;
+    private final Counter failedLegCounter;
+
+    public WalletTransferEngine(WalletRepository walletRepository,
+                                TransactionRepository transactionRepository,
+                                WalletLedger walletLedger,
+                                WalletLockStripes walletLockStripes,
+                                TransactionRollups transactionRollups,
+                                WalletSpendingLimits walletSpendingLimits,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.wallet-transfer.batch-size:200}") int batchSize) {
+        this.walletRepository = walletRepository;
+        this.transactionRepository = transactionRepository;
+        this.walletLedger = walletLedger;
+        this.walletLockStripes = walletLockStripes;
+        this.transactionRollups = transactionRollups;
+        this.walletSpendingLimits = walletSpendingLimits;
+        this.batchSize = batchSize;
+
+        this.legCounter = Counter.builder("wallet.transfer.legs")
+                .description("完成的轉帳筆數")
+                .register(meterRegistry);
+        this.failedLegCounter = Counter.builder("wallet.transfer.failed-legs")
+                .description("失敗的轉帳筆數")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 單筆轉帳
+     * @param fromWalletId 轉出錢包ID
+     * @param toWalletId 轉入錢包ID
+     * @param amount 金額
+     * @param note 備註
+     * @return 轉出方的交易紀錄
+     */
+    public Transaction transfer(Long fromWalletId, Long toWalletId, Double amount, String note) {
+        if (fromWalletId.equals(toWalletId)) {
+            throw new CustomException.ValidationException("不能轉帳給自己");
+        }
+
+        Transaction debit = walletLockStripes.executeAll(List.of(fromWalletId, toWalletId), () -> {
+            Map<Long, Wallet> wallets = lockWallets(List.of(fromWalletId, toWalletId));
+            Wallet from = requireUsable(wallets, fromWalletId);
+            Wallet to = requireUsable(wallets, toWalletId);
+
+            List<Transaction> pair = postTransfers(from, List.of(new Leg(toWalletId, amount)), wallets,
+                    newTransferNumber(), note);
+
+            // 轉出計入交易限額，超過時整筆回滾
+            walletSpendingLimits.charge(from, amount);
+            return pair.get(0);
+        });
+        legCounter.increment();
+        return debit;
+    }
+
+    /**
+     * 批次轉帳
+     * 依批次大小分段處理；某段餘額不足或超過限額時停止，該段與之後的轉帳都視為失敗
+     * @param fromWalletId 轉出錢包ID
+     * @param legs 各筆轉帳
+     * @param note 備註
+     * @return 批次結果
+     */
+    public BulkResult transferAll(Long fromWalletId, List<Leg> legs, String note) {
+        String batchNumber = newTransferNumber();
+        Map<Integer, String> failures = new LinkedHashMap<>();
+        int succeeded = 0;
+        long succeededMinor = 0;
+
+        for (int start = 0; start < legs.size(); start += batchSize) {
+            int end = Math.min(start + batchSize, legs.size());
+            int offset = start;
+            List<Leg> chunk = legs.subList(start, end);
+
+            Set<Long> walletIds = new LinkedHashSet<>();
+            walletIds.add(fromWalletId);
+            chunk.forEach(leg -> walletIds.add(leg.getToWalletId()));
+
+            try {
+                Map<Integer, String> skipped = walletLockStripes.executeAll(walletIds,
+                        () -> transferChunk(fromWalletId, chunk, walletIds, batchNumber + "-" + offset, note));
+                for (int i = 0; i < chunk.size(); i++) {
+                    String reason = skipped.get(i);
+                    if (reason != null) {
+                        failures.put(offset + i, reason);
+                    } else {
+                        succeeded++;
+                        succeededMinor += WalletLedger.toMinor(chunk.get(i).getAmount());
+                    }
+                }
+            } catch (CustomException.InsufficientBalanceException | IllegalStateException e) {
+                // 餘額不足或超過限額，後續批次也不會成功
+                for (int i = start; i < legs.size(); i++) {
+                    failures.put(i, e.getMessage());
+                }
+                break;
+            } catch (RuntimeException e) {
+                log.error("批次轉帳失敗: batch={}, offset={}", batchNumber, offset, e);
+                for (int i = start; i < end; i++) {
+                    failures.put(i, "轉帳失敗");
+                }
+            }
+        }
+
+        legCounter.increment(succeeded);
+        failedLegCounter.increment(failures.size());
+        log.info("批次轉帳完成: batch={}, succeeded={}, failed={}", batchNumber, succeeded, failures.size());
+        return new BulkResult(batchNumber, succeeded, WalletLedger.toAmount(succeededMinor), failures);
+    }
+
+    // 處理一段轉帳，回傳被略過的轉帳（段內索引 -> 原因）
+    private Map<Integer, String> transferChunk(Long fromWalletId, List<Leg> chunk, Set<Long> walletIds,
+                                               String chunkNumber, String note) {
+        Map<Long, Wallet> wallets = lockWallets(walletIds);
+        Wallet from = requireUsable(wallets, fromWalletId);
+
+        Map<Integer, String> skipped = new HashMap<>();
+        List<Leg> accepted = new ArrayList<>(chunk.size());
+        long totalMinor = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            Leg leg = chunk.get(i);
+            Wallet to = wallets.get(leg.getToWalletId());
+            if (leg.getToWalletId().equals(fromWalletId)) {
+                skipped.put(i, "不能轉帳給自己");
+            } else if (to == null || !to.isUsable()) {
+                skipped.put(i, "收款錢包無法使用");
+            } else {
+                accepted.add(leg);
+                totalMinor += WalletLedger.toMinor(leg.getAmount());
+            }
+        }
+        if (accepted.isEmpty()) {
+            return skipped;
+        }
+
+        postTransfers(from, accepted, wallets, chunkNumber, note);
+        walletSpendingLimits.charge(from, WalletLedger.toAmount(totalMinor));
+        return skipped;
+    }
+
+    // 寫入每筆轉帳的轉出/轉入交易紀錄與分錄，回傳依序排列的交易紀錄（轉出、轉入交錯）
+    private List<Transaction> postTransfers(Wallet from, List<Leg> legs, Map<Long, Wallet> wallets,
+                                            String transferNumber, String note) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Transaction> transactions = new ArrayList<>(legs.size() * 2);
+        for (int i = 0; i < legs.size(); i++) {
+            Leg leg = legs.get(i);
+            String number = legs.size() == 1 ? transferNumber : transferNumber + "-" + i;
+            transactions.add(transferTransaction(from, leg.getAmount(), number + "-O",
+                    "轉帳至錢包 " + leg.getToWalletId(), note, now));
+            transactions.add(transferTransaction(wallets.get(leg.getToWalletId()), leg.getAmount(), number + "-I",
+                    "來自錢包 " + from.getWalletId() + " 的轉帳", note, now));
+        }
+        transactions = transactionRepository.saveAll(transactions);
+
+        List<WalletLedger.Posting> postings = new ArrayList<>(transactions.size());
+        List<WalletDailyRollup.Direction> directions = new ArrayList<>(transactions.size());
+        for (int i = 0; i < transactions.size(); i += 2) {
+            Transaction debit = transactions.get(i);
+            Transaction credit = transactions.get(i + 1);
+            postings.add(new WalletLedger.Posting(debit.getWallet(), -debit.getAmount(),
+                    Transaction.TransactionType.TRANSFER, debit.getTransactionId()));
+            postings.add(new WalletLedger.Posting(credit.getWallet(), credit.getAmount(),
+                    Transaction.TransactionType.TRANSFER, credit.getTransactionId()));
+            directions.add(WalletDailyRollup.Direction.OUT);
+            directions.add(WalletDailyRollup.Direction.IN);
+        }
+        walletLedger.post(postings);
+        transactionRollups.recordAll(transactions, directions);
+        return transactions;
+    }
+
+    private Transaction transferTransaction(Wallet wallet, Double amount, String number,
+                                            String description, String note, LocalDateTime time) {
+        return Transaction.builder()
+                .wallet(wallet)
+                .amount(amount)
+                .type(Transaction.TransactionType.TRANSFER)
+                .status(Transaction.TransactionStatus.SUCCESS)
+                .paymentMethod(Transaction.PaymentMethod.WALLET_BALANCE)
+                .transactionNumber(number)
+                .description(note == null || note.isBlank() ? description : description + " (" + note + ")")
+                .transactionTime(time)
+                .build();
+    }
+
+    // 依錢包ID順序一次鎖定所有錢包
+    private Map<Long, Wallet> lockWallets(Collection<Long> walletIds) {
+        Map<Long, Wallet> wallets = new HashMap<>();
+        for (Wallet wallet : walletRepository.findAllByIdsWithLock(walletIds)) {
+            wallets.put(wallet.getWalletId(), wallet);
+        }
+        return wallets;
+    }
+
+    private Wallet requireUsable(Map<Long, Wallet> wallets, Long walletId) {
+        Wallet wallet = wallets.get(walletId);
+        if (wallet == null) {
+            throw new CustomException.WalletNotFoundException(walletId);
+        }
+        if (!wallet.isUsable()) {
+            throw new IllegalStateException("錢包狀態異常");
+        }
+        return wallet;
+    }
+
+    private String newTransferNumber() {
+        return IdGenerator.nextCode("TF");
+    }
+
+    /**
+     * 單筆轉帳目標
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Leg {
+        private final Long toWalletId;
+        private final Double amount;
+    }
+
+    /**
+     * 批次轉帳結果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class BulkResult {
+        private final String batchNumber;
+        private final int succeeded;
+        private final Double totalAmount;
+        // 失敗的轉帳（索引 -> 原因）
+        private final Map<Integer, String> failures;
+    }
+}
@@ -0,0 +1,72 @@
+package org.example._citizncardproj3.util;
+
+/**
+ * 字串布隆過濾器
+ * 以 long[] 位元陣列記錄，依預期元素數與誤判率決定位元數與雜湊次數；
+ * 不會漏判已加入的元素，只可能把未加入的元素誤判為存在。
+ * 雜湊以兩個 64 位元雜湊值做雙重雜湊（h1 + i * h2）產生 k 個位置。非執行緒安全。
+ */
+public class BloomFilter {
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedElements 預期元素數
+     * @param falsePositiveRate 目標誤判率（0 ~ 1）
+     */
+    public BloomFilter(long expectedElements, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("誤判率必須介於 0 到 1");
+        }
+        long n = Math.max(1L, expectedElements);
+        // m = -n ln p / (ln 2)^2，k = m / n ln 2
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64L, (m + 63) / 64 * 64);
+        this.bits = new long[Math.toIntExact(bitCount / 64)];
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    public void put(String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 位元陣列佔用的位元組數
+     */
+    public long sizeInBytes() {
+        return bits.length * 8L;
+    }
+
+    // 逐字元混合後以 SplitMix64 的終結步驟打散
+    private static long hash(String value, long seed) {
+        long h = seed;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        h ^= h >>> 30;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 27;
+        h *= 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return h;
+    }
+}
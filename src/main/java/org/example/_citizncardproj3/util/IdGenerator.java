@@ -0,0 +1,160 @@
+package org.example._citizncardproj3.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全域編號產生器（Snowflake 格式）
+ * 64 位元編號依序為 41 位元毫秒時間、10 位元節點ID、12 位元序號，
+ * 單一節點每毫秒可產生 4096 個編號；以 CAS 更新狀態，不需加鎖。
+ * 同一毫秒序號用盡時借用下一毫秒，時鐘倒退時沿用上次的時間，編號仍保持遞增。
+ *
+ * 業務編號為「前綴 + 13 碼 Crockford Base32 + 1 碼檢查碼」，
+ * 固定長度所以字串排序即為產生順序。
+ */
+public class IdGenerator {
+
+    // 2024-01-01T00:00:00Z
+    private static final long EPOCH_MILLIS = 1704067200000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // 序號借用未來時間的上限，超過時等待時鐘追上
+    private static final long MAX_DRIFT_MILLIS = 1000L;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int BASE = ALPHABET.length;
+    private static final int ENCODED_LENGTH = 13;
+
+    // (相對時間 << SEQUENCE_BITS) | 序號
+    private static final AtomicLong STATE = new AtomicLong();
+    private static volatile long nodeId = 0L;
+
+    private IdGenerator() {
+    }
+
+    /**
+     * 設定節點ID，多個服務實例必須使用不同的節點ID
+     * @param id 0 ~ {@link #MAX_NODE_ID}
+     */
+    public static void setNodeId(long id) {
+        if (id < 0 || id > MAX_NODE_ID) {
+            throw new IllegalArgumentException("節點ID必須介於 0 到 " + MAX_NODE_ID);
+        }
+        nodeId = id;
+    }
+
+    public static long getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 產生下一個編號
+     * @return 依時間遞增的 64 位元編號
+     */
+    public static long nextId() {
+        while (true) {
+            long previous = STATE.get();
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            long previousMillis = previous >>> SEQUENCE_BITS;
+
+            long next;
+            if (now > previousMillis) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                // 同一毫秒或時鐘倒退：序號加一，序號溢位時自然進位到下一毫秒
+                next = previous + 1;
+                if ((next >>> SEQUENCE_BITS) - now > MAX_DRIFT_MILLIS) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+            }
+
+            if (STATE.compareAndSet(previous, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                return (millis << (NODE_BITS + SEQUENCE_BITS))
+                        | (nodeId << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 產生業務編號
+     * @param prefix 編號前綴（例如 BK、TX）
+     * @return 前綴 + 14 碼編號
+     */
+    public static String nextCode(String prefix) {
+        return prefix + encode(nextId());
+    }
+
+    /**
+     * 將編號編碼為 13 碼 Base32 加 1 碼檢查碼
+     */
+    public static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH + 1];
+        long value = id;
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & (BASE - 1))];
+            value >>>= 5;
+        }
+        chars[ENCODED_LENGTH] = ALPHABET[checkValue(chars, ENCODED_LENGTH)];
+        return new String(chars);
+    }
+
+    /**
+     * 驗證業務編號的檢查碼
+     * @param code 業務編號（可含前綴）
+     * @return 格式與檢查碼是否正確
+     */
+    public static boolean isValidCode(String code) {
+        if (code == null || code.length() < ENCODED_LENGTH + 1) {
+            return false;
+        }
+        char[] chars = code.substring(code.length() - ENCODED_LENGTH - 1).toCharArray();
+        for (char c : chars) {
+            if (indexOf(c) < 0) {
+                return false;
+            }
+        }
+        return ALPHABET[checkValue(chars, ENCODED_LENGTH)] == chars[ENCODED_LENGTH];
+    }
+
+    /**
+     * 從業務編號還原產生時間（毫秒）
+     */
+    public static long extractTimestamp(String code) {
+        long value = 0L;
+        String body = code.substring(code.length() - ENCODED_LENGTH - 1, code.length() - 1);
+        for (char c : body.toCharArray()) {
+            value = (value << 5) | indexOf(c);
+        }
+        return (value >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    // Luhn mod 32 檢查碼，可偵測單一字元錯誤與相鄰字元對調（0 與 Z 對調除外）
+    private static int checkValue(char[] chars, int length) {
+        int factor = 2;
+        int sum = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            int addend = factor * indexOf(chars[i]);
+            factor = factor == 2 ? 1 : 2;
+            sum += addend / BASE + addend % BASE;
+        }
+        return (BASE - sum % BASE) % BASE;
+    }
+
+    private static int indexOf(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        for (int i = 10; i < BASE; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,106 @@
+package org.example._citizncardproj3.repository;
+
+import org.example._citizncardproj3.model.entity.CityMovie;
+import org.example._citizncardproj3.model.entity.MovieSchedule;
+import org.example._citizncardproj3.model.entity.Venue;
+import org.example._citizncardproj3.support.ConcurrentRunner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class MovieScheduleRepositoryConcurrencyTest {
+
+    private static final int TOTAL_SEATS = 300;
+    private static final int BOOKINGS = 3000;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private MovieScheduleRepository scheduleRepository;
+
+    @Autowired
+    private CityMovieRepository movieRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Long scheduleId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        CityMovie movie = movieRepository.save(CityMovie.builder()
+                .movieName("首映測試")
+                .duration(120)
+                .releaseDate(LocalDate.now().minusDays(1))
+                .endDate(LocalDate.now().plusDays(30))
+                .language("中文")
+                .director("測試導演")
+                .build());
+
+        Venue venue = venueRepository.save(Venue.builder()
+                .venueName("測試影廳")
+                .address("台中市")
+                .totalSeats(TOTAL_SEATS)
+                .build());
+
+        scheduleId = scheduleRepository.save(MovieSchedule.builder()
+                .movie(movie)
+                .venue(venue)
+                .showDate(LocalDate.now().plusDays(1))
+                .startTime(LocalTime.of(20, 0))
+                .endTime(LocalTime.of(22, 0))
+                .basePrice(300.0)
+                .totalSeats(TOTAL_SEATS)
+                .roomNumber("1")
+                .status(MovieSchedule.ScheduleStatus.ON_SALE)
+                .build()).getScheduleId();
+    }
+
+    @Test
+    void parallelDecrementsNeverOversell() throws Exception {
+        ConcurrentRunner.Report<Boolean> report = ConcurrentRunner.run("seat decrement", THREADS, BOOKINGS, i -> {
+            Integer updated = transactionTemplate.execute(status -> scheduleRepository
+                    .decrementAvailableSeats(scheduleId, 1, MovieSchedule.ScheduleStatus.FULL));
+            return updated != null && updated == 1;
+        });
+
+        MovieSchedule schedule = scheduleRepository.findById(scheduleId).orElseThrow();
+        assertEquals(TOTAL_SEATS, report.count(true));
+        assertEquals(BOOKINGS - TOTAL_SEATS, report.count(false));
+        assertEquals(0, schedule.getAvailableSeats());
+        assertEquals(MovieSchedule.ScheduleStatus.FULL, schedule.getStatus());
+    }
+
+    @Test
+    void incrementReopensFullSchedule() {
+        transactionTemplate.execute(status -> scheduleRepository
+                .decrementAvailableSeats(scheduleId, TOTAL_SEATS, MovieSchedule.ScheduleStatus.FULL));
+
+        int updated = transactionTemplate.execute(status -> scheduleRepository.incrementAvailableSeats(
+                scheduleId, 2, MovieSchedule.ScheduleStatus.FULL, MovieSchedule.ScheduleStatus.ON_SALE));
+
+        MovieSchedule schedule = scheduleRepository.findById(scheduleId).orElseThrow();
+        assertEquals(1, updated);
+        assertEquals(2, schedule.getAvailableSeats());
+        assertEquals(MovieSchedule.ScheduleStatus.ON_SALE, schedule.getStatus());
+    }
+}
@@ -0,0 +1,155 @@
+package org.example._citizncardproj3.service.impl;
+
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.entity.Discount;
+import org.example._citizncardproj3.model.entity.DiscountCode;
+import org.example._citizncardproj3.model.entity.Member;
+import org.example._citizncardproj3.repository.DiscountCodeRepository;
+import org.example._citizncardproj3.repository.DiscountRepository;
+import org.example._citizncardproj3.repository.MemberRepository;
+import org.example._citizncardproj3.service.support.DiscountCatalog;
+import org.example._citizncardproj3.service.support.DiscountCodeIssuer;
+import org.example._citizncardproj3.service.support.DiscountEligibility;
+import org.example._citizncardproj3.service.support.DiscountQuotaShards;
+import org.example._citizncardproj3.service.support.DiscountRedemption;
+import org.example._citizncardproj3.support.MariaDbJpaTest;
+import org.example._citizncardproj3.support.TestFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 個人優惠碼兌換測試
+ * 個人優惠碼只能兌換一次；活動額度不足而兌換失敗時，優惠碼的兌換一併回滾，維持未兌換；
+ * 檢查碼不符的優惠碼視為不存在；訂票時使用個人優惠碼同樣兌換並佔用額度，不能重複使用。
+ */
+@MariaDbJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DiscountServiceImpl.class, DiscountQuotaShards.class, DiscountEligibility.class, DiscountCatalog.class,
+        DiscountCodeIssuer.class, DiscountRedemption.class})
+class DiscountCodeRedemptionTest {
+
+    private static final double ORDER_AMOUNT = 500.0;
+
+    @Autowired
+    private DiscountServiceImpl discountService;
+
+    @Autowired
+    private DiscountCodeIssuer discountCodeIssuer;
+
+    @Autowired
+    private DiscountRedemption discountRedemption;
+
+    @Autowired
+    private DiscountRepository discountRepository;
+
+    @Autowired
+    private DiscountCodeRepository discountCodeRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    private List<Member> members;
+
+    @BeforeEach
+    void setUp() {
+        members = TestFixtures.createMembers(memberRepository, "code", 3);
+    }
+
+    @Test
+    void personalCodeRedeemsOnlyOnce() {
+        Discount discount = createDiscount(10);
+        String code = issueCodes(discount, 1).get(0);
+
+        discountService.useDiscount(members.get(0).getEmail(), code, ORDER_AMOUNT);
+
+        assertThrows(CustomException.DiscountUsedException.class,
+                () -> discountService.useDiscount(members.get(1).getEmail(), code, ORDER_AMOUNT));
+        assertTrue(discountCodeRepository.findDiscountByCodeAndStatus(code, DiscountCode.CodeStatus.REDEEMED)
+                .isPresent());
+        assertEquals(1, discountRepository.getDiscountUsageCount(discount.getDiscountId()));
+    }
+
+    @Test
+    void failedQuotaAcquireRollsBackCodeRedemption() {
+        // 分片模式不在有效性檢查時判斷上限，額度不足在兌換優惠碼之後才發現
+        Discount discount = createDiscount(2);
+        discountService.shardQuota(discount.getDiscountId(), 2);
+        List<String> codes = issueCodes(discount, 3);
+
+        discountService.useDiscount(members.get(0).getEmail(), codes.get(0), ORDER_AMOUNT);
+        discountService.useDiscount(members.get(1).getEmail(), codes.get(1), ORDER_AMOUNT);
+
+        String rolledBack = codes.get(2);
+        assertThrows(CustomException.DiscountExhaustedException.class,
+                () -> discountService.useDiscount(members.get(2).getEmail(), rolledBack, ORDER_AMOUNT));
+        assertTrue(discountCodeRepository.findDiscountByCodeAndStatus(rolledBack, DiscountCode.CodeStatus.ISSUED)
+                .isPresent());
+    }
+
+    @Test
+    void personalCodeUsedForBookingCannotBeReused() {
+        Discount discount = createDiscount(10);
+        String code = issueCodes(discount, 1).get(0);
+
+        assertEquals(50.0, discountRedemption.applyToBooking(members.get(0).getMemberId(), code, ORDER_AMOUNT));
+
+        // 已兌換的個人優惠碼不在訂票路徑上回傳規則，也不能再以優惠使用兌換
+        assertThrows(CustomException.DiscountNotFoundException.class,
+                () -> discountRedemption.applyToBooking(members.get(1).getMemberId(), code, ORDER_AMOUNT));
+        assertThrows(CustomException.DiscountUsedException.class,
+                () -> discountService.useDiscount(members.get(1).getEmail(), code, ORDER_AMOUNT));
+        assertTrue(discountCodeRepository.findDiscountByCodeAndStatus(code, DiscountCode.CodeStatus.REDEEMED)
+                .isPresent());
+        assertEquals(1, discountRepository.getDiscountUsageCount(discount.getDiscountId()));
+    }
+
+    @Test
+    void malformedCodeIsNotFound() {
+        Discount discount = createDiscount(10);
+        String code = issueCodes(discount, 1).get(0);
+        // 改掉檢查碼後不查詢個人優惠碼
+        char check = code.charAt(code.length() - 1);
+        String mistyped = code.substring(0, code.length() - 1) + (check == '2' ? '3' : '2');
+
+        assertThrows(CustomException.DiscountNotFoundException.class,
+                () -> discountService.useDiscount(members.get(0).getEmail(), mistyped, ORDER_AMOUNT));
+        assertTrue(discountCodeRepository.findDiscountByCodeAndStatus(code, DiscountCode.CodeStatus.ISSUED)
+                .isPresent());
+    }
+
+    private List<String> issueCodes(Discount discount, int count) {
+        DiscountCodeIssuer.IssueResult result = discountCodeIssuer.issue(discount.getDiscountId(), count);
+        assertEquals(count, result.getIssued());
+        List<String> codes = new ArrayList<>(count);
+        discountCodeRepository.streamBatch(result.getBatchNo(), 100, rs -> codes.add(rs.getString(1)));
+        assertEquals(count, codes.size());
+        return codes;
+    }
+
+    private Discount createDiscount(int usageLimit) {
+        return discountRepository.save(Discount.builder()
+                .discountCode("CAMPAIGN" + System.nanoTime())
+                .discountName("個人優惠碼活動")
+                .discountType(Discount.DiscountType.FIXED_AMOUNT)
+                .discountValue(50.0)
+                .minPurchaseAmount(100.0)
+                .maxDiscountAmount(50.0)
+                .validFrom(LocalDateTime.now().minusDays(1))
+                .validUntil(LocalDateTime.now().plusDays(1))
+                .usageLimit(usageLimit)
+                .isDeleted(false)
+                .build());
+    }
+}
@@ -0,0 +1,114 @@
+package org.example._citizncardproj3.service.impl;
+
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.entity.Discount;
+import org.example._citizncardproj3.model.entity.DiscountUsage;
+import org.example._citizncardproj3.model.entity.Member;
+import org.example._citizncardproj3.repository.DiscountRepository;
+import org.example._citizncardproj3.repository.DiscountUsageRepository;
+import org.example._citizncardproj3.repository.MemberRepository;
+import org.example._citizncardproj3.service.support.DiscountCatalog;
+import org.example._citizncardproj3.service.support.DiscountCodeIssuer;
+import org.example._citizncardproj3.service.support.DiscountEligibility;
+import org.example._citizncardproj3.service.support.DiscountQuotaShards;
+import org.example._citizncardproj3.service.support.DiscountRedemption;
+import org.example._citizncardproj3.support.ConcurrentRunner;
+import org.example._citizncardproj3.support.MariaDbJpaTest;
+import org.example._citizncardproj3.support.TestFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 限量優惠兌換壓力測試
+ * 1000 位會員同時兌換限量 100 次的優惠碼，只能有 100 次成功，其餘只能因兌換完畢被拒絕，
+ * 不能被誤判為過期或已使用；計數與使用紀錄一致。
+ */
+@MariaDbJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DiscountServiceImpl.class, DiscountQuotaShards.class, DiscountEligibility.class, DiscountCatalog.class,
+        DiscountCodeIssuer.class, DiscountRedemption.class})
+class DiscountRedemptionLoadTest {
+
+    private static final int REDEMPTIONS = 1000;
+    private static final int USAGE_LIMIT = 100;
+    private static final int THREADS = 32;
+    private static final double ORDER_AMOUNT = 500.0;
+
+    private enum Outcome { REDEEMED, EXHAUSTED, EXPIRED, USED }
+
+    @Autowired
+    private DiscountServiceImpl discountService;
+
+    @Autowired
+    private DiscountRepository discountRepository;
+
+    @Autowired
+    private DiscountUsageRepository discountUsageRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    private Discount discount;
+    private List<String> emails;
+
+    @BeforeEach
+    void setUp() {
+        discount = discountRepository.save(Discount.builder()
+                .discountCode("LOAD" + System.nanoTime())
+                .discountName("限量壓測優惠")
+                .discountType(Discount.DiscountType.FIXED_AMOUNT)
+                .discountValue(50.0)
+                .minPurchaseAmount(100.0)
+                .maxDiscountAmount(50.0)
+                .validFrom(LocalDateTime.now().minusDays(1))
+                .validUntil(LocalDateTime.now().plusDays(1))
+                .usageLimit(USAGE_LIMIT)
+                .isDeleted(false)
+                .build());
+
+        emails = TestFixtures.createMembers(memberRepository, "redeem", REDEMPTIONS).stream()
+                .map(Member::getEmail)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void concurrentRedemptionsNeverExceedLimit() throws Exception {
+        ConcurrentRunner.Report<Outcome> report = ConcurrentRunner.run("discount redemption", THREADS, REDEMPTIONS,
+                index -> {
+                    try {
+                        discountService.useDiscount(emails.get(index), discount.getDiscountCode(), ORDER_AMOUNT);
+                        return Outcome.REDEEMED;
+                    } catch (CustomException.DiscountExhaustedException e) {
+                        // 額度用完後有效性檢查即會拒絕，或在條件式 UPDATE 時才發現
+                        return Outcome.EXHAUSTED;
+                    } catch (CustomException.DiscountExpiredException e) {
+                        return Outcome.EXPIRED;
+                    } catch (CustomException.DiscountUsedException e) {
+                        return Outcome.USED;
+                    }
+                });
+
+        assertEquals(USAGE_LIMIT, report.count(Outcome.REDEEMED));
+        assertEquals(REDEMPTIONS - USAGE_LIMIT, report.count(Outcome.EXHAUSTED));
+        // 每位會員只兌換一次且優惠在有效期間內，不應以過期或已使用拒絕
+        assertEquals(0, report.count(Outcome.EXPIRED));
+        assertEquals(0, report.count(Outcome.USED));
+        assertEquals(USAGE_LIMIT, discountRepository.getDiscountUsageCount(discount.getDiscountId()));
+
+        long usedRows = discountUsageRepository.findAll().stream()
+                .filter(usage -> usage.getStatus() == DiscountUsage.UsageStatus.USED)
+                .filter(usage -> usage.getDiscount().getDiscountId().equals(discount.getDiscountId()))
+                .count();
+        assertEquals(USAGE_LIMIT, usedRows);
+    }
+}
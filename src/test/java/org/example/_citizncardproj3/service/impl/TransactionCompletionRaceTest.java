@@ -0,0 +1,160 @@
+package org.example._citizncardproj3.service.impl;
+
+import org.example._citizncardproj3.model.entity.Transaction;
+import org.example._citizncardproj3.model.entity.Wallet;
+import org.example._citizncardproj3.repository.MemberRepository;
+import org.example._citizncardproj3.repository.TransactionRepository;
+import org.example._citizncardproj3.repository.WalletRepository;
+import org.example._citizncardproj3.service.support.NotificationOutbox;
+import org.example._citizncardproj3.service.support.TimeoutTransactionReaper;
+import org.example._citizncardproj3.service.support.TransactionRollups;
+import org.example._citizncardproj3.service.support.WalletLedger;
+import org.example._citizncardproj3.service.support.WalletLockStripes;
+import org.example._citizncardproj3.service.support.WalletSpendingLimits;
+import org.example._citizncardproj3.support.ConcurrentRunner;
+import org.example._citizncardproj3.support.MariaDbJpaTest;
+import org.example._citizncardproj3.support.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 交易完成與逾時清理競爭測試
+ * 逾時的 PENDING 交易同時被完成與被清理時，每筆交易只能有一方成功：
+ * 完成成功的交易為 SUCCESS 且保留出帳，被清理的交易為 FAILED、出帳已沖銷且完成時被拒絕。
+ */
+@MariaDbJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({TransactionServiceImpl.class, NotificationOutbox.class, WalletLedger.class, WalletLockStripes.class,
+        TimeoutTransactionReaper.class, TransactionRollups.class, WalletSpendingLimits.class})
+@TestPropertySource(properties = {
+        // 小批次讓清理分多段提交，與完成交易交錯
+        "app.transaction-timeout.chunk-size=4"
+})
+class TransactionCompletionRaceTest {
+
+    private static final int ROUNDS = 5;
+    private static final int WALLETS = 4;
+    private static final int TRANSACTIONS = 40;
+    private static final int THREADS = 16;
+    private static final double OPENING_BALANCE = 1000.0;
+    private static final double AMOUNT = 10.0;
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private enum Outcome { REAPED, COMPLETED, REJECTED }
+
+    @Autowired
+    private TransactionServiceImpl transactionService;
+
+    @Autowired
+    private TimeoutTransactionReaper timeoutTransactionReaper;
+
+    @Autowired
+    private WalletLedger walletLedger;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void pendingTransactionIsEitherCompletedOrReapedNeverBoth() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            runRound("completion race " + round);
+        }
+    }
+
+    private void runRound(String label) throws Exception {
+        List<Long> walletIds = TestFixtures.createWallets(memberRepository, walletRepository,
+                "race", WALLETS, OPENING_BALANCE);
+        List<Long> transactionIds = createTimedOutPayments(walletIds);
+        Map<Long, Outcome> outcomes = new ConcurrentHashMap<>();
+
+        // 第一個操作執行清理，其餘操作各完成一筆交易
+        ConcurrentRunner.Report<Outcome> report = ConcurrentRunner.run(label, THREADS, TRANSACTIONS + 1,
+                TIMEOUT, index -> {
+                    if (index == 0) {
+                        timeoutTransactionReaper.reap();
+                        return Outcome.REAPED;
+                    }
+                    Long transactionId = transactionIds.get(index - 1);
+                    Outcome outcome;
+                    try {
+                        transactionService.completeTransaction(transactionId);
+                        outcome = Outcome.COMPLETED;
+                    } catch (IllegalStateException e) {
+                        outcome = Outcome.REJECTED;
+                    }
+                    outcomes.put(transactionId, outcome);
+                    return outcome;
+                });
+
+        assertEquals(1, report.count(Outcome.REAPED));
+        assertEquals(TRANSACTIONS, report.count(Outcome.COMPLETED) + report.count(Outcome.REJECTED));
+
+        for (Long transactionId : transactionIds) {
+            Transaction transaction = transactionRepository.findById(transactionId).orElseThrow();
+            Transaction.TransactionStatus expected = outcomes.get(transactionId) == Outcome.COMPLETED
+                    ? Transaction.TransactionStatus.SUCCESS
+                    : Transaction.TransactionStatus.FAILED;
+            assertEquals(expected, transaction.getStatus(), () -> "transactionId=" + transactionId);
+        }
+
+        long completedMinor = report.count(Outcome.COMPLETED) * WalletLedger.toMinor(AMOUNT);
+        assertEquals(WALLETS * WalletLedger.toMinor(OPENING_BALANCE) - completedMinor, totalBalanceMinor(walletIds));
+    }
+
+    // 建立已出帳、交易時間早於逾時門檻的付款
+    private List<Long> createTimedOutPayments(List<Long> walletIds) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        LocalDateTime transactionTime = LocalDateTime.now().minusHours(1);
+        List<Long> transactionIds = new ArrayList<>(TRANSACTIONS);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            Long walletId = walletIds.get(i % WALLETS);
+            transactionIds.add(transactionTemplate.execute(status -> {
+                Wallet wallet = walletRepository.findById(walletId).orElseThrow();
+                Transaction transaction = transactionRepository.save(Transaction.builder()
+                        .wallet(wallet)
+                        .amount(AMOUNT)
+                        .type(Transaction.TransactionType.PAYMENT)
+                        .status(Transaction.TransactionStatus.PENDING)
+                        .paymentMethod(Transaction.PaymentMethod.WALLET_BALANCE)
+                        .transactionTime(transactionTime)
+                        .build());
+                walletLedger.debit(wallet, AMOUNT, Transaction.TransactionType.PAYMENT,
+                        transaction.getTransactionId());
+                return transaction.getTransactionId();
+            }));
+        }
+        return transactionIds;
+    }
+
+    private long totalBalanceMinor(List<Long> walletIds) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long total = transactionTemplate.execute(status -> walletIds.stream()
+                .mapToLong(walletId -> walletLedger.balanceMinor(walletRepository.findById(walletId).orElseThrow()))
+                .sum());
+        return total != null ? total : 0L;
+    }
+}
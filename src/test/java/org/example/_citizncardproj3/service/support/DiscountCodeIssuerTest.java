@@ -0,0 +1,133 @@
+package org.example._citizncardproj3.service.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 個人優惠碼檢查碼測試
+ * 每個碼本體恰有一個檢查碼使其成立；任一字元打錯或相鄰字元對調都會被判定為格式錯誤，
+ * 字元集不含易混淆的 0/O/1/I/L。
+ */
+class DiscountCodeIssuerTest {
+
+    private static final String ALPHABET = "23456789ABCDEFGHJKMNPQRSTUVWXYZ";
+    private static final int CODE_LENGTH = 12;
+    private static final int SAMPLES = 2000;
+
+    private final Random random = new Random(20240601L);
+    private DiscountCodeIssuer issuer;
+
+    @BeforeEach
+    void setUp() {
+        // 只驗證格式，不需要資料庫
+        issuer = new DiscountCodeIssuer(null, null, new SimpleMeterRegistry(), CODE_LENGTH, 5000, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        issuer.stop();
+    }
+
+    @Test
+    void exactlyOneCheckCharacterCompletesEachCode() {
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            String body = randomBody();
+            int matches = 0;
+            for (char check : ALPHABET.toCharArray()) {
+                if (issuer.isWellFormed(body + check)) {
+                    matches++;
+                }
+            }
+            assertEquals(1, matches, body);
+        }
+    }
+
+    @Test
+    void detectsEverySingleCharacterError() {
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            char[] code = randomCode().toCharArray();
+            for (int position = 0; position < code.length; position++) {
+                char original = code[position];
+                for (char replacement : ALPHABET.toCharArray()) {
+                    if (replacement == original) {
+                        continue;
+                    }
+                    code[position] = replacement;
+                    assertFalse(issuer.isWellFormed(new String(code)), new String(code));
+                }
+                code[position] = original;
+            }
+        }
+    }
+
+    @Test
+    void detectsEveryAdjacentTransposition() {
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            String code = randomCode();
+            for (int position = 0; position + 1 < code.length(); position++) {
+                char[] swapped = code.toCharArray();
+                if (swapped[position] == swapped[position + 1]) {
+                    continue;
+                }
+                swapped[position] = code.charAt(position + 1);
+                swapped[position + 1] = code.charAt(position);
+                assertFalse(issuer.isWellFormed(new String(swapped)), new String(swapped));
+            }
+        }
+    }
+
+    @Test
+    void alphabetExcludesAmbiguousCharacters() {
+        for (char ambiguous : "0O1IL".toCharArray()) {
+            assertEquals(-1, ALPHABET.indexOf(ambiguous));
+        }
+        assertEquals(31, ALPHABET.length());
+
+        String code = randomCode();
+        for (char ambiguous : "0O1ILoil".toCharArray()) {
+            for (int position = 0; position < code.length(); position++) {
+                char[] chars = code.toCharArray();
+                chars[position] = ambiguous;
+                assertFalse(issuer.isWellFormed(new String(chars)), new String(chars));
+            }
+        }
+    }
+
+    @Test
+    void rejectsWrongLengthAndMissingCode() {
+        String code = randomCode();
+        assertTrue(issuer.isWellFormed(code));
+        assertFalse(issuer.isWellFormed(null));
+        assertFalse(issuer.isWellFormed(""));
+        assertFalse(issuer.isWellFormed(code.substring(1)));
+        assertFalse(issuer.isWellFormed(code + "2"));
+        assertFalse(issuer.isWellFormed(code.toLowerCase()));
+    }
+
+    private String randomBody() {
+        StringBuilder body = new StringBuilder(CODE_LENGTH);
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            body.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return body.toString();
+    }
+
+    // 以檢查碼補齊隨機本體
+    private String randomCode() {
+        String body = randomBody();
+        for (char check : ALPHABET.toCharArray()) {
+            if (issuer.isWellFormed(body + check)) {
+                return body + check;
+            }
+        }
+        throw new AssertionError("no check character for " + body);
+    }
+}
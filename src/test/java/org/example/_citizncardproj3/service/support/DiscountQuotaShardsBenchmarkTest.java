@@ -0,0 +1,155 @@
+package org.example._citizncardproj3.service.support;
+
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.entity.Discount;
+import org.example._citizncardproj3.model.entity.DiscountQuotaShard;
+import org.example._citizncardproj3.model.entity.Member;
+import org.example._citizncardproj3.repository.DiscountQuotaShardRepository;
+import org.example._citizncardproj3.repository.DiscountRepository;
+import org.example._citizncardproj3.repository.MemberRepository;
+import org.example._citizncardproj3.service.impl.DiscountServiceImpl;
+import org.example._citizncardproj3.support.ConcurrentRunner;
+import org.example._citizncardproj3.support.MariaDbJpaTest;
+import org.example._citizncardproj3.support.TestFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 優惠額度分片測試
+ * 以 1/2/4/8 個分片執行相同的同時兌換，驗證每種分片數的兌換次數都完整計入，並把吞吐量寫入日誌；
+ * H2 的鎖定行為與 MariaDB 不同，吞吐量只供參考，不驗證隨分片數提升。
+ * 限量搶購情境驗證不超賣，以及重新分片時已使用次數完整保留。
+ */
+@MariaDbJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DiscountServiceImpl.class, DiscountQuotaShards.class, DiscountEligibility.class, DiscountCatalog.class,
+        DiscountCodeIssuer.class, DiscountRedemption.class})
+class DiscountQuotaShardsBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(DiscountQuotaShardsBenchmarkTest.class);
+
+    private static final int THREADS = 64;
+    private static final int MEMBERS = 200;
+    private static final int ATTEMPTS = 4000;
+    private static final int FLASH_LIMIT = 500;
+    private static final int FLASH_SHARDS = 8;
+    private static final int[] SHARD_COUNTS = {1, 2, 4, 8};
+    private static final double ORDER_AMOUNT = 500.0;
+
+    private enum Outcome { REDEEMED, EXHAUSTED }
+
+    @Autowired
+    private DiscountServiceImpl discountService;
+
+    @Autowired
+    private DiscountQuotaShards discountQuotaShards;
+
+    @Autowired
+    private DiscountRepository discountRepository;
+
+    @Autowired
+    private DiscountQuotaShardRepository shardRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    private List<String> emails;
+
+    @BeforeEach
+    void setUp() {
+        emails = TestFixtures.createMembers(memberRepository, "shard", MEMBERS).stream()
+                .map(Member::getEmail)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void redemptionsAreCountedAtEveryShardCount() throws Exception {
+        for (int shards : SHARD_COUNTS) {
+            // 上限足夠，量測的是純粹的兌換吞吐量
+            Discount discount = createDiscount(ATTEMPTS * 2);
+            discountService.shardQuota(discount.getDiscountId(), shards);
+
+            ConcurrentRunner.Report<Outcome> report = redeem(shards + " shard(s)", discount.getDiscountCode(),
+                    ATTEMPTS);
+            log.info("[quota-shard] {} shard(s): {} redemptions/s", shards,
+                    Math.round(report.throughput(Outcome.REDEEMED)));
+
+            assertEquals(ATTEMPTS, report.count(Outcome.REDEEMED));
+            assertEquals(ATTEMPTS, usedCount(discount, shards));
+        }
+    }
+
+    @Test
+    void flashSaleNeverOversells() throws Exception {
+        Discount discount = createDiscount(FLASH_LIMIT);
+        discountService.shardQuota(discount.getDiscountId(), FLASH_SHARDS);
+
+        ConcurrentRunner.Report<Outcome> report = redeem("flash sale", discount.getDiscountCode(), ATTEMPTS);
+
+        assertEquals(FLASH_LIMIT, report.count(Outcome.REDEEMED));
+        assertEquals(ATTEMPTS - FLASH_LIMIT, report.count(Outcome.EXHAUSTED));
+        for (DiscountQuotaShard shard : shardRepository.findAll()) {
+            if (shard.getDiscountId().equals(discount.getDiscountId())) {
+                assertTrue(shard.getUsed() <= shard.getQuota());
+            }
+        }
+
+        // 定期彙總後計數與分片一致；改回單列計數時保留已使用次數
+        discountQuotaShards.syncUsedCounts();
+        assertEquals(FLASH_LIMIT, discountRepository.getDiscountUsageCount(discount.getDiscountId()));
+        assertEquals(FLASH_LIMIT, discountService.shardQuota(discount.getDiscountId(), 1));
+        assertEquals(FLASH_LIMIT, discountRepository.getDiscountUsageCount(discount.getDiscountId()));
+        assertEquals(0, redeem("after reshard", discount.getDiscountCode(), 10).count(Outcome.REDEEMED));
+    }
+
+    private long usedCount(Discount discount, int shards) {
+        if (shards <= 1) {
+            return discountRepository.getDiscountUsageCount(discount.getDiscountId());
+        }
+        return shardRepository.findAll().stream()
+                .filter(shard -> shard.getDiscountId().equals(discount.getDiscountId()))
+                .mapToLong(DiscountQuotaShard::getUsed)
+                .sum();
+    }
+
+    // 只有兌換完畢是預期的拒絕，其他例外會使測試失敗
+    private ConcurrentRunner.Report<Outcome> redeem(String label, String discountCode, int attempts)
+            throws Exception {
+        return ConcurrentRunner.run(label, THREADS, attempts, index -> {
+            try {
+                discountService.useDiscount(emails.get(index % emails.size()), discountCode, ORDER_AMOUNT);
+                return Outcome.REDEEMED;
+            } catch (CustomException.DiscountExhaustedException e) {
+                return Outcome.EXHAUSTED;
+            }
+        });
+    }
+
+    private Discount createDiscount(int usageLimit) {
+        return discountRepository.save(Discount.builder()
+                .discountCode("FLASH" + System.nanoTime())
+                .discountName("搶購優惠")
+                .discountType(Discount.DiscountType.PERCENTAGE)
+                .discountValue(50.0)
+                .minPurchaseAmount(100.0)
+                .maxDiscountAmount(250.0)
+                .validFrom(LocalDateTime.now().minusDays(1))
+                .validUntil(LocalDateTime.now().plusDays(1))
+                .usageLimit(usageLimit)
+                .isDeleted(false)
+                .build());
+    }
+}
@@ -0,0 +1,122 @@
+package org.example._citizncardproj3.service.support;
+
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.entity.LedgerEntry;
+import org.example._citizncardproj3.model.entity.Transaction;
+import org.example._citizncardproj3.model.entity.Wallet;
+import org.example._citizncardproj3.model.entity.WalletDailyRollup;
+import org.example._citizncardproj3.repository.LedgerEntryRepository;
+import org.example._citizncardproj3.repository.MemberRepository;
+import org.example._citizncardproj3.repository.TransactionRepository;
+import org.example._citizncardproj3.repository.WalletRepository;
+import org.example._citizncardproj3.support.MariaDbJpaTest;
+import org.example._citizncardproj3.support.TestFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 每日彙總回補測試
+ * 分錄帳上線前的成功交易沒有分錄，回補時改由交易金額計入；有分錄的交易仍以分錄計算，
+ * 失敗的交易不計入。今天與顛倒的日期區間不能回補。
+ */
+@MariaDbJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({TransactionRollupRebuilder.class, TransactionRollups.class})
+class TransactionRollupRebuilderTest {
+
+    @Autowired
+    private TransactionRollupRebuilder transactionRollupRebuilder;
+
+    @Autowired
+    private TransactionRollups transactionRollups;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private LedgerEntryRepository entryRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    private Wallet wallet;
+    private LocalDate yesterday;
+
+    @BeforeEach
+    void setUp() {
+        Long walletId = TestFixtures.createWallets(memberRepository, walletRepository, "rollup", 1, 0.0).get(0);
+        wallet = walletRepository.findById(walletId).orElseThrow();
+        yesterday = LocalDate.now().minusDays(1);
+    }
+
+    @Test
+    void backfillCountsTransactionsWithoutLedgerEntries() {
+        // 分錄帳上線前的交易
+        save(Transaction.TransactionType.DEPOSIT, 100.0, Transaction.TransactionStatus.SUCCESS);
+        save(Transaction.TransactionType.PAYMENT, 30.25, Transaction.TransactionStatus.SUCCESS);
+        save(Transaction.TransactionType.PAYMENT, 19.75, Transaction.TransactionStatus.SUCCESS);
+        save(Transaction.TransactionType.PAYMENT, 5.0, Transaction.TransactionStatus.FAILED);
+        // 有分錄的交易
+        Transaction ledgered = save(Transaction.TransactionType.DEPOSIT, 50.0, Transaction.TransactionStatus.SUCCESS);
+        entryRepository.save(LedgerEntry.builder()
+                .walletId(wallet.getWalletId())
+                .amountMinor(5000L)
+                .entryType(Transaction.TransactionType.DEPOSIT)
+                .transactionId(ledgered.getTransactionId())
+                .build());
+
+        assertEquals(1, transactionRollupRebuilder.backfill(yesterday, yesterday));
+
+        Map<Transaction.TransactionType, WalletDailyRollup> rollups = new HashMap<>();
+        for (WalletDailyRollup rollup : transactionRollups.dailyStats(wallet.getWalletId(), yesterday, yesterday)) {
+            rollups.put(rollup.getTransactionType(), rollup);
+        }
+        assertEquals(2, rollups.size());
+
+        WalletDailyRollup deposits = rollups.get(Transaction.TransactionType.DEPOSIT);
+        assertEquals(WalletDailyRollup.Direction.IN, deposits.getDirection());
+        assertEquals(2L, deposits.getTxCount());
+        assertEquals(15000L, deposits.getAmountMinor());
+
+        WalletDailyRollup payments = rollups.get(Transaction.TransactionType.PAYMENT);
+        assertEquals(WalletDailyRollup.Direction.OUT, payments.getDirection());
+        assertEquals(2L, payments.getTxCount());
+        assertEquals(5000L, payments.getAmountMinor());
+        assertEquals(1975L, payments.getMinAmountMinor());
+        assertEquals(3025L, payments.getMaxAmountMinor());
+    }
+
+    @Test
+    void rejectsTodayAndReversedRange() {
+        LocalDate today = LocalDate.now();
+        assertThrows(CustomException.ValidationException.class,
+                () -> transactionRollupRebuilder.backfill(yesterday, today));
+        assertThrows(CustomException.ValidationException.class,
+                () -> transactionRollupRebuilder.backfill(yesterday, yesterday.minusDays(1)));
+    }
+
+    private Transaction save(Transaction.TransactionType type, double amount, Transaction.TransactionStatus status) {
+        return transactionRepository.save(Transaction.builder()
+                .wallet(wallet)
+                .amount(amount)
+                .type(type)
+                .status(status)
+                .paymentMethod(Transaction.PaymentMethod.WALLET_BALANCE)
+                .transactionTime(yesterday.atTime(12, 0))
+                .build());
+    }
+}
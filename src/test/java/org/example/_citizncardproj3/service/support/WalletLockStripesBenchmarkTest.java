@@ -0,0 +1,171 @@
+package org.example._citizncardproj3.service.support;
+
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.entity.LedgerEntry;
+import org.example._citizncardproj3.model.entity.Transaction;
+import org.example._citizncardproj3.model.entity.Wallet;
+import org.example._citizncardproj3.repository.LedgerEntryRepository;
+import org.example._citizncardproj3.repository.MemberRepository;
+import org.example._citizncardproj3.repository.WalletRepository;
+import org.example._citizncardproj3.support.ConcurrentRunner;
+import org.example._citizncardproj3.support.MariaDbJpaTest;
+import org.example._citizncardproj3.support.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 錢包分段鎖競爭測試
+ * 單一熱門錢包與一萬個錢包兩種情境下混合支付/儲值，分別以分段鎖與只靠資料列鎖的基準執行，
+ * 驗證兩者餘額都不透支且分錄總和正確，並把兩者的吞吐量寫入日誌比較。
+ */
+@MariaDbJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({WalletLedger.class, WalletLockStripes.class})
+class WalletLockStripesBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletLockStripesBenchmarkTest.class);
+
+    private static final int THREADS = 32;
+    private static final int HOT_OPERATIONS = 3000;
+    private static final int SPREAD_WALLETS = 10_000;
+    private static final int SPREAD_OPERATIONS = 20_000;
+    private static final double OPENING_BALANCE = 1000.0;
+    private static final double TOP_UP_AMOUNT = 10.0;
+    private static final double PAY_AMOUNT = 7.0;
+
+    private enum Outcome { TOP_UP, PAID, DECLINED }
+
+    @Autowired
+    private WalletLockStripes walletLockStripes;
+
+    @Autowired
+    private WalletLedger walletLedger;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private LedgerEntryRepository entryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void hotWalletNeverOverdraws() throws Exception {
+        ConcurrentRunner.Report<Outcome> rowLock = runHotWallet("hot wallet, row lock only", false);
+        ConcurrentRunner.Report<Outcome> striped = runHotWallet("hot wallet, striped", true);
+        logComparison("hot wallet", rowLock, striped);
+    }
+
+    @Test
+    void spreadWalletsKeepLedgerConsistent() throws Exception {
+        ConcurrentRunner.Report<Outcome> rowLock = runSpreadWallets("10k wallets, row lock only", false);
+        ConcurrentRunner.Report<Outcome> striped = runSpreadWallets("10k wallets, striped", true);
+        logComparison("10k wallets", rowLock, striped);
+    }
+
+    private ConcurrentRunner.Report<Outcome> runHotWallet(String label, boolean striped) throws Exception {
+        Long walletId = createWallets(1).get(0);
+        long startEntries = entryRepository.count();
+
+        ConcurrentRunner.Report<Outcome> report = run(label, HOT_OPERATIONS, i -> walletId, striped);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long balanceMinor = transactionTemplate.execute(status ->
+                walletLedger.balanceMinor(walletRepository.findById(walletId).orElseThrow()));
+        long expected = WalletLedger.toMinor(OPENING_BALANCE)
+                + report.count(Outcome.TOP_UP) * WalletLedger.toMinor(TOP_UP_AMOUNT)
+                - report.count(Outcome.PAID) * WalletLedger.toMinor(PAY_AMOUNT);
+
+        assertEquals(expected, balanceMinor);
+        assertTrue(balanceMinor >= 0);
+        assertEquals(HOT_OPERATIONS, report.total());
+        assertEquals(startEntries + report.count(Outcome.TOP_UP) + report.count(Outcome.PAID),
+                entryRepository.count());
+        return report;
+    }
+
+    private ConcurrentRunner.Report<Outcome> runSpreadWallets(String label, boolean striped) throws Exception {
+        List<Long> walletIds = createWallets(SPREAD_WALLETS);
+
+        ConcurrentRunner.Report<Outcome> report = run(label, SPREAD_OPERATIONS,
+                i -> walletIds.get(ThreadLocalRandom.current().nextInt(walletIds.size())), striped);
+
+        Set<Long> benchmarkWallets = new HashSet<>(walletIds);
+        long ledgerTotal = 0;
+        for (LedgerEntry entry : entryRepository.findAll()) {
+            if (benchmarkWallets.contains(entry.getWalletId())) {
+                ledgerTotal += entry.getAmountMinor();
+            }
+        }
+        long expected = report.count(Outcome.TOP_UP) * WalletLedger.toMinor(TOP_UP_AMOUNT)
+                - report.count(Outcome.PAID) * WalletLedger.toMinor(PAY_AMOUNT);
+
+        assertEquals(expected, ledgerTotal);
+        assertEquals(SPREAD_OPERATIONS, report.total());
+        return report;
+    }
+
+    // 三分之一儲值、三分之二支付；基準只以交易與資料列鎖保護，不經過分段鎖
+    private ConcurrentRunner.Report<Outcome> run(String label, int operations, IntFunction<Long> walletPicker,
+                                                 boolean striped) throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return ConcurrentRunner.run(label, THREADS, operations, index -> {
+            Long walletId = walletPicker.apply(index);
+            Supplier<Wallet> action = index % 3 == 0 ? () -> topUp(walletId) : () -> pay(walletId);
+            try {
+                if (striped) {
+                    walletLockStripes.execute(walletId, action);
+                } else {
+                    transactionTemplate.execute(status -> action.get());
+                }
+            } catch (CustomException.InsufficientBalanceException e) {
+                return Outcome.DECLINED;
+            }
+            return index % 3 == 0 ? Outcome.TOP_UP : Outcome.PAID;
+        });
+    }
+
+    private void logComparison(String scenario, ConcurrentRunner.Report<Outcome> rowLock,
+                               ConcurrentRunner.Report<Outcome> striped) {
+        log.info("[wallet-lock] {}: row lock only {} ops/s, striped {} ops/s ({}x)", scenario,
+                Math.round(rowLock.throughput()), Math.round(striped.throughput()),
+                String.format("%.2f", striped.throughput() / rowLock.throughput()));
+    }
+
+    private Wallet topUp(Long walletId) {
+        Wallet wallet = walletRepository.findByIdWithLock(walletId).orElseThrow();
+        walletLedger.credit(wallet, TOP_UP_AMOUNT, Transaction.TransactionType.DEPOSIT, null);
+        return wallet;
+    }
+
+    private Wallet pay(Long walletId) {
+        Wallet wallet = walletRepository.findByIdWithLock(walletId).orElseThrow();
+        walletLedger.debit(wallet, PAY_AMOUNT, Transaction.TransactionType.PAYMENT, null);
+        return wallet;
+    }
+
+    private List<Long> createWallets(int count) {
+        return TestFixtures.createWallets(memberRepository, walletRepository, "bench", count, OPENING_BALANCE);
+    }
+}
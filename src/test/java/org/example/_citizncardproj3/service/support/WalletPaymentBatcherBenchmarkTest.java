@@ -0,0 +1,235 @@
+package org.example._citizncardproj3.service.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.entity.LedgerEntry;
+import org.example._citizncardproj3.model.entity.Member;
+import org.example._citizncardproj3.model.entity.Wallet;
+import org.example._citizncardproj3.repository.LedgerEntryRepository;
+import org.example._citizncardproj3.repository.MemberRepository;
+import org.example._citizncardproj3.repository.TransactionRepository;
+import org.example._citizncardproj3.repository.WalletRepository;
+import org.example._citizncardproj3.service.WalletService;
+import org.example._citizncardproj3.service.impl.WalletServiceImpl;
+import org.example._citizncardproj3.support.ConcurrentRunner;
+import org.example._citizncardproj3.support.MariaDbJpaTest;
+import org.example._citizncardproj3.support.TestFixtures;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 支付群組提交測試
+ * 同樣的小額支付分別經由逐筆提交與群組提交的 {@link WalletService#pay(String, Double)} 執行，
+ * 兩者都以 Hibernate 統計的資料庫交易數計算提交次數，驗證分錄總和、交易筆數與餘額不透支，
+ * 並把兩者的提交數與吞吐量寫入日誌比較。
+ */
+@MariaDbJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({NotificationOutbox.class, WalletLedger.class, WalletLockStripes.class,
+        WalletTransferEngine.class, TransactionStatementExporter.class, TransactionRollups.class,
+        TransactionRollupRebuilder.class, WalletSpendingLimits.class, WalletPaymentBatcher.class,
+        WalletPaymentBatcherBenchmarkTest.BenchmarkConfig.class, WalletPaymentBatcherBenchmarkTest.ServiceDependencies.class})
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.payment-group-commit.enabled=true"
+})
+class WalletPaymentBatcherBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletPaymentBatcherBenchmarkTest.class);
+
+    private static final int THREADS = 64;
+    private static final int WALLETS = 200;
+    private static final int PAYMENTS = 6000;
+    private static final double OPENING_BALANCE = 200.0;
+    private static final double PAY_AMOUNT = 7.0;
+
+    private enum Outcome { PAID, DECLINED }
+
+    @TestConfiguration
+    static class BenchmarkConfig {
+        // 群組提交：使用容器中已啟用的群組提交
+        @Bean
+        WalletService groupCommitWalletService(ServiceDependencies dependencies,
+                                               WalletPaymentBatcher walletPaymentBatcher) {
+            return dependencies.walletService(walletPaymentBatcher);
+        }
+
+        // 逐筆提交的基準：同一個服務實作，搭配未啟用的群組提交
+        @Bean
+        WalletService perPaymentWalletService(ServiceDependencies dependencies, MeterRegistry meterRegistry) {
+            return dependencies.walletService(new WalletPaymentBatcher(dependencies.walletRepository,
+                    dependencies.transactionRepository, dependencies.walletLedger, dependencies.walletLockStripes,
+                    dependencies.transactionRollups, dependencies.walletSpendingLimits, meterRegistry,
+                    false, 1, 1, 0, 1, 0));
+        }
+    }
+
+    // 兩個服務實例共用的相依元件
+    static class ServiceDependencies {
+        private final WalletRepository walletRepository;
+        private final MemberRepository memberRepository;
+        private final TransactionRepository transactionRepository;
+        private final NotificationOutbox notificationOutbox;
+        private final WalletLedger walletLedger;
+        private final WalletLockStripes walletLockStripes;
+        private final WalletTransferEngine walletTransferEngine;
+        private final TransactionStatementExporter transactionStatementExporter;
+        private final TransactionRollups transactionRollups;
+        private final TransactionRollupRebuilder transactionRollupRebuilder;
+        private final WalletSpendingLimits walletSpendingLimits;
+
+        ServiceDependencies(WalletRepository walletRepository,
+                            MemberRepository memberRepository,
+                            TransactionRepository transactionRepository,
+                            NotificationOutbox notificationOutbox,
+                            WalletLedger walletLedger,
+                            WalletLockStripes walletLockStripes,
+                            WalletTransferEngine walletTransferEngine,
+                            TransactionStatementExporter transactionStatementExporter,
+                            TransactionRollups transactionRollups,
+                            TransactionRollupRebuilder transactionRollupRebuilder,
+                            WalletSpendingLimits walletSpendingLimits) {
+            this.walletRepository = walletRepository;
+            this.memberRepository = memberRepository;
+            this.transactionRepository = transactionRepository;
+            this.notificationOutbox = notificationOutbox;
+            this.walletLedger = walletLedger;
+            this.walletLockStripes = walletLockStripes;
+            this.walletTransferEngine = walletTransferEngine;
+            this.transactionStatementExporter = transactionStatementExporter;
+            this.transactionRollups = transactionRollups;
+            this.transactionRollupRebuilder = transactionRollupRebuilder;
+            this.walletSpendingLimits = walletSpendingLimits;
+        }
+
+        WalletService walletService(WalletPaymentBatcher walletPaymentBatcher) {
+            return new WalletServiceImpl(walletRepository, memberRepository, transactionRepository,
+                    notificationOutbox, walletLedger, walletLockStripes, walletTransferEngine,
+                    transactionStatementExporter, transactionRollups, transactionRollupRebuilder, walletSpendingLimits,
+                    walletPaymentBatcher);
+        }
+    }
+
+    @Autowired
+    @Qualifier("perPaymentWalletService")
+    private WalletService perPaymentWalletService;
+
+    @Autowired
+    @Qualifier("groupCommitWalletService")
+    private WalletService groupCommitWalletService;
+
+    @Autowired
+    private WalletLedger walletLedger;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private LedgerEntryRepository entryRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void groupCommitKeepsLedgerConsistentAndCommitsLess() throws Exception {
+        Measurement single = run("per-payment commit", perPaymentWalletService);
+
+        double groupCommitsBefore = meterRegistry.counter("wallet.payment.group.commits").count();
+        Measurement group = run("group commit", groupCommitWalletService);
+        long groupCommits = (long) (meterRegistry.counter("wallet.payment.group.commits").count() - groupCommitsBefore);
+
+        // 群組提交的寫入交易都在統計內；逐筆提交每筆支付（含被拒絕的）至少一個資料庫交易
+        assertTrue(group.transactions >= groupCommits);
+        assertTrue(single.transactions >= PAYMENTS);
+        assertTrue(group.transactions < single.transactions,
+                () -> "group=" + group.transactions + ", single=" + single.transactions);
+
+        log.info("[group-commit] per-payment {} transactions, {} payments/s; group {} transactions " +
+                        "({} group commits), {} payments/s",
+                single.transactions, Math.round(single.report.throughput(Outcome.PAID)),
+                group.transactions, groupCommits, Math.round(group.report.throughput(Outcome.PAID)));
+    }
+
+    private Measurement run(String label, WalletService walletService) throws Exception {
+        List<Member> members = TestFixtures.createMembers(memberRepository, "group", WALLETS);
+        List<Long> walletIds = TestFixtures.createWallets(walletRepository, members, OPENING_BALANCE);
+        List<String> emails = members.stream().map(Member::getEmail).collect(Collectors.toList());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long transactionsBefore = statistics.getTransactionCount();
+
+        ConcurrentRunner.Report<Outcome> report = ConcurrentRunner.run(label, THREADS, PAYMENTS, index -> {
+            String email = emails.get(ThreadLocalRandom.current().nextInt(emails.size()));
+            try {
+                walletService.pay(email, PAY_AMOUNT);
+                return Outcome.PAID;
+            } catch (CustomException.InsufficientBalanceException e) {
+                return Outcome.DECLINED;
+            }
+        });
+
+        // 包含每筆支付查詢錢包ID的唯讀交易，兩種方式相同
+        long transactions = statistics.getTransactionCount() - transactionsBefore;
+        verify(walletIds, report);
+        return new Measurement(report, transactions);
+    }
+
+    private void verify(List<Long> walletIds, ConcurrentRunner.Report<Outcome> report) {
+        assertEquals(PAYMENTS, report.total());
+
+        Set<Long> benchmarkWallets = new HashSet<>(walletIds);
+        long ledgerTotal = 0;
+        long entries = 0;
+        for (LedgerEntry entry : entryRepository.findAll()) {
+            if (benchmarkWallets.contains(entry.getWalletId())) {
+                ledgerTotal += entry.getAmountMinor();
+                entries++;
+            }
+        }
+        assertEquals(report.count(Outcome.PAID), entries);
+        assertEquals(-report.count(Outcome.PAID) * WalletLedger.toMinor(PAY_AMOUNT), ledgerTotal);
+
+        // 開戶餘額只夠部分支付，任何錢包都不能透支
+        for (Long walletId : walletIds) {
+            Wallet wallet = walletRepository.findById(walletId).orElseThrow();
+            assertTrue(walletLedger.balanceMinor(wallet) >= 0);
+        }
+    }
+
+    private static final class Measurement {
+        private final ConcurrentRunner.Report<Outcome> report;
+        private final long transactions;
+
+        private Measurement(ConcurrentRunner.Report<Outcome> report, long transactions) {
+            this.report = report;
+            this.transactions = transactions;
+        }
+    }
+}
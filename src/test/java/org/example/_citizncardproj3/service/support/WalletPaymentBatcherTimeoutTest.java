@@ -0,0 +1,111 @@
+package org.example._citizncardproj3.service.support;
+
+import org.example._citizncardproj3.exception.CustomException;
+import org.example._citizncardproj3.model.entity.Transaction;
+import org.example._citizncardproj3.repository.LedgerEntryRepository;
+import org.example._citizncardproj3.repository.MemberRepository;
+import org.example._citizncardproj3.repository.TransactionRepository;
+import org.example._citizncardproj3.repository.WalletRepository;
+import org.example._citizncardproj3.support.MariaDbJpaTest;
+import org.example._citizncardproj3.support.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 支付群組提交逾時測試
+ * 提交執行緒卡在錢包鎖上時，已開始提交的支付逾時後回傳交易編號，鎖釋放後以該編號入帳；
+ * 仍在佇列中的支付逾時後直接放棄，之後不會再被提交。
+ */
+@MariaDbJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({WalletLedger.class, WalletLockStripes.class, TransactionRollups.class, WalletSpendingLimits.class,
+        WalletPaymentBatcher.class})
+@TestPropertySource(properties = {
+        "app.payment-group-commit.enabled=true",
+        "app.payment-group-commit.partitions=1",
+        "app.payment-group-commit.max-batch-size=1",
+        "app.payment-group-commit.caller-timeout-millis=300",
+        "app.wallet-lock.timeout-millis=30000"
+})
+class WalletPaymentBatcherTimeoutTest {
+
+    private static final double PAY_AMOUNT = 10.0;
+
+    @Autowired
+    private WalletPaymentBatcher walletPaymentBatcher;
+
+    @Autowired
+    private WalletLockStripes walletLockStripes;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private LedgerEntryRepository entryRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Test
+    void timedOutPaymentIsCommittedOrAbandonedNeverBoth() throws Exception {
+        List<Long> walletIds = TestFixtures.createWallets(memberRepository, walletRepository, "timeout", 2, 100.0);
+        Long committing = walletIds.get(0);
+        Long queued = walletIds.get(1);
+
+        // 佔住第一個錢包的分段鎖，讓提交執行緒卡住
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> walletLockStripes.execute(committing, () -> {
+            locked.countDown();
+            try {
+                return release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }));
+        holder.start();
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+        CustomException.PaymentResultUnknownException unknown = assertThrows(
+                CustomException.PaymentResultUnknownException.class,
+                () -> walletPaymentBatcher.pay(committing, PAY_AMOUNT));
+        // 提交執行緒仍卡住，這筆只能留在佇列中
+        assertThrows(CustomException.WalletBusyException.class,
+                () -> walletPaymentBatcher.pay(queued, PAY_AMOUNT));
+
+        release.countDown();
+        holder.join(TimeUnit.SECONDS.toMillis(10));
+
+        // 單一分區依序處理，這筆完成時先前放棄的支付已被略過
+        walletPaymentBatcher.pay(queued, PAY_AMOUNT);
+
+        Optional<Transaction> transaction = transactionRepository.findByTransactionNumber(unknown.getTransactionNumber());
+        assertTrue(transaction.isPresent());
+        assertEquals(Transaction.TransactionStatus.SUCCESS, transaction.get().getStatus());
+        assertEntries(committing, 1);
+        assertEntries(queued, 1);
+    }
+
+    private void assertEntries(Long walletId, long expectedCount) {
+        Object[] summary = entryRepository.summarizeAfter(walletId, 0L).get(0);
+        assertEquals(expectedCount, ((Number) summary[0]).longValue());
+        assertEquals(-Math.round(PAY_AMOUNT * 100) * expectedCount, ((Number) summary[1]).longValue());
+    }
+}
@@ -0,0 +1,128 @@
+package org.example._citizncardproj3.service.support;
+
+import org.example._citizncardproj3.repository.MemberRepository;
+import org.example._citizncardproj3.repository.WalletRepository;
+import org.example._citizncardproj3.support.ConcurrentRunner;
+import org.example._citizncardproj3.support.MariaDbJpaTest;
+import org.example._citizncardproj3.support.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 交叉轉帳並行測試
+ * 多個執行緒同時以重疊的錢包、相反的方向執行批次轉帳與單筆轉帳，
+ * 驗證全部在時限內完成、沒有因鎖等待失敗的轉帳，且所有錢包的餘額總和不變。
+ */
+@MariaDbJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({WalletLedger.class, WalletLockStripes.class, TransactionRollups.class, WalletSpendingLimits.class,
+        WalletTransferEngine.class})
+@TestPropertySource(properties = {
+        // 小批次讓每次批次轉帳分成多段提交，段與段之間與其他轉帳交錯
+        "app.wallet-transfer.batch-size=8",
+        // 所有轉帳都在搶同一組錢包，放寬等待時間；真正的死結仍會逾時而使轉帳失敗
+        "app.wallet-lock.timeout-millis=10000"
+})
+class WalletTransferEngineConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int WALLETS = 16;
+    private static final int OPERATIONS = 800;
+    private static final double OPENING_BALANCE = 10_000.0;
+    private static final double LEG_AMOUNT = 1.0;
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private enum Outcome { BULK, SINGLE }
+
+    @Autowired
+    private WalletTransferEngine walletTransferEngine;
+
+    @Autowired
+    private WalletLedger walletLedger;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void crossingTransfersCompleteAndKeepTotalBalance() throws Exception {
+        List<Long> walletIds = TestFixtures.createWallets(memberRepository, walletRepository,
+                "transfer", WALLETS, OPENING_BALANCE);
+        Map<Long, AtomicLong> netMinor = new ConcurrentHashMap<>();
+        walletIds.forEach(walletId -> netMinor.put(walletId, new AtomicLong()));
+        long legMinor = WalletLedger.toMinor(LEG_AMOUNT);
+        long totalBefore = totalBalanceMinor(walletIds);
+
+        ConcurrentRunner.Report<Outcome> report = ConcurrentRunner.run("cross transfer", THREADS, OPERATIONS,
+                TIMEOUT, index -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    Long from = walletIds.get(random.nextInt(WALLETS));
+
+                    if (index % 2 == 0) {
+                        // 批次轉帳給其他所有錢包，收款順序打亂，與其他批次的鎖定順序各不相同
+                        List<WalletTransferEngine.Leg> legs = new ArrayList<>(WALLETS - 1);
+                        for (Long to : walletIds) {
+                            if (!to.equals(from)) {
+                                legs.add(new WalletTransferEngine.Leg(to, LEG_AMOUNT));
+                            }
+                        }
+                        Collections.shuffle(legs, random);
+
+                        WalletTransferEngine.BulkResult result = walletTransferEngine.transferAll(from, legs, null);
+                        assertTrue(result.getFailures().isEmpty(), () -> "批次轉帳失敗: " + result.getFailures());
+                        for (WalletTransferEngine.Leg leg : legs) {
+                            netMinor.get(from).addAndGet(-legMinor);
+                            netMinor.get(leg.getToWalletId()).addAndGet(legMinor);
+                        }
+                        return Outcome.BULK;
+                    }
+
+                    // 單筆轉帳與反方向同時進行
+                    Long to = walletIds.get((walletIds.indexOf(from) + 1 + random.nextInt(WALLETS - 1)) % WALLETS);
+                    walletTransferEngine.transfer(from, to, LEG_AMOUNT, null);
+                    walletTransferEngine.transfer(to, from, LEG_AMOUNT, null);
+                    return Outcome.SINGLE;
+                });
+
+        assertEquals(OPERATIONS, report.total());
+        assertEquals(totalBefore, totalBalanceMinor(walletIds));
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (Long walletId : walletIds) {
+            long balance = transactionTemplate.execute(status ->
+                    walletLedger.balanceMinor(walletRepository.findById(walletId).orElseThrow()));
+            assertEquals(WalletLedger.toMinor(OPENING_BALANCE) + netMinor.get(walletId).get(), balance);
+        }
+    }
+
+    private long totalBalanceMinor(List<Long> walletIds) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long total = transactionTemplate.execute(status -> walletIds.stream()
+                .mapToLong(walletId -> walletLedger.balanceMinor(walletRepository.findById(walletId).orElseThrow()))
+                .sum());
+        return total != null ? total : 0L;
+    }
+}
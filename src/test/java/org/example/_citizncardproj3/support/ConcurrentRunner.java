@@ -0,0 +1,168 @@
+package org.example._citizncardproj3.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 並行測試執行器
+ * 以固定大小的執行緒池同時啟動指定次數的作業，統計每種結果的次數與耗時並寫入日誌。
+ * 作業拋出非預期的例外、或未在時限內全部完成時，測試直接失敗。
+ */
+public final class ConcurrentRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrentRunner.class);
+
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(2);
+
+    private ConcurrentRunner() {
+    }
+
+    /**
+     * 單次作業
+     * @param <T> 結果類型，回傳 null 表示不計入統計
+     */
+    @FunctionalInterface
+    public interface Operation<T> {
+        T call(int index) throws Exception;
+    }
+
+    public static <T> Report<T> run(String label, int threads, int operations, Operation<T> operation)
+            throws Exception {
+        return run(label, threads, operations, DEFAULT_TIMEOUT, operation);
+    }
+
+    /**
+     * 同時執行作業並等待全部完成
+     * @param label 日誌標籤
+     * @param threads 執行緒數
+     * @param operations 作業次數
+     * @param timeout 全部作業完成的時限
+     * @param operation 作業，參數為作業序號
+     * @return 執行報告
+     */
+    public static <T> Report<T> run(String label, int threads, int operations, Duration timeout,
+                                    Operation<T> operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Map<T, AtomicLong> outcomes = new ConcurrentHashMap<>();
+        List<Future<?>> futures = new ArrayList<>(operations);
+
+        try {
+            for (int i = 0; i < operations; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    T outcome = operation.call(index);
+                    if (outcome != null) {
+                        outcomes.computeIfAbsent(outcome, key -> new AtomicLong()).incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+
+            long begin = System.nanoTime();
+            long deadline = begin + timeout.toNanos();
+            start.countDown();
+            for (Future<?> future : futures) {
+                await(future, deadline, label, timeout);
+            }
+
+            Report<T> report = new Report<>(label, threads, operations, System.nanoTime() - begin, outcomes);
+            log.info("{}", report);
+            return report;
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void await(Future<?> future, long deadline, String label, Duration timeout) throws Exception {
+        try {
+            future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new AssertionError(label + " 未在 " + timeout + " 內完成", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 執行報告
+     */
+    public static final class Report<T> {
+        private final String label;
+        private final int threads;
+        private final int operations;
+        private final long elapsedNanos;
+        private final Map<T, Long> counts;
+
+        private Report(String label, int threads, int operations, long elapsedNanos, Map<T, AtomicLong> outcomes) {
+            this.label = label;
+            this.threads = threads;
+            this.operations = operations;
+            this.elapsedNanos = Math.max(1L, elapsedNanos);
+            Map<T, Long> snapshot = new LinkedHashMap<>();
+            outcomes.forEach((outcome, count) -> snapshot.put(outcome, count.get()));
+            this.counts = Collections.unmodifiableMap(snapshot);
+        }
+
+        public long count(T outcome) {
+            return counts.getOrDefault(outcome, 0L);
+        }
+
+        public long total() {
+            return counts.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public Map<T, Long> counts() {
+            return counts;
+        }
+
+        public long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /**
+         * 每秒完成的作業數
+         */
+        public double throughput() {
+            return operations * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * 每秒得到指定結果的作業數
+         */
+        public double throughput(T outcome) {
+            return count(outcome) * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%s] %d ops, %d threads, %d ms, %.0f ops/s, outcomes=%s",
+                    label, operations, threads, elapsedMillis(), throughput(), counts);
+        }
+    }
+}
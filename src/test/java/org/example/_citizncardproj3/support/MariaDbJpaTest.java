@@ -0,0 +1,31 @@
+package org.example._citizncardproj3.support;
+
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 以 MariaDB 相容模式的 H2 執行的 JPA 切片測試
+ * 多列 INSERT ... ON DUPLICATE KEY UPDATE、INSERT IGNORE 等語法需要相容模式；
+ * 每個測試內容各自使用隨機命名的記憶體資料庫，快取中同時存在的內容不會共用資料表。
+ * 並匯入 {@link TestMetricsConfig}，測試類別的 {@code @Import} 與 {@code @TestPropertySource} 會與此合併。
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TestMetricsConfig.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:${random.uuid};MODE=MariaDB;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+public @interface MariaDbJpaTest {
+}
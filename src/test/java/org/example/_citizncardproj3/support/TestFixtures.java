@@ -0,0 +1,68 @@
+package org.example._citizncardproj3.support;
+
+import org.example._citizncardproj3.model.entity.Member;
+import org.example._citizncardproj3.model.entity.Wallet;
+import org.example._citizncardproj3.repository.MemberRepository;
+import org.example._citizncardproj3.repository.WalletRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 測試資料建立
+ * 以執行當下的 nanoTime 作為前綴的一部分，同一個資料庫中重複執行也不會違反唯一鍵。
+ */
+public final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    /**
+     * 建立會員
+     * @param prefix Email 前綴
+     * @return 已儲存的會員，順序與建立順序相同
+     */
+    public static List<Member> createMembers(MemberRepository memberRepository, String prefix, int count) {
+        long seed = System.nanoTime();
+        List<Member> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            members.add(Member.builder()
+                    .email(prefix + "-" + seed + "-" + i + "@example.com")
+                    .password("secret")
+                    .name(prefix + i)
+                    .build());
+        }
+        return memberRepository.saveAll(members);
+    }
+
+    /**
+     * 建立會員與其一般錢包
+     * @return 錢包ID
+     */
+    public static List<Long> createWallets(MemberRepository memberRepository, WalletRepository walletRepository,
+                                           String prefix, int count, double openingBalance) {
+        return createWallets(walletRepository, createMembers(memberRepository, prefix, count), openingBalance);
+    }
+
+    /**
+     * 為已建立的會員各建立一般錢包
+     * @return 錢包ID，順序與會員順序相同
+     */
+    public static List<Long> createWallets(WalletRepository walletRepository, List<Member> members,
+                                           double openingBalance) {
+        List<Wallet> wallets = new ArrayList<>(members.size());
+        for (Member member : members) {
+            wallets.add(Wallet.builder()
+                    .member(member)
+                    .balance(openingBalance)
+                    .walletType(Wallet.WalletType.GENERAL)
+                    .status(Wallet.WalletStatus.ACTIVE)
+                    .build());
+        }
+        List<Long> walletIds = new ArrayList<>(wallets.size());
+        for (Wallet wallet : walletRepository.saveAll(wallets)) {
+            walletIds.add(wallet.getWalletId());
+        }
+        return walletIds;
+    }
+}
@@ -0,0 +1,19 @@
+package org.example._citizncardproj3.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * 測試用指標註冊表
+ * 切片測試不載入 Micrometer 自動設定，元件建構時註冊的計數器改用記憶體內的註冊表。
+ */
+@TestConfiguration
+public class TestMetricsConfig {
+
+    @Bean
+    MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+}
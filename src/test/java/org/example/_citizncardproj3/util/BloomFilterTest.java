@@ -0,0 +1,59 @@
+package org.example._citizncardproj3.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 布隆過濾器測試
+ * 已加入的元素一律判定存在；未加入的元素誤判率接近建立時指定的 1%。
+ */
+class BloomFilterTest {
+
+    private static final int ELEMENTS = 200_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    void neverReportsAddedElementAsAbsent() {
+        BloomFilter filter = new BloomFilter(ELEMENTS, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < ELEMENTS; i++) {
+            filter.put("member-" + i);
+        }
+        for (int i = 0; i < ELEMENTS; i++) {
+            assertTrue(filter.mightContain("member-" + i), "member-" + i);
+        }
+    }
+
+    @Test
+    void falsePositiveRateIsNearTarget() {
+        BloomFilter filter = new BloomFilter(ELEMENTS, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < ELEMENTS; i++) {
+            filter.put("member-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < ELEMENTS; i++) {
+            if (filter.mightContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / ELEMENTS;
+        // 20 萬次抽樣的標準差約 0.02%，上下各留寬鬆的範圍
+        assertTrue(rate > 0.005 && rate < 0.015, () -> "false positive rate " + rate);
+    }
+
+    @Test
+    void sizeFollowsExpectedElements() {
+        // 1% 誤判率每個元素約 9.6 位元
+        BloomFilter filter = new BloomFilter(1_000_000, FALSE_POSITIVE_RATE);
+        assertTrue(filter.sizeInBytes() >= 1_150_000 && filter.sizeInBytes() <= 1_250_000,
+                () -> "bytes " + filter.sizeInBytes());
+    }
+
+    @Test
+    void rejectsInvalidFalsePositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
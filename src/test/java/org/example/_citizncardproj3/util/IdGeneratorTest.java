@@ -0,0 +1,167 @@
+package org.example._citizncardproj3.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * 全域編號產生器測試
+ * 多執行緒同時產生的編號不重複，且每條執行緒取得的編號嚴格遞增；
+ * 業務編號任一字元打錯或相鄰字元對調都會被檢查碼擋下，並可還原產生時間。
+ */
+class IdGeneratorTest {
+
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    private static final String PREFIX = "TX";
+    private static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int TIMESTAMP_SHIFT = 22;
+    // 序號用盡時最多借用的未來時間
+    private static final long MAX_DRIFT_MILLIS = 1000L;
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 50_000;
+    private static final int SAMPLES = 2000;
+
+    private final Random random = new Random(20240601L);
+
+    @Test
+    void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                long[] ids = new long[IDS_PER_THREAD];
+                for (int i = 0; i < IDS_PER_THREAD; i++) {
+                    ids[i] = IdGenerator.nextId();
+                }
+                return ids;
+            }));
+        }
+
+        start.countDown();
+        Set<Long> seen = new HashSet<>(THREADS * IDS_PER_THREAD * 2);
+        for (Future<long[]> future : futures) {
+            long[] ids = future.get(1, TimeUnit.MINUTES);
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0 && ids[i] <= ids[i - 1]) {
+                    fail("id " + ids[i] + " not greater than previous " + ids[i - 1]);
+                }
+                assertTrue(seen.add(ids[i]), "duplicate id " + ids[i]);
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(THREADS * IDS_PER_THREAD, seen.size());
+    }
+
+    @Test
+    void generatedCodesAreValidWithPrefix() {
+        for (int i = 0; i < SAMPLES; i++) {
+            String code = IdGenerator.nextCode(PREFIX);
+            assertTrue(code.startsWith(PREFIX));
+            assertEquals(PREFIX.length() + 14, code.length());
+            assertTrue(IdGenerator.isValidCode(code), code);
+        }
+    }
+
+    @Test
+    void detectsEverySingleCharacterError() {
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            char[] code = randomCode().toCharArray();
+            // 前綴不在檢查範圍內
+            for (int position = PREFIX.length(); position < code.length; position++) {
+                char original = code[position];
+                for (char replacement : ALPHABET.toCharArray()) {
+                    if (replacement == original) {
+                        continue;
+                    }
+                    code[position] = replacement;
+                    assertFalse(IdGenerator.isValidCode(new String(code)), new String(code));
+                }
+                code[position] = original;
+            }
+        }
+    }
+
+    @Test
+    void detectsAdjacentTranspositions() {
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            String code = randomCode();
+            for (int position = PREFIX.length(); position + 1 < code.length(); position++) {
+                char left = code.charAt(position);
+                char right = code.charAt(position + 1);
+                // Luhn mod 32 與十進位 Luhn 的 09/90 相同，無法分辨 0 與 Z 對調
+                if (left == right || isZeroZPair(left, right)) {
+                    continue;
+                }
+                char[] swapped = code.toCharArray();
+                swapped[position] = right;
+                swapped[position + 1] = left;
+                assertFalse(IdGenerator.isValidCode(new String(swapped)), new String(swapped));
+            }
+        }
+    }
+
+    @Test
+    void rejectsMalformedCodes() {
+        String code = IdGenerator.nextCode("BK");
+        assertFalse(IdGenerator.isValidCode(null));
+        assertFalse(IdGenerator.isValidCode(""));
+        assertFalse(IdGenerator.isValidCode(code.substring(3)));
+        assertFalse(IdGenerator.isValidCode(code.toLowerCase()));
+        // 易混淆字元 I/L/O/U 不在字元集內
+        for (char excluded : "ILOU".toCharArray()) {
+            char[] chars = code.toCharArray();
+            chars[chars.length - 2] = excluded;
+            assertFalse(IdGenerator.isValidCode(new String(chars)), new String(chars));
+        }
+    }
+
+    @Test
+    void extractTimestampRoundTrips() {
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            long millis = EPOCH_MILLIS + (random.nextLong() >>> 24);
+            long id = ((millis - EPOCH_MILLIS) << TIMESTAMP_SHIFT) | random.nextInt(1 << TIMESTAMP_SHIFT);
+            assertEquals(millis, IdGenerator.extractTimestamp("BK" + IdGenerator.encode(id)));
+        }
+
+        long before = System.currentTimeMillis();
+        String code = IdGenerator.nextCode("BK");
+        long after = System.currentTimeMillis();
+        long timestamp = IdGenerator.extractTimestamp(code);
+        assertTrue(timestamp >= before && timestamp <= after + MAX_DRIFT_MILLIS,
+                () -> "timestamp " + timestamp + " outside [" + before + ", " + after + "]");
+    }
+
+    @Test
+    void rejectsNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.setNodeId(-1));
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.setNodeId(IdGenerator.MAX_NODE_ID + 1));
+    }
+
+    private String randomCode() {
+        return PREFIX + IdGenerator.encode(random.nextLong() >>> 1);
+    }
+
+    private static boolean isZeroZPair(char left, char right) {
+        return (left == '0' && right == 'Z') || (left == 'Z' && right == '0');
+    }
+}